@@ -0,0 +1,107 @@
+package com.k2.plan_it_cli;
+
+import com.k2.plan_it_cli.dao.PlanFixtures;
+import com.k2.plan_it_cli.home.PlanItHome;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The time from launching planit to the first line its command prints, for the plain jar and for the jar the
+// fast-startup profile builds: mvn -Pfast-startup package -DskipTests, then run this benchmark from plan-it-cli
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+@Fork(1)
+public class StartupBenchmark {
+
+    public enum Launch {
+        DEFAULT,
+        FAST_STARTUP
+    }
+
+    // As the fast-startup profile trains the class data archive with them
+    static final String FAST_STARTUP_JVM_ARGS = "-XX:TieredStopAtLevel=1 -Dspring.aot.enabled=true -Dspring.main.lazy-initialization=true";
+
+    @Param({"DEFAULT", "FAST_STARTUP"})
+    Launch launch;
+
+    @Param({"home show"})
+    String command;
+
+    // The first line the command prints, which ends the measurement
+    @Param({"PlanIt Home Details"})
+    String firstLine;
+
+    @Param({"target"})
+    String target;
+
+    private Path home;
+    private List<String> commandLine;
+    private Process process;
+    private BufferedReader output;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        home = Files.createTempDirectory("planit-home");
+        PlanItHome.setup(System.out, home.toFile());
+        Path jar = Path.of(target, "fast-startup", "plan-it-cli-0.0.1-SNAPSHOT.jar");
+        Path archive = Path.of(target, "fast-startup", "application.jsa");
+        if (!Files.exists(jar) || !Files.exists(archive)) {
+            throw new IllegalStateException(MessageFormat.format(
+                    "No fast-startup build in {0}, run mvn -Pfast-startup package first", Path.of(target).toAbsolutePath()
+            ));
+        }
+        commandLine = new ArrayList<>();
+        commandLine.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        if (launch == Launch.FAST_STARTUP) {
+            commandLine.add("-XX:SharedArchiveFile=" + archive);
+            commandLine.addAll(Arrays.asList(FAST_STARTUP_JVM_ARGS.split(" ")));
+            commandLine.add("-jar");
+            commandLine.add(jar.toString());
+        } else {
+            commandLine.add("-jar");
+            commandLine.add(Path.of(target, "plan-it-cli-0.0.1-SNAPSHOT.jar").toString());
+        }
+        commandLine.addAll(Arrays.asList(command.split(" ")));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        PlanFixtures.delete(home);
+    }
+
+    // Shutting down is not part of the time to the first command
+    @TearDown(Level.Invocation)
+    public void exit() throws IOException, InterruptedException {
+        output.transferTo(Writer.nullWriter());
+        process.waitFor();
+    }
+
+    @Benchmark
+    public String timeToFirstCommand() throws IOException {
+        ProcessBuilder builder = new ProcessBuilder(commandLine).redirectErrorStream(true);
+        builder.environment().put(PlanItHome.PLAN_IT_HOME_ENV, home.toString());
+        process = builder.start();
+        output = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String line;
+        while ((line = output.readLine()) != null) {
+            if (line.contains(firstLine)) {
+                return line;
+            }
+        }
+        throw new IllegalStateException(MessageFormat.format("{0} exited without printing {1}", command, firstLine));
+    }
+}
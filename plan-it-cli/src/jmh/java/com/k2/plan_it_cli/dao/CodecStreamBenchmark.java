@@ -0,0 +1,48 @@
+package com.k2.plan_it_cli.dao;
+
+import com.k2.plan_it_cli.plans.model.Plan;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// A full stream reads and parses every file, so this is where the cost of each codec shows
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CodecStreamBenchmark {
+
+    @Param({"json", "smile", "cbor"})
+    String codec;
+
+    @Param({"10000"})
+    int entities;
+
+    @Param({"256", "4096"})
+    int entitySize;
+
+    private Path dir;
+    private GenericDao<Plan> dao;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        EntityCodec entityCodec = EntityCodec.named(codec);
+        dir = PlanFixtures.writePlans(entities, entitySize, entityCodec);
+        dao = new DirectoryDao<>(Plan.class, Plan::getReference, (plan, key) -> plan, () -> null, dir.toFile(), entityCodec, null, DirectoryDaoOptions.defaults());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        dao.close();
+        PlanFixtures.delete(dir);
+    }
+
+    @Benchmark
+    public long stream() {
+        return dao.stream().count();
+    }
+}
@@ -0,0 +1,78 @@
+package com.k2.plan_it_cli.dao;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.k2.plan_it_cli.plans.model.Plan;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// The CPU side of compression, with main reporting the disk side
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompressionBenchmark {
+
+    @Param({"NONE", "DEFLATE", "LZ4"})
+    Compression compression;
+
+    @Param({"1000"})
+    int entities;
+
+    @Param({"256", "4096"})
+    int entitySize;
+
+    private final Random random = new Random(42);
+    private Path dir;
+    private GenericDao<Plan> dao;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = PlanFixtures.writePlans(entities, entitySize, codec(compression));
+        dao = new DirectoryDao<>(Plan.class, Plan::getReference, (plan, key) -> plan, () -> null, dir.toFile(),
+                new ObjectMapper(), null, DirectoryDaoOptions.defaults().withCompression(compression));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        dao.close();
+        PlanFixtures.delete(dir);
+    }
+
+    static EntityCodec codec(Compression compression) {
+        return EntityCodec.compressed(EntityCodec.json(new ObjectMapper()), compression);
+    }
+
+    @Benchmark
+    public Plan update() throws NotExistsException, DataIntegrityViolationException {
+        return dao.update(PlanFixtures.plan(random.nextInt(entities), entitySize, random));
+    }
+
+    @Benchmark
+    public long stream() {
+        return dao.stream().count();
+    }
+
+    // Reports the bytes on disk per plan: mvn -Pbenchmark test-compile, then run this class with the test classpath
+    public static void main(String[] args) throws IOException {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        for (int entitySize : new int[]{256, 4096}) {
+            for (Compression compression : Compression.values()) {
+                Path dir = PlanFixtures.writePlans(count, entitySize, codec(compression));
+                try (Stream<Path> files = Files.list(dir)) {
+                    long bytes = files.mapToLong(file -> file.toFile().length()).sum();
+                    System.out.printf("%5d byte descriptions, %-7s %,7d bytes per plan%n", entitySize, compression, bytes / count);
+                } finally {
+                    PlanFixtures.delete(dir);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.k2.plan_it_cli.dao;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.k2.plan_it_cli.dao.predicate.Predicates;
+import com.k2.plan_it_cli.plans.model.Plan;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+// The baseline for every change to the daos: the same operations against each of them, over the same plans on disk
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DaoOperationsBenchmark {
+
+    public enum Kind {
+        DIRECTORY,
+        CACHING,
+        INDEXED
+    }
+
+    @Param({"DIRECTORY", "CACHING", "INDEXED"})
+    Kind kind;
+
+    @Param({"1000", "10000"})
+    int entities;
+
+    // The length of each plan's description, which sets the size of its file
+    @Param({"256", "4096"})
+    int entitySize;
+
+    static final IndexGetter<Plan, String> nameGetter = new IndexGetter<>(Plan::getName);
+    static final IndexGetter<Plan, String> wordGetter = new IndexGetter<>(plan -> plan.getPath().substring(7, plan.getPath().lastIndexOf('/')));
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Random random = new Random(42);
+    private Path dir;
+    private GenericDao<Plan> dao;
+    private Predicate<Plan> byName;
+    private Predicate<Plan> byWord;
+    private Predicate<Plan> unindexed;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = PlanFixtures.writePlans(entities, entitySize, mapper);
+        dao = open();
+        next = entities;
+        byName = Predicates.equals(nameGetter, PlanFixtures.plan(entities / 2, 0, random).getName());
+        byWord = Predicates.equals(wordGetter, "review");
+        unindexed = plan -> plan.getPath().endsWith("/review/" + entities / 2);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        dao.close();
+        PlanFixtures.delete(dir);
+    }
+
+    GenericDao<Plan> open() {
+        return switch (kind) {
+            case DIRECTORY -> new DirectoryDao<>(Plan.class, Plan::getReference, (plan, key) -> plan, () -> null, dir.toFile(), mapper);
+            case CACHING -> new CachingDirectoryDao<>(Plan.class, Plan::getReference, (plan, key) -> plan, () -> null, dir.toFile(), mapper);
+            case INDEXED -> new IndexedDao<>(
+                    handler -> new DirectoryDao<>(Plan.class, Plan::getReference, (plan, key) -> plan, () -> null, dir.toFile(), mapper, handler),
+                    new GenericIndex<>("name", nameGetter, true),
+                    new GenericIndex<>("word", wordGetter, false).withStored(new StoredField<>("wordName", nameGetter)));
+        };
+    }
+
+    private String randomKey() {
+        return PlanFixtures.reference(random.nextInt(entities));
+    }
+
+    @Benchmark
+    public Plan getByKey() throws NotExistsException {
+        return dao.get(randomKey());
+    }
+
+    @Benchmark
+    public Plan getByPredicate() throws NotExistsException, NotUniqueException {
+        return dao.get(byName);
+    }
+
+    @Benchmark
+    public long streamIndexedPredicate() {
+        return dao.stream(byWord).count();
+    }
+
+    // Covered by the word index of the indexed dao, the others read every plan found
+    @Benchmark
+    public long projectIndexedPredicate() {
+        return dao.stream(byWord, List.of(nameGetter)).count();
+    }
+
+    @Benchmark
+    public long streamUnindexedPredicate() {
+        return dao.stream(unindexed).count();
+    }
+
+    @Benchmark
+    public Plan insert() throws AlreadyExistsException {
+        return dao.insert(PlanFixtures.plan(next++, entitySize, random));
+    }
+
+    @Benchmark
+    public Plan update() throws NotExistsException, DataIntegrityViolationException {
+        int i = random.nextInt(entities);
+        return dao.update(PlanFixtures.plan(i, entitySize, random));
+    }
+
+    // Each delete needs a plan of its own, and a file write takes long enough for that to be set up per invocation
+    @State(Scope.Thread)
+    public static class Deletion {
+        private String key;
+
+        @Setup(Level.Invocation)
+        public void insert(DaoOperationsBenchmark benchmark) throws AlreadyExistsException {
+            key = benchmark.insert().getReference();
+        }
+    }
+
+    @Benchmark
+    public Plan delete(Deletion deletion) throws NotExistsException {
+        return dao.delete(deletion.key);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 5)
+    public GenericDao<Plan> startup() {
+        GenericDao<Plan> opened = open();
+        opened.close();
+        return opened;
+    }
+}
@@ -0,0 +1,98 @@
+package com.k2.plan_it_cli.dao;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.k2.plan_it_cli.plans.model.Plan;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DirectoryDaoIndexBenchmark {
+
+    @Param({"20000"})
+    int entities;
+
+    @Param({"1", "2", "4", "8"})
+    int parallelism;
+
+    @Param({"false", "true"})
+    boolean manifest;
+
+    // The length of each plan's description, which the indexed fields leave unread
+    @Param({"256", "4096"})
+    int entitySize;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final IndexGetter<Plan, String> nameGetter = new IndexGetter<>(Plan::getName);
+    private Path dir;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        dir = PlanFixtures.writePlans(entities, entitySize, mapper);
+        if (manifest) {
+            // Writes the manifest so that every measured iteration is a warm start
+            indexDirectoryDao();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        PlanFixtures.delete(dir);
+    }
+
+    private DirectoryDaoOptions options() {
+        return DirectoryDaoOptions.defaults()
+                .withParallelism(parallelism)
+                .withManifest(manifest);
+    }
+
+    @Benchmark
+    public GenericDao<Plan> indexDirectoryDao() {
+        return new IndexedDao<>(
+                handler -> new DirectoryDao<>(
+                        Plan.class,
+                        Plan::getReference,
+                        (plan, key) -> plan,
+                        () -> null,
+                        dir.toFile(),
+                        mapper,
+                        handler,
+                        options()),
+                new GenericIndex<>("name", nameGetter, false));
+    }
+
+    @Benchmark
+    public GenericDao<Plan> indexDirectoryDaoFromFields() {
+        return new IndexedDao<>(
+                handler -> new DirectoryDao<>(
+                        Plan.class,
+                        Plan::getReference,
+                        (plan, key) -> plan,
+                        () -> null,
+                        dir.toFile(),
+                        mapper,
+                        handler,
+                        options()),
+                new GenericIndex<>("name", nameGetter, false).withField("/name", String.class));
+    }
+
+    @Benchmark
+    public GenericDao<Plan> indexCachingDirectoryDao() {
+        return new CachingDirectoryDao<>(
+                Plan.class,
+                Plan::getReference,
+                (plan, key) -> plan,
+                () -> null,
+                dir.toFile(),
+                mapper,
+                null,
+                options());
+    }
+}
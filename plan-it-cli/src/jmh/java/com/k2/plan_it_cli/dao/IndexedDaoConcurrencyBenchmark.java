@@ -0,0 +1,71 @@
+package com.k2.plan_it_cli.dao;
+
+import com.k2.plan_it_cli.dao.predicate.Predicates;
+import com.k2.plan_it_cli.plans.model.Plan;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IndexedDaoConcurrencyBenchmark {
+
+    @Param({"100000"})
+    int entities;
+
+    private static final String[] WORDS = {"review", "risk", "scope", "design"};
+
+    private IndexedDao<Plan> dao;
+    private Predicate<Plan> query;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        List<Plan> plans = IndexedDaoQueryBenchmark.plans(entities);
+        dao = IndexedDaoQueryBenchmark.index(plans);
+        query = Predicates.and(
+                Predicates.equals(IndexedDaoQueryBenchmark.wordGetter, "review"),
+                Predicates.equals(IndexedDaoQueryBenchmark.bucketGetter, 7));
+    }
+
+    long read() {
+        return dao.stream(query).count();
+    }
+
+    Plan write() throws NotExistsException, DataIntegrityViolationException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int i = random.nextInt(entities);
+        return dao.update(new Plan(PlanFixtures.reference(i), "Plan " + i, "", "/plans/" + WORDS[random.nextInt(WORDS.length)] + "/" + i));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long concurrentReads() {
+        return read();
+    }
+
+    @Benchmark
+    public Plan writes() throws NotExistsException, DataIntegrityViolationException {
+        return write();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public long mixedReads() {
+        return read();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public Plan mixedWrites() throws NotExistsException, DataIntegrityViolationException {
+        return write();
+    }
+}
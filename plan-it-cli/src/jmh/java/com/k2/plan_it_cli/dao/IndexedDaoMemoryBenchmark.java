@@ -0,0 +1,104 @@
+package com.k2.plan_it_cli.dao;
+
+import com.k2.plan_it_cli.dao.predicate.Predicates;
+import com.k2.plan_it_cli.plans.model.Plan;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+// Indexes that hold the entities they find against indexes that hold only their keys, over a dao that reads a new copy
+// of an entity on every get as the directory daos do
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IndexedDaoMemoryBenchmark {
+
+    public enum Mode {
+        ENTITIES,
+        KEYS
+    }
+
+    @Param({"ENTITIES", "KEYS"})
+    Mode mode;
+
+    @Param({"1000000"})
+    int entities;
+
+    private final Random random = new Random(42);
+    private IndexedDao<Plan> dao;
+    private Predicate<Plan> and;
+
+    static class CopyingPlanDao extends PlanMapDao {
+        CopyingPlanDao(List<Plan> plans, IndexationHandler<Plan> indexationHandler) {
+            super(plans, indexationHandler);
+        }
+
+        @Override
+        public Plan get(String key) throws NotExistsException {
+            Plan plan = super.get(key);
+            return new Plan(
+                    new String(plan.getReference()),
+                    new String(plan.getName()),
+                    new String(plan.getDescription()),
+                    new String(plan.getPath()));
+        }
+    }
+
+    static IndexedDao<Plan> index(List<Plan> plans, Mode mode) {
+        return new IndexedDao<>(
+                handler -> new CopyingPlanDao(plans, handler),
+                IndexedDaoOptions.defaults().withKeysOnly(mode == Mode.KEYS),
+                new GenericIndex<>("reference", IndexedDaoQueryBenchmark.referenceGetter, true),
+                new GenericIndex<>("word", IndexedDaoQueryBenchmark.wordGetter, false),
+                GenericIndex.sorted("bucket", IndexedDaoQueryBenchmark.bucketGetter, false));
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        dao = index(IndexedDaoQueryBenchmark.plans(entities), mode);
+        and = Predicates.and(
+                Predicates.equals(IndexedDaoQueryBenchmark.wordGetter, "review"),
+                Predicates.equals(IndexedDaoQueryBenchmark.bucketGetter, 7));
+    }
+
+    @Benchmark
+    public Plan getByReference() throws NotExistsException, NotUniqueException {
+        return dao.get(Predicates.equals(IndexedDaoQueryBenchmark.referenceGetter, PlanFixtures.reference(random.nextInt(entities))));
+    }
+
+    @Benchmark
+    public long andOfTwoIndexes() {
+        return dao.stream(and).count();
+    }
+
+    // Reports the heap each mode retains once every entity has been found through the indexes:
+    // mvn -Pbenchmark test-compile, then run this class with the test classpath
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        List<Plan> plans = IndexedDaoQueryBenchmark.plans(count);
+        for (Mode mode : Mode.values()) {
+            long before = usedHeap();
+            IndexedDao<Plan> dao = index(plans, mode);
+            long indexed = usedHeap();
+            long found = dao.stream(Predicates.lessThan(IndexedDaoQueryBenchmark.bucketGetter, 100)).count();
+            long queried = usedHeap();
+            System.out.printf("%s: %,d entities found, %,d bytes indexed, %,d bytes after every entity was found%n",
+                    mode, found, indexed - before, queried - before);
+            dao.close();
+        }
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,91 @@
+package com.k2.plan_it_cli.dao;
+
+import com.k2.plan_it_cli.dao.predicate.Predicates;
+import com.k2.plan_it_cli.plans.model.Plan;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IndexedDaoQueryBenchmark {
+
+    @Param({"1000000"})
+    int entities;
+
+    static final IndexGetter<Plan, String> referenceGetter = new IndexGetter<>(Plan::getReference);
+    static final IndexGetter<Plan, String> wordGetter = new IndexGetter<>(plan -> plan.getPath().substring(7, plan.getPath().lastIndexOf('/')));
+    static final IndexGetter<Plan, Integer> bucketGetter = new IndexGetter<>(plan -> Integer.parseInt(plan.getReference().substring(1)) % 100);
+
+    private IndexedDao<Plan> dao;
+    private Predicate<Plan> and;
+    private Predicate<Plan> or;
+
+    static List<Plan> plans(int count) {
+        Random random = new Random(count);
+        List<Plan> plans = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            plans.add(PlanFixtures.plan(i, 0, random));
+        }
+        return plans;
+    }
+
+    static IndexedDao<Plan> index(List<Plan> plans) {
+        return new IndexedDao<>(
+                handler -> new PlanMapDao(plans, handler),
+                new GenericIndex<>("reference", referenceGetter, true),
+                new GenericIndex<>("word", wordGetter, false),
+                GenericIndex.sorted("bucket", bucketGetter, false));
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        dao = index(plans(entities));
+        and = Predicates.and(Predicates.equals(wordGetter, "review"), Predicates.equals(bucketGetter, 7));
+        or = Predicates.or(Predicates.equals(wordGetter, "review"), Predicates.lessThan(bucketGetter, 2));
+    }
+
+    @Benchmark
+    public long andOfTwoIndexes() {
+        return dao.stream(and).count();
+    }
+
+    @Benchmark
+    public long orOfTwoIndexes() {
+        return dao.stream(or).count();
+    }
+
+    // Reports the heap retained by the indexes alone: mvn -Pbenchmark test-compile, then run this class with the test classpath
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        List<Plan> plans = plans(count);
+        long before = usedHeap();
+        GenericDao<Plan> unindexed = new PlanMapDao(plans, null);
+        long daoBytes = usedHeap() - before;
+        unindexed.close();
+        unindexed = null;
+        before = usedHeap();
+        IndexedDao<Plan> dao = index(plans);
+        long indexBytes = usedHeap() - before - daoBytes;
+        System.out.printf("%,d entities, %d indexes: %,d bytes per million entities%n",
+                count, dao.statistics().size(), indexBytes * 1_000_000 / count);
+    }
+
+    private static long usedHeap() {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+}
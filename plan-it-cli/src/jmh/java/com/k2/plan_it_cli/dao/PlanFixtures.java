@@ -0,0 +1,67 @@
+package com.k2.plan_it_cli.dao;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.k2.plan_it_cli.plans.model.Plan;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Stream;
+
+public class PlanFixtures {
+    private static final String[] WORDS = {
+            "schedule", "milestone", "review", "deliver", "budget", "resource", "risk", "scope",
+            "design", "build", "test", "release", "support", "migrate", "document", "estimate"
+    };
+
+    public static Plan plan(int i, int descriptionLength, Random random) {
+        return new Plan(
+                reference(i),
+                "Plan " + WORDS[i % WORDS.length] + " " + i,
+                description(descriptionLength, random),
+                "/plans/" + WORDS[i % WORDS.length] + "/" + i);
+    }
+
+    public static String reference(int i) {
+        return String.format("P%09d", i);
+    }
+
+    public static String description(int length, Random random) {
+        StringBuilder description = new StringBuilder(length + 16);
+        while (description.length() < length) {
+            description.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        return description.substring(0, length);
+    }
+
+    public static Path writePlans(int count, int descriptionLength, ObjectMapper mapper) throws IOException {
+        return writePlans(count, descriptionLength, EntityCodec.json(mapper));
+    }
+
+    public static Path writePlans(int count, int descriptionLength, EntityCodec codec) throws IOException {
+        Path dir = Files.createTempDirectory("planit-bench");
+        Random random = new Random(count);
+        long modified = System.currentTimeMillis() - 60_000;
+        for (int i = 0; i < count; i++) {
+            Plan plan = plan(i, descriptionLength, random);
+            File file = new File(dir.toFile(), plan.getReference() + codec.extension());
+            codec.write(file, plan);
+            file.setLastModified(modified);
+        }
+        return dir;
+    }
+
+    public static void delete(Path dir) throws IOException {
+        if (dir == null || !Files.exists(dir)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder())
+                    .map(Path::toFile)
+                    .forEach(File::delete);
+        }
+    }
+}
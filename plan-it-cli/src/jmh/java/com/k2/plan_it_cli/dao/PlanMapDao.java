@@ -0,0 +1,112 @@
+package com.k2.plan_it_cli.dao;
+
+import com.k2.plan_it_cli.plans.model.Plan;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+// An in memory dao that hands its plans to an indexation handler as lazy index entries, like a manifest would
+public class PlanMapDao implements GenericDao<Plan> {
+    private final Map<String, Plan> plans = new ConcurrentHashMap<>();
+
+    public PlanMapDao(List<Plan> plans, IndexationHandler<Plan> indexationHandler) {
+        plans.forEach(plan -> this.plans.put(plan.getReference(), plan));
+        if (indexationHandler != null) {
+            indexationHandler.start();
+            for (Plan plan : plans) {
+                Map<String, Object> indexEntries = indexationHandler.indexEntries(plan);
+                indexationHandler.accept(new IndexedEntityCallback<>() {
+                    @Override
+                    public String getKey() {
+                        return plan.getReference();
+                    }
+
+                    @Override
+                    public Plan getEntity() {
+                        return plan;
+                    }
+
+                    @Override
+                    public Map<String, Object> getIndexEntries() {
+                        return indexEntries;
+                    }
+                });
+            }
+            indexationHandler.end();
+        }
+    }
+
+    @Override
+    public String ofType() {
+        return Plan.class.getSimpleName();
+    }
+
+    @Override
+    public KeyGetter<Plan> keyGetter() {
+        return Plan::getReference;
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return plans.containsKey(key);
+    }
+
+    @Override
+    public Plan get(String key) throws NotExistsException {
+        Plan plan = plans.get(key);
+        if (plan == null) {
+            throw new NotExistsException(key, ofType());
+        }
+        return plan;
+    }
+
+    @Override
+    public Plan get(Predicate<? super Plan> predicate) throws NotExistsException, NotUniqueException {
+        List<Plan> found = stream(predicate).limit(2).toList();
+        if (found.isEmpty()) {
+            throw new NotExistsException(predicate, ofType());
+        }
+        if (found.size() > 1) {
+            throw new NotUniqueException(predicate, ofType());
+        }
+        return found.get(0);
+    }
+
+    @Override
+    public Stream<Plan> stream() {
+        return plans.values().stream();
+    }
+
+    @Override
+    public Stream<Plan> stream(Predicate<? super Plan> predicate) {
+        return stream().filter(predicate);
+    }
+
+    @Override
+    public Plan insert(Plan plan) throws AlreadyExistsException {
+        if (plans.putIfAbsent(plan.getReference(), plan) != null) {
+            throw new AlreadyExistsException(plan.getReference(), ofType());
+        }
+        return plan;
+    }
+
+    @Override
+    public Plan update(Plan plan) throws NotExistsException {
+        if (plans.replace(plan.getReference(), plan) == null) {
+            throw new NotExistsException(plan.getReference(), ofType());
+        }
+        return plan;
+    }
+
+    @Override
+    public Plan delete(String key) throws NotExistsException {
+        Plan plan = plans.remove(key);
+        if (plan == null) {
+            throw new NotExistsException(key, ofType());
+        }
+        return plan;
+    }
+}
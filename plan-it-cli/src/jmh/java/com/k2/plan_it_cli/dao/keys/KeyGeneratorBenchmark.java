@@ -0,0 +1,44 @@
+package com.k2.plan_it_cli.dao.keys;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Key generation on its own, from one thread and from several sharing the generator as the daos do
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KeyGeneratorBenchmark {
+
+    public enum Kind {
+        RANDOM,
+        ULID
+    }
+
+    @Param({"RANDOM", "ULID"})
+    Kind kind;
+
+    private KeyGenerator keyGenerator;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        keyGenerator = switch (kind) {
+            case RANDOM -> new RandomKeyGenerator();
+            case ULID -> new UlidKeyGenerator();
+        };
+    }
+
+    @Benchmark
+    public String nextKey() {
+        return keyGenerator.nextKey(String.class);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String contendedNextKey() {
+        return keyGenerator.nextKey(String.class);
+    }
+}
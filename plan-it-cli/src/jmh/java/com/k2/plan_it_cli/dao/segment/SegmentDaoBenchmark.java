@@ -0,0 +1,120 @@
+package com.k2.plan_it_cli.dao.segment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.k2.plan_it_cli.dao.AlreadyExistsException;
+import com.k2.plan_it_cli.dao.DirectoryDao;
+import com.k2.plan_it_cli.dao.GenericDao;
+import com.k2.plan_it_cli.dao.NotExistsException;
+import com.k2.plan_it_cli.dao.PlanFixtures;
+import com.k2.plan_it_cli.plans.model.Plan;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SegmentDaoBenchmark {
+
+    public enum Engine {
+        DIRECTORY, SEGMENT
+    }
+
+    static GenericDao<Plan> open(Engine engine, Path dir, ObjectMapper mapper) {
+        return switch (engine) {
+            case DIRECTORY -> new DirectoryDao<>(
+                    Plan.class, Plan::getReference, (plan, key) -> plan, () -> null, dir.toFile(), mapper);
+            case SEGMENT -> new SegmentDao<>(
+                    Plan.class, Plan::getReference, (plan, key) -> plan, () -> null, dir.toFile(), mapper, null,
+                    SegmentDaoOptions.defaults().withCompactionInterval(Duration.ZERO));
+        };
+    }
+
+    @State(Scope.Thread)
+    public static class Writes {
+        @Param({"DIRECTORY", "SEGMENT"})
+        Engine engine;
+
+        @Param({"256"})
+        int descriptionLength;
+
+        final ObjectMapper mapper = new ObjectMapper();
+        final Random random = new Random(42);
+        Path dir;
+        GenericDao<Plan> dao;
+        int next;
+
+        @Setup(Level.Iteration)
+        public void setup() throws IOException {
+            dir = Files.createTempDirectory("planit-bench");
+            dao = open(engine, dir, mapper);
+            next = 0;
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() throws IOException {
+            dao.close();
+            PlanFixtures.delete(dir);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ColdReads {
+        @Param({"DIRECTORY", "SEGMENT"})
+        Engine engine;
+
+        @Param({"5000"})
+        int entities;
+
+        final ObjectMapper mapper = new ObjectMapper();
+        final Random random = new Random(42);
+        Path dir;
+        GenericDao<Plan> dao;
+        String key;
+
+        @Setup(Level.Trial)
+        public void populate() throws IOException, AlreadyExistsException {
+            dir = Files.createTempDirectory("planit-bench");
+            try (GenericDao<Plan> writer = open(engine, dir, mapper)) {
+                for (int i = 0; i < entities; i++) {
+                    writer.insert(PlanFixtures.plan(i, 256, random));
+                }
+            }
+        }
+
+        @Setup(Level.Invocation)
+        public void reopen() {
+            dao = open(engine, dir, mapper);
+            key = PlanFixtures.reference(random.nextInt(entities));
+        }
+
+        @TearDown(Level.Invocation)
+        public void close() {
+            dao.close();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            PlanFixtures.delete(dir);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public Plan insert(Writes writes) throws AlreadyExistsException {
+        return writes.dao.insert(PlanFixtures.plan(writes.next++, writes.descriptionLength, writes.random));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Plan coldGet(ColdReads reads) throws NotExistsException {
+        return reads.dao.get(reads.key);
+    }
+}
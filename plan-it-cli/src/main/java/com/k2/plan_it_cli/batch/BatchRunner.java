@@ -0,0 +1,160 @@
+package com.k2.plan_it_cli.batch;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+// Runs the commands of a script one line at a time. A command whose line ends in & runs in the background alongside
+// the commands after it, and the next command without one waits for every background command before it starts.
+// Blank lines and lines starting with # are skipped. What a background command prints to System.out is held until it is
+// waited for, so the output of every command appears in the order of the script.
+public class BatchRunner {
+    static final String BACKGROUND = "&";
+    static final String COMMENT = "#";
+
+    private final Function<String, Object> commands;
+    private final int parallelism;
+
+    private record Step(int line, String command, Future<Object> result, ByteArrayOutputStream output) {
+    }
+
+    public BatchRunner(Function<String, Object> commands, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "At least one command must be able to run at a time but the parallelism was {0}", parallelism
+            ));
+        }
+        this.commands = commands;
+        this.parallelism = parallelism;
+    }
+
+    // Results are handed on in the order of the script, whatever order the commands finish in
+    public int run(BufferedReader script, Consumer<Object> results) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        List<Step> background = new ArrayList<>();
+        int commandCount = 0;
+        int lineNumber = 0;
+        PrintStream systemOut = System.out;
+        ThreadOutput output = new ThreadOutput(systemOut);
+        System.setOut(new PrintStream(output, true, Charset.defaultCharset()));
+        try {
+            String line;
+            while ((line = script.readLine()) != null) {
+                lineNumber++;
+                String command = line.strip();
+                if (command.isEmpty() || command.startsWith(COMMENT)) {
+                    continue;
+                }
+                commandCount++;
+                if (command.endsWith(BACKGROUND)) {
+                    String backgroundCommand = command.substring(0, command.length() - BACKGROUND.length()).strip();
+                    ByteArrayOutputStream printed = new ByteArrayOutputStream();
+                    background.add(new Step(lineNumber, backgroundCommand, executor.submit(() -> output.into(printed, () -> commands.apply(backgroundCommand))), printed));
+                } else {
+                    await(background, results, systemOut);
+                    try {
+                        results.accept(commands.apply(command));
+                    } catch (RuntimeException err) {
+                        throw failed(lineNumber, command, err);
+                    }
+                }
+            }
+            await(background, results, systemOut);
+        } finally {
+            executor.shutdownNow();
+            System.setOut(systemOut);
+        }
+        return commandCount;
+    }
+
+    // Every background command is waited for even once one has failed, so none is still running when the script stops
+    private void await(List<Step> background, Consumer<Object> results, PrintStream out) {
+        IllegalStateException failure = null;
+        for (Step step : background) {
+            try {
+                Object result = step.result().get();
+                if (failure == null) {
+                    out.write(step.output().toByteArray(), 0, step.output().size());
+                    out.flush();
+                    results.accept(result);
+                }
+            } catch (ExecutionException err) {
+                if (failure == null) {
+                    failure = failed(step.line(), step.command(), err.getCause());
+                }
+            } catch (InterruptedException err) {
+                Thread.currentThread().interrupt();
+                throw failed(step.line(), step.command(), err);
+            }
+        }
+        background.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static IllegalStateException failed(int line, String command, Throwable cause) {
+        return new IllegalStateException(MessageFormat.format(
+                "The command {0} on line {1} of the script failed: {2}", command, line, cause.getMessage()
+        ), cause);
+    }
+
+    // Writes to System.out, unless the thread writing is running a background command, which writes to its own buffer
+    private static class ThreadOutput extends OutputStream {
+        private final PrintStream out;
+        private final ThreadLocal<ByteArrayOutputStream> buffers = new ThreadLocal<>();
+
+        private ThreadOutput(PrintStream out) {
+            this.out = out;
+        }
+
+        private Object into(ByteArrayOutputStream buffer, Supplier<Object> command) {
+            buffers.set(buffer);
+            try {
+                return command.get();
+            } finally {
+                buffers.remove();
+            }
+        }
+
+        @Override
+        public void write(int b) {
+            ByteArrayOutputStream buffer = buffers.get();
+            if (buffer != null) {
+                buffer.write(b);
+            } else {
+                out.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            ByteArrayOutputStream buffer = buffers.get();
+            if (buffer != null) {
+                buffer.write(bytes, offset, length);
+            } else {
+                out.write(bytes, offset, length);
+            }
+        }
+
+        @Override
+        public void flush() {
+            if (buffers.get() == null) {
+                out.flush();
+            }
+        }
+    }
+}
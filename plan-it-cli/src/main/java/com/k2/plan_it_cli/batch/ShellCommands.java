@@ -0,0 +1,69 @@
+package com.k2.plan_it_cli.batch;
+
+import org.jline.reader.Parser;
+import org.jline.terminal.Terminal;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.shell.CommandNotFound;
+import org.springframework.shell.command.CommandCatalog;
+import org.springframework.shell.command.CommandExecution;
+import org.springframework.shell.config.ShellConversionServiceSupplier;
+import org.springframework.shell.context.ShellContext;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.function.Function;
+
+// Evaluates a command line, or the words of one, against the commands of this shell, in the same context and with the same beans as the
+// shell itself. Each evaluation is independent, so lines may be evaluated from several threads at once.
+@Component
+public class ShellCommands implements Function<String, Object> {
+    private final Parser parser;
+    private final CommandCatalog commandCatalog;
+    private final CommandExecution.CommandExecutionHandlerMethodArgumentResolvers argumentResolvers;
+    private final Terminal terminal;
+    private final ShellContext shellContext;
+    private final ShellConversionServiceSupplier conversionService;
+
+    // The catalog holds the batch command, which depends on this, so it is only resolved when a line is evaluated
+    @Autowired
+    public ShellCommands(
+            Parser parser,
+            @Lazy CommandCatalog commandCatalog,
+            CommandExecution.CommandExecutionHandlerMethodArgumentResolvers argumentResolvers,
+            Terminal terminal,
+            ShellContext shellContext,
+            ShellConversionServiceSupplier conversionService) {
+        this.parser = parser;
+        this.commandCatalog = commandCatalog;
+        this.argumentResolvers = argumentResolvers;
+        this.terminal = terminal;
+        this.shellContext = shellContext;
+        this.conversionService = conversionService;
+    }
+
+    @Override
+    public Object apply(String line) {
+        return evaluate(parser.parse(line, line.length() + 1).words().stream()
+                .filter(word -> !word.isEmpty())
+                .toArray(String[]::new));
+    }
+
+    public Object evaluate(String[] words) {
+        if (!isCommand(words)) {
+            throw new CommandNotFound(Arrays.asList(words), commandCatalog.getRegistrations(), String.join(" ", words));
+        }
+        return CommandExecution.of(argumentResolvers.getResolvers(), null, terminal, shellContext, conversionService.get(), commandCatalog)
+                .evaluate(words);
+    }
+
+    // Commands may be several words long, like home show, and are followed by their options
+    private boolean isCommand(String[] words) {
+        for (int length = words.length; length > 0; length--) {
+            if (commandCatalog.getRegistrations().containsKey(String.join(" ", Arrays.copyOf(words, length)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,49 @@
+package com.k2.plan_it_cli.commands;
+
+import com.k2.plan_it_cli.batch.BatchRunner;
+import com.k2.plan_it_cli.batch.ShellCommands;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.shell.command.annotation.Command;
+import org.springframework.shell.command.annotation.Option;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.MessageFormat;
+
+@Command
+public class Batch {
+    static final String STDIN = "-";
+
+    @Getter
+    private final ShellCommands shellCommands;
+
+    @Autowired
+    public Batch(ShellCommands shellCommands) {
+        this.shellCommands = shellCommands;
+    }
+
+    // Runs every command of a script, or of stdin, in this shell so that they share one start up
+    @Command(command = "batch")
+    public String batch(
+            @Option(defaultValue = STDIN) String script,
+            @Option(defaultValue = "4") int parallelism) throws IOException {
+        BatchRunner runner = new BatchRunner(shellCommands, parallelism);
+        int commands;
+        try (BufferedReader reader = STDIN.equals(script)
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Path.of(script))) {
+            commands = runner.run(reader, result -> {
+                if (result != null && !result.toString().isEmpty()) {
+                    System.out.println(result);
+                }
+            });
+        }
+        return MessageFormat.format("Ran {0} commands from {1}", commands, STDIN.equals(script) ? "stdin" : script);
+    }
+
+}
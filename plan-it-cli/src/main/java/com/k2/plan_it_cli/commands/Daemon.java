@@ -0,0 +1,38 @@
+package com.k2.plan_it_cli.commands;
+
+import com.k2.plan_it_cli.batch.ShellCommands;
+import com.k2.plan_it_cli.daemon.DaemonServer;
+import com.k2.plan_it_cli.home.PlanItHome;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.shell.command.annotation.Command;
+import org.springframework.shell.command.annotation.Option;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.MessageFormat;
+import java.time.Duration;
+
+@Command
+public class Daemon {
+
+    @Getter
+    private final PlanItHome planItHome;
+    @Getter
+    private final ShellCommands shellCommands;
+
+    @Autowired
+    public Daemon(PlanItHome planItHome, ShellCommands shellCommands) {
+        this.planItHome = planItHome;
+        this.shellCommands = shellCommands;
+    }
+
+    // Keeps this shell running to serve commands from DaemonClient until it has been idle for the timeout
+    @Command(command = "daemon")
+    public String daemon(@Option(longNames = "idle-seconds", defaultValue = "900") long idleSeconds) throws IOException {
+        File socket = planItHome.getSocket();
+        int served = new DaemonServer(socket.toPath(), Duration.ofSeconds(idleSeconds), shellCommands::evaluate).serve();
+        return MessageFormat.format("Served {0} commands on {1} before being idle for {2} seconds", served, socket, idleSeconds);
+    }
+
+}
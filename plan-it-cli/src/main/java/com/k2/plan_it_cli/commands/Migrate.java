@@ -0,0 +1,34 @@
+package com.k2.plan_it_cli.commands;
+
+import com.k2.plan_it_cli.dao.DirectoryMigration;
+import com.k2.plan_it_cli.dao.EntityCodec;
+import com.k2.plan_it_cli.home.PlanItHome;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.shell.command.annotation.Command;
+import org.springframework.shell.command.annotation.Option;
+
+import java.io.File;
+import java.text.MessageFormat;
+
+@Command
+public class Migrate {
+
+    @Getter
+    private final PlanItHome planItHome;
+
+    @Autowired
+    public Migrate(PlanItHome planItHome) {
+        this.planItHome = planItHome;
+    }
+
+    @Command(command = "migrate")
+    public String migrate(
+            @Option(longNames = "from", required = true) String from,
+            @Option(longNames = "to", required = true) String to) {
+        File plans = planItHome.getPlans();
+        int migrated = DirectoryMigration.migrateAll(plans, EntityCodec.named(from), EntityCodec.named(to));
+        return MessageFormat.format("Migrated {0} files in {1} from {2} to {3}", migrated, plans, from, to);
+    }
+
+}
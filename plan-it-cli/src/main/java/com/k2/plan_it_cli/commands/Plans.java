@@ -0,0 +1,33 @@
+package com.k2.plan_it_cli.commands;
+
+import com.k2.plan_it_cli.dao.GenericDao;
+import com.k2.plan_it_cli.plans.model.Plan;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.shell.command.annotation.Command;
+
+import java.text.MessageFormat;
+import java.util.Comparator;
+import java.util.stream.Collectors;
+
+@Command(command = "plans")
+public class Plans {
+
+    @Getter
+    private final GenericDao<Plan> planDao;
+
+    @Autowired
+    public Plans(@Lazy GenericDao<Plan> planDao) {
+        this.planDao = planDao;
+    }
+
+    @Command(command = "list")
+    public String list() {
+        return planDao.stream()
+                .sorted(Comparator.comparing(Plan::getReference))
+                .map(plan -> MessageFormat.format("{0} {1}", plan.getReference(), plan.getName()))
+                .collect(Collectors.joining(System.lineSeparator()));
+    }
+
+}
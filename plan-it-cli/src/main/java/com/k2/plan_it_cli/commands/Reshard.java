@@ -0,0 +1,32 @@
+package com.k2.plan_it_cli.commands;
+
+import com.k2.plan_it_cli.dao.DirectoryMigration;
+import com.k2.plan_it_cli.dao.EntityCodec;
+import com.k2.plan_it_cli.home.PlanItHome;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.shell.command.annotation.Command;
+import org.springframework.shell.command.annotation.Option;
+
+import java.io.File;
+import java.text.MessageFormat;
+
+@Command
+public class Reshard {
+
+    @Getter
+    private final PlanItHome planItHome;
+
+    @Autowired
+    public Reshard(PlanItHome planItHome) {
+        this.planItHome = planItHome;
+    }
+
+    @Command(command = "reshard")
+    public String reshard(int depth, @Option(defaultValue = "json") String codec) {
+        File plans = planItHome.getPlans();
+        int moved = DirectoryMigration.reshard(plans, EntityCodec.named(codec), depth);
+        return MessageFormat.format("Moved {0} files in {1} to a shard depth of {2}", moved, plans, depth);
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.k2.plan_it_cli.commands;
+
+import com.k2.plan_it_cli.metrics.MetricsReport;
+import lombok.Getter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.shell.command.annotation.Command;
+
+import java.io.File;
+import java.text.MessageFormat;
+
+@Command(command = "stats")
+public class Stats {
+
+    @Getter
+    private final MetricsReport metricsReport;
+
+    @Autowired
+    public Stats(MetricsReport metricsReport) {
+        this.metricsReport = metricsReport;
+    }
+
+    @Command(command = "show")
+    public String show() {
+        metricsReport.report(System.out);
+        return "";
+    }
+
+    @Command(command = "export")
+    public String export(File file) {
+        metricsReport.export(file);
+        return MessageFormat.format("Exported statistics to {0}", file);
+    }
+
+}
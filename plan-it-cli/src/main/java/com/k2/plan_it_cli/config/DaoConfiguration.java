@@ -0,0 +1,32 @@
+package com.k2.plan_it_cli.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.k2.plan_it_cli.dao.DirectoryDao;
+import com.k2.plan_it_cli.dao.GenericDao;
+import com.k2.plan_it_cli.dao.MeteredDao;
+import com.k2.plan_it_cli.dao.keys.UlidKeyGenerator;
+import com.k2.plan_it_cli.home.PlanItHome;
+import com.k2.plan_it_cli.plans.model.Plan;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+
+@Configuration
+public class DaoConfiguration {
+
+    // Opened on first use, so that commands which never touch the plans do not index them, and then shared by every
+    // command the shell, a batch or the daemon runs. Every call is recorded for the stats command.
+    @Bean
+    @Lazy
+    public GenericDao<Plan> planDao(PlanItHome planItHome, MeterRegistry meterRegistry) {
+        UlidKeyGenerator keyGenerator = new UlidKeyGenerator();
+        return new MeteredDao<>(new DirectoryDao<>(
+                Plan.class,
+                Plan::getReference,
+                (plan, reference) -> new Plan(reference, plan.getName(), plan.getDescription(), plan.getPath()),
+                () -> keyGenerator.nextKey(Plan.class),
+                planItHome.getPlans(),
+                new ObjectMapper()), meterRegistry);
+    }
+}
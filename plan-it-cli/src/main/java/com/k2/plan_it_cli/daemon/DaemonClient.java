@@ -0,0 +1,77 @@
+package com.k2.plan_it_cli.daemon;
+
+import com.k2.plan_it_cli.PlanItCommandLineInterfaceApplication;
+import com.k2.plan_it_cli.home.PlanItHome;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.MessageFormat;
+
+// A thin launcher that hands its arguments to the daemon for the PlanIt home and prints what comes back, without
+// starting Spring. With no daemon listening it runs the command itself, as planit always has.
+public class DaemonClient {
+
+    public static void main(String[] args) throws IOException {
+        String home = PlanItHome.getHomeEnv();
+        SocketChannel channel = home == null ? null : connect(Path.of(home, PlanItHome.SOCKET_NAME));
+        if (channel == null) {
+            PlanItCommandLineInterfaceApplication.main(args);
+            return;
+        }
+        System.exit(forward(channel, args, System.out, System.err));
+    }
+
+    // Null when no daemon is listening, including on the socket of one that did not shut down cleanly
+    static SocketChannel connect(Path socket) {
+        if (!Files.exists(socket)) {
+            return null;
+        }
+        try {
+            return SocketChannel.open(UnixDomainSocketAddress.of(socket));
+        } catch (IOException err) {
+            return null;
+        }
+    }
+
+    // Once the command is sent the daemon may have run it, so a failure is reported rather than run again here
+    static int forward(SocketChannel channel, String[] args, OutputStream output, PrintStream errors) {
+        try (channel) {
+            return forward(channel, args, output);
+        } catch (IOException err) {
+            errors.println(MessageFormat.format(
+                    "The daemon stopped answering {0}, so it may or may not have run: {1}", String.join(" ", args), err.getMessage()
+            ));
+            return DaemonServer.FAILURE;
+        }
+    }
+
+    public static int forward(Path socket, String[] args, OutputStream output) throws IOException {
+        try (SocketChannel channel = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+            return forward(channel, args, output);
+        }
+    }
+
+    private static int forward(SocketChannel channel, String[] args, OutputStream output) throws IOException {
+        DataOutputStream out = new DataOutputStream(Channels.newOutputStream(channel));
+        out.writeInt(args.length);
+        for (String arg : args) {
+            out.writeUTF(arg);
+        }
+        out.flush();
+        DataInputStream in = new DataInputStream(Channels.newInputStream(channel));
+        int length;
+        while ((length = in.readInt()) != DaemonServer.END) {
+            output.write(in.readNBytes(length));
+        }
+        output.flush();
+        return in.readInt();
+    }
+}
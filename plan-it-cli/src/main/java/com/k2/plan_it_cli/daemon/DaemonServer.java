@@ -0,0 +1,226 @@
+package com.k2.plan_it_cli.daemon;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.ProtocolException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.util.function.Function;
+
+// Serves commands over a Unix domain socket until none has arrived for the idle timeout. Each connection carries one
+// command as its words, and gets back what the command printed and its result in frames, then an exit status.
+// Commands run one at a time because their output is taken from System.out while they run.
+public class DaemonServer {
+    static final int END = -1;
+    static final int SUCCESS = 0;
+    static final int FAILURE = 1;
+    static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+    // Far more words than any command takes, so that a bad word count is not allocated
+    static final int MAX_WORDS = 1024;
+
+    private final Path socket;
+    private final Duration idleTimeout;
+    private final Duration requestTimeout;
+    private final Function<String[], Object> commands;
+
+    public DaemonServer(Path socket, Duration idleTimeout, Function<String[], Object> commands) {
+        this(socket, idleTimeout, REQUEST_TIMEOUT, commands);
+    }
+
+    public DaemonServer(Path socket, Duration idleTimeout, Duration requestTimeout, Function<String[], Object> commands) {
+        if (idleTimeout.isNegative() || idleTimeout.isZero()) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "The daemon idle timeout must be positive but was {0}", idleTimeout
+            ));
+        }
+        if (requestTimeout.isNegative() || requestTimeout.isZero()) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "The daemon request timeout must be positive but was {0}", requestTimeout
+            ));
+        }
+        this.socket = socket;
+        this.idleTimeout = idleTimeout;
+        this.requestTimeout = requestTimeout;
+        this.commands = commands;
+    }
+
+    // Returns the number of commands served once the daemon has been idle for long enough
+    public int serve() throws IOException {
+        removeStaleSocket();
+        int served = 0;
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+             Selector selector = Selector.open()) {
+            server.bind(UnixDomainSocketAddress.of(socket));
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+            long idleSince = System.nanoTime();
+            while (true) {
+                long remaining = idleTimeout.toMillis() - Duration.ofNanos(System.nanoTime() - idleSince).toMillis();
+                if (remaining <= 0) {
+                    return served;
+                }
+                if (selector.select(remaining) == 0) {
+                    continue;
+                }
+                selector.selectedKeys().clear();
+                SocketChannel client = server.accept();
+                if (client != null && serve(client)) {
+                    served++;
+                    idleSince = System.nanoTime();
+                }
+            }
+        } finally {
+            Files.deleteIfExists(socket);
+        }
+    }
+
+    // Returns false for a connection that sends no whole command in time, which includes another daemon checking on
+    // this one by connecting and closing straight away
+    private boolean serve(SocketChannel client) throws IOException {
+        try (client) {
+            String[] words;
+            try {
+                words = read(client);
+            } catch (IOException err) {
+                return false;
+            }
+            if (words == null) {
+                return false;
+            }
+            client.configureBlocking(true);
+            DataOutputStream out = new DataOutputStream(Channels.newOutputStream(client));
+            PrintStream output = new PrintStream(new FrameOutputStream(out), true, StandardCharsets.UTF_8);
+            PrintStream systemOut = System.out;
+            int status = SUCCESS;
+            System.setOut(output);
+            try {
+                Object result = commands.apply(words);
+                if (result != null && !result.toString().isEmpty()) {
+                    output.println(result);
+                }
+            } catch (RuntimeException err) {
+                output.println(err.getMessage());
+                status = FAILURE;
+            } finally {
+                System.setOut(systemOut);
+            }
+            try {
+                out.writeInt(END);
+                out.writeInt(status);
+                out.flush();
+            } catch (IOException err) {
+                // A client that goes away mid command only loses its own output
+            }
+            return true;
+        }
+    }
+
+    // Read through a selector so that a client which never sends its command cannot hold up the daemon for good
+    private String[] read(SocketChannel client) throws IOException {
+        client.configureBlocking(false);
+        try (Selector selector = Selector.open()) {
+            client.register(selector, SelectionKey.OP_READ);
+            ByteArrayOutputStream request = new ByteArrayOutputStream();
+            ByteBuffer buffer = ByteBuffer.allocate(4096);
+            long deadline = System.nanoTime() + requestTimeout.toNanos();
+            while (true) {
+                String[] words = words(request.toByteArray());
+                if (words != null) {
+                    return words;
+                }
+                long remaining = Duration.ofNanos(deadline - System.nanoTime()).toMillis();
+                if (remaining <= 0) {
+                    return null;
+                }
+                if (selector.select(remaining) == 0) {
+                    continue;
+                }
+                selector.selectedKeys().clear();
+                int read = client.read(buffer.clear());
+                if (read < 0) {
+                    return null;
+                }
+                request.write(buffer.array(), 0, read);
+            }
+        }
+    }
+
+    // Null until the whole command has arrived
+    private static String[] words(byte[] request) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(request));
+        try {
+            int count = in.readInt();
+            if (count < 0 || count > MAX_WORDS) {
+                throw new ProtocolException(MessageFormat.format("A command cannot have {0} words", count));
+            }
+            String[] words = new String[count];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = in.readUTF();
+            }
+            return words;
+        } catch (EOFException err) {
+            return null;
+        }
+    }
+
+    // A socket left behind by a daemon that did not shut down is removed, but one that is listening is not taken over
+    private void removeStaleSocket() throws IOException {
+        if (!Files.exists(socket)) {
+            return;
+        }
+        SocketChannel running;
+        try {
+            running = SocketChannel.open(UnixDomainSocketAddress.of(socket));
+        } catch (IOException err) {
+            Files.delete(socket);
+            return;
+        }
+        running.close();
+        throw new IllegalStateException(MessageFormat.format(
+                "A daemon is already listening on {0}", socket
+        ));
+    }
+
+    private static class FrameOutputStream extends OutputStream {
+        private final DataOutputStream out;
+
+        private FrameOutputStream(DataOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (length > 0) {
+                out.writeInt(length);
+                out.write(bytes, offset, length);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.k2.plan_it_cli.dao;
+
+import lombok.Getter;
+
+import java.text.MessageFormat;
+import java.util.List;
+
+// A batch that failed part way, with the keys written or deleted before it failed so that they can be reindexed
+public class BatchWriteError extends GenericDaoError {
+
+    @Getter
+    private final String type;
+    @Getter
+    private final List<String> applied;
+
+    public BatchWriteError(String type, List<String> applied, Throwable cause) {
+        super(message(type, applied, cause), cause);
+        this.type = type;
+        this.applied = List.copyOf(applied);
+    }
+
+    private static String message(String type, List<String> applied, Throwable cause) {
+        return MessageFormat.format(
+                "A batch of {0}s failed after {1} of its keys were applied: {2}",
+                type,
+                applied.size(),
+                cause.getMessage()
+        );
+    }
+}
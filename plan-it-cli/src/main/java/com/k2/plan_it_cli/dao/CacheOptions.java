@@ -0,0 +1,46 @@
+package com.k2.plan_it_cli.dao;
+
+import java.text.MessageFormat;
+
+public record CacheOptions(long maximumSize, long maximumWeight, double heapPressureThreshold) {
+
+    public CacheOptions {
+        if (maximumSize < 0 || maximumWeight < 0) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "The cache bounds cannot be negative but were {0} entities and {1} bytes", maximumSize, maximumWeight
+            ));
+        }
+        if (maximumSize > 0 && maximumWeight > 0) {
+            throw new IllegalArgumentException("The cache can be bounded by entity count or by weight but not both");
+        }
+        if (heapPressureThreshold < 0 || heapPressureThreshold >= 1) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "The heap pressure threshold must be at least 0 and less than 1 but was {0}", heapPressureThreshold
+            ));
+        }
+        if (heapPressureThreshold > 0 && maximumSize == 0 && maximumWeight == 0) {
+            throw new IllegalArgumentException("Only a bounded cache can shrink under heap pressure");
+        }
+    }
+
+    public static CacheOptions unbounded() {
+        return new CacheOptions(0, 0, 0);
+    }
+
+    public static CacheOptions maximumSize(long maximumSize) {
+        return new CacheOptions(maximumSize, 0, 0);
+    }
+
+    // The weight of an entity is the size of its file as encoded, and compressed when it is, so only a rough guide to heap
+    public static CacheOptions maximumWeight(long maximumWeight) {
+        return new CacheOptions(0, maximumWeight, 0);
+    }
+
+    public CacheOptions withHeapPressureThreshold(double heapPressureThreshold) {
+        return new CacheOptions(maximumSize, maximumWeight, heapPressureThreshold);
+    }
+
+    public boolean isBounded() {
+        return maximumSize > 0 || maximumWeight > 0;
+    }
+}
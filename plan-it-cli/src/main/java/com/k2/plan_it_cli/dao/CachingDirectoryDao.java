@@ -1,16 +1,28 @@
 package com.k2.plan_it_cli.dao;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 
 import java.io.File;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 public class CachingDirectoryDao<T> extends DirectoryDao<T> {
+    // Heap pressure shrinks a bounded cache to no less than this fraction of its configured maximum
+    static final int SHRINK_LIMIT = 16;
+
     private Map<String, T> cache;
+    private Map<String, T> indexingCache;
+    private Cache<String, T> boundedCache;
+    private HeapPressureListener heapPressureListener;
+    private long configuredMaximum;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
 
     public CachingDirectoryDao(
             Class<T> type,
@@ -22,53 +34,177 @@ public class CachingDirectoryDao<T> extends DirectoryDao<T> {
         super(type, keyGetter, keySetter, keyGenerator, dir, mapper);
     }
 
+    public CachingDirectoryDao(
+            Class<T> type,
+            KeyGetter<T> keyGetter,
+            KeySetter<T> keySetter,
+            Supplier<String> keyGenerator,
+            File dir,
+            ObjectMapper mapper,
+            IndexationHandler<T> indexationHandler) {
+        super(type, keyGetter, keySetter, keyGenerator, dir, mapper, indexationHandler);
+    }
+
+    public CachingDirectoryDao(
+            Class<T> type,
+            KeyGetter<T> keyGetter,
+            KeySetter<T> keySetter,
+            Supplier<String> keyGenerator,
+            File dir,
+            ObjectMapper mapper,
+            IndexationHandler<T> indexationHandler,
+            DirectoryDaoOptions options) {
+        super(type, keyGetter, keySetter, keyGenerator, dir, mapper, indexationHandler, options);
+    }
+
+    public CachingDirectoryDao(
+            Class<T> type,
+            KeyGetter<T> keyGetter,
+            KeySetter<T> keySetter,
+            Supplier<String> keyGenerator,
+            File dir,
+            EntityCodec codec,
+            IndexationHandler<T> indexationHandler,
+            DirectoryDaoOptions options) {
+        super(type, keyGetter, keySetter, keyGenerator, dir, codec, indexationHandler, options);
+    }
+
     @Override
     public T get(String key) throws NotExistsException {
+        // Checked first as an entity read just before it was deleted may still be cached
+        if (!exists(key)) {
+            throw new NotExistsException(key, type.getSimpleName());
+        }
         T entity = cache.get(key);
         if (entity == null) {
-            throw new NotExistsException(key, type.getSimpleName());
+            misses.increment();
+            entity = super.get(key);
+            // Never replaces what a writer cached after this entity was read
+            T cached = cache.putIfAbsent(key, entity);
+            if (cached != null) {
+                return cached;
+            }
+            if (!exists(key)) {
+                cache.remove(key, entity);
+            }
+        } else {
+            hits.increment();
         }
         return entity;
     }
 
     @Override
     public Stream<T> stream() {
-        return cache.values().stream();
+        return keys()
+                .map(this::cached)
+                .filter(Objects::nonNull);
     }
 
     @Override
     public Stream<T> stream(Predicate<? super T> predicate) {
-        return cache.values().stream()
+        return stream()
                 .filter(predicate);
     }
 
     @Override
-    public T insert(T entity) throws AlreadyExistsException {
-        T inserted = super.insert(entity);
-        cache.put(keyGetter.get(inserted), inserted);
-        return inserted;
+    public void bindMeters(DaoMeters meters) {
+        super.bindMeters(meters);
+        meters.counter("cache.hits", "Entities served from the cache", hits::sum);
+        meters.counter("cache.misses", "Entities read from disk into the cache", misses::sum);
     }
 
     @Override
-    public T update(T entity) throws NotExistsException, DataIntegrityViolationException {
-        T updated = super.update(entity);
-        cache.put(keyGetter.get(updated), updated);
-        return updated;
+    protected void stored(String key, T entity) {
+        cache.put(key, entity);
     }
 
     @Override
-    public T delete(String key) throws NotExistsException {
-        T deleted = super.delete(key);
+    protected void deleted(String key) {
         cache.remove(key);
-        return deleted;
+    }
+
+    // Null when the entity was deleted while streaming
+    private T cached(String key) {
+        try {
+            return get(key);
+        } catch (NotExistsException err) {
+            return null;
+        }
+    }
+
+    @Override
+    public void close() {
+        if (heapPressureListener != null) {
+            heapPressureListener.unregister();
+            heapPressureListener = null;
+        }
+        super.close();
+    }
+
+    void onHeapPressure() {
+        long floor = Math.max(1, configuredMaximum / SHRINK_LIMIT);
+        boundedCache.policy().eviction().ifPresent(eviction ->
+                eviction.setMaximum(Math.max(floor, eviction.getMaximum() / 2)));
+    }
+
+    // Shrinking only lasts until a collection leaves the heap below the threshold again
+    void onHeapRelief() {
+        boundedCache.policy().eviction().ifPresent(eviction -> {
+            if (eviction.getMaximum() < configuredMaximum) {
+                eviction.setMaximum(configuredMaximum);
+            }
+        });
+    }
+
+    int cacheSize() {
+        return cache.size();
+    }
+
+    long cacheMaximum() {
+        return boundedCache.policy().eviction().orElseThrow().getMaximum();
+    }
+
+    @Override
+    protected void indexed(IndexedEntityCallback<T> indexedEntityCallback) {
+        // Entities unchanged since the last manifest are loaded on first use rather than during the index
+        if (indexingCache != null && indexedEntityCallback.isModified()) {
+            indexingCache.put(indexedEntityCallback.getKey(), indexedEntityCallback.getEntity());
+        }
     }
 
     @Override
     protected void index() {
-        Map<String, T> newCache = new HashMap<>();
+        CacheOptions cacheOptions = options.cache();
+        if (cacheOptions.isBounded()) {
+            // A bounded cache fills on use, loading everything here would only churn through the eviction policy
+            if (boundedCache == null) {
+                boundedCache = boundedCache(cacheOptions);
+                configuredMaximum = cacheOptions.maximumSize() > 0 ? cacheOptions.maximumSize() : cacheOptions.maximumWeight();
+                if (cacheOptions.heapPressureThreshold() > 0) {
+                    heapPressureListener = HeapPressureListener.register(
+                            cacheOptions.heapPressureThreshold(), this::onHeapPressure, this::onHeapRelief);
+                }
+            }
+            super.index();
+            boundedCache.invalidateAll();
+            this.cache = boundedCache.asMap();
+            return;
+        }
+        indexingCache = newIndexMap();
         super.index();
-        super.stream()
-                .forEach(entity -> newCache.put(keyGetter.get(entity), entity));
-        this.cache = newCache;
+        this.cache = indexingCache;
+        indexingCache = null;
+    }
+
+    private Cache<String, T> boundedCache(CacheOptions cacheOptions) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder()
+                .executor(Runnable::run);
+        if (cacheOptions.maximumSize() > 0) {
+            return builder.maximumSize(cacheOptions.maximumSize()).build();
+        }
+        return builder
+                .maximumWeight(cacheOptions.maximumWeight())
+                .<String, T>weigher((key, entity) -> weightOf(key))
+                .build();
     }
 }
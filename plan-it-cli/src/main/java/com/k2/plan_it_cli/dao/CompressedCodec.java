@@ -0,0 +1,137 @@
+package com.k2.plan_it_cli.dao;
+
+import net.jpountz.lz4.LZ4FrameInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+// Compresses what another codec writes. Files keep that codec's extension and are told apart by their magic number,
+// so files written before compression was turned on, after it was turned off, or with another compression, are still read.
+// Entities are small enough to be compressed and decompressed whole in memory.
+class CompressedCodec implements EntityCodec {
+    private final EntityCodec codec;
+    private final Compression compression;
+
+    CompressedCodec(EntityCodec codec, Compression compression) {
+        this.codec = codec;
+        this.compression = compression;
+    }
+
+    EntityCodec codec() {
+        return codec;
+    }
+
+    @Override
+    public String name() {
+        return compression == Compression.NONE ? codec.name() : codec.name() + "+" + compression.name().toLowerCase();
+    }
+
+    @Override
+    public String extension() {
+        return codec.extension();
+    }
+
+    // Plain files are left to the codec to read straight from disk
+    @Override
+    public <T> T read(File file, Class<T> type) throws IOException {
+        return isCompressed(file) ? read(Files.readAllBytes(file.toPath()), type) : codec.read(file, type);
+    }
+
+    @Override
+    public void write(File file, Object value) throws IOException {
+        if (compression == Compression.NONE) {
+            codec.write(file, value);
+            return;
+        }
+        try (OutputStream out = new FileOutputStream(file)) {
+            write(out, value);
+        }
+    }
+
+    @Override
+    public <T> T read(InputStream in, Class<T> type) throws IOException {
+        return read(in.readAllBytes(), type);
+    }
+
+    @Override
+    public void write(OutputStream out, Object value) throws IOException {
+        Buffer raw = new Buffer();
+        codec.write(raw, value);
+        switch (compression) {
+            case DEFLATE -> GzipFrames.write(raw.bytes(), raw.size(), out);
+            case LZ4 -> Lz4Frames.write(raw.bytes(), raw.size(), out);
+            case NONE -> raw.writeTo(out);
+        }
+        out.flush();
+    }
+
+    @Override
+    public Map<String, Object> readFields(File file, List<IndexField> fields) throws IOException {
+        if (!isCompressed(file)) {
+            return codec.readFields(file, fields);
+        }
+        return codec.readFields(decompressed(Files.readAllBytes(file.toPath())), fields);
+    }
+
+    @Override
+    public Map<String, Object> readFields(InputStream in, List<IndexField> fields) throws IOException {
+        return codec.readFields(decompressed(in.readAllBytes()), fields);
+    }
+
+    private <T> T read(byte[] bytes, Class<T> type) throws IOException {
+        return codec.read(decompressed(bytes), type);
+    }
+
+    private static boolean isCompressed(File file) throws IOException {
+        byte[] head = new byte[Lz4Frames.MAGIC.length];
+        int read;
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            read = in.readNBytes(head, 0, head.length);
+        }
+        return startsWith(head, read, GzipFrames.MAGIC) || startsWith(head, read, Lz4Frames.MAGIC);
+    }
+
+    private static InputStream decompressed(byte[] bytes) throws IOException {
+        if (startsWith(bytes, bytes.length, GzipFrames.MAGIC)) {
+            byte[] raw = GzipFrames.read(bytes);
+            return raw != null ? new ByteArrayInputStream(raw) : new GZIPInputStream(new ByteArrayInputStream(bytes));
+        }
+        if (startsWith(bytes, bytes.length, Lz4Frames.MAGIC)) {
+            byte[] raw = Lz4Frames.read(bytes);
+            return raw != null ? new ByteArrayInputStream(raw) : new LZ4FrameInputStream(new ByteArrayInputStream(bytes));
+        }
+        return new ByteArrayInputStream(bytes);
+    }
+
+    // Hands over what was written without copying it
+    private static class Buffer extends ByteArrayOutputStream {
+        private Buffer() {
+            super(1024);
+        }
+
+        private byte[] bytes() {
+            return buf;
+        }
+    }
+
+    private static boolean startsWith(byte[] bytes, int length, byte[] prefix) {
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (bytes[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
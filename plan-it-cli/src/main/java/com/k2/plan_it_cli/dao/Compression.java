@@ -0,0 +1,10 @@
+package com.k2.plan_it_cli.dao;
+
+public enum Compression {
+    // Files are written as the codec produces them
+    NONE,
+    // Gzip framed deflate, smaller files for more CPU
+    DEFLATE,
+    // LZ4 frames, less saved than deflate but far cheaper to read and write
+    LZ4
+}
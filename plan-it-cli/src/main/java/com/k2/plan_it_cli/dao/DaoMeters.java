@@ -0,0 +1,11 @@
+package com.k2.plan_it_cli.dao;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+// Receives the counts a dao keeps of its own work, leaving how they are published to whoever asks for them
+public interface DaoMeters {
+    void counter(String name, String description, LongSupplier count);
+    void duration(String name, String description, Supplier<Duration> duration);
+}
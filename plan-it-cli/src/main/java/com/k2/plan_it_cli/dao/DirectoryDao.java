@@ -4,10 +4,25 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.text.MessageFormat;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
@@ -18,9 +33,30 @@ public class DirectoryDao<T> implements GenericDao<T>{
     protected final KeySetter<T> keySetter;
     protected final Supplier<String> keyGenerator;
     private final File dir;
-    private final ObjectMapper mapper;
-    private Map<String, File> index = new HashMap<>();
+    private final EntityCodec codec;
+    private volatile Map<String, File> index = new ConcurrentHashMap<>();
+    private volatile Map<String, DirectoryManifest.Entry> manifestEntries;
     private final IndexationHandler<T> indexationHandler;
+    protected final DirectoryDaoOptions options;
+    private final Set<File> unsyncedFiles = ConcurrentHashMap.newKeySet();
+    private final Set<File> unsyncedDirectories = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService syncer;
+    private volatile GenericDaoError syncFailure;
+    // Writers to the same key are serialized, readers never take a lock
+    private final StripedLocks locks = new StripedLocks(LOCK_STRIPES);
+    private final DirectoryWatcher watcher;
+    // What this dao last left on disk for each key, so that the watcher can tell its own writes from external ones
+    private final Map<String, Stamp> ownWrites = new ConcurrentHashMap<>();
+    private volatile long rescannedAt;
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+    private volatile Duration indexDuration = Duration.ZERO;
+    // What the indexation handler can be given in place of entities while indexing
+    private List<IndexField> indexFields;
+
+    private static final int LOCK_STRIPES = 64;
+    // Longer than any single write should take, so a temp file this old has no writer left
+    private static final long STALE_TEMP_MILLIS = TimeUnit.HOURS.toMillis(1);
 
     public DirectoryDao(
             Class<T> type,
@@ -40,14 +76,54 @@ public class DirectoryDao<T> implements GenericDao<T>{
             File dir,
             ObjectMapper mapper,
             IndexationHandler<T> indexationHandler) {
+        this(type, keyGetter, keySetter, keyGenerator, dir, mapper, indexationHandler, DirectoryDaoOptions.defaults());
+    }
+
+    public DirectoryDao(
+            Class<T> type,
+            KeyGetter<T> keyGetter,
+            KeySetter<T> keySetter,
+            Supplier<String> keyGenerator,
+            File dir,
+            ObjectMapper mapper,
+            IndexationHandler<T> indexationHandler,
+            DirectoryDaoOptions options) {
+        this(type, keyGetter, keySetter, keyGenerator, dir, EntityCodec.json(mapper), indexationHandler, options);
+    }
+
+    public DirectoryDao(
+            Class<T> type,
+            KeyGetter<T> keyGetter,
+            KeySetter<T> keySetter,
+            Supplier<String> keyGenerator,
+            File dir,
+            EntityCodec codec,
+            IndexationHandler<T> indexationHandler,
+            DirectoryDaoOptions options) {
         this.type = type;
         this.keyGetter = keyGetter;
         this.keySetter = keySetter;
         this.keyGenerator = keyGenerator;
         this.dir = dir;
-        this.mapper = mapper;
+        this.codec = EntityCodec.compressed(codec, options.compression());
         this.indexationHandler = indexationHandler;
+        this.options = options;
+        this.watcher = options.watch() ? newWatcher() : null;
         index();
+        if (watcher != null) {
+            watcher.start();
+        }
+        if (options.durability() == Durability.PERIODIC) {
+            syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, MessageFormat.format("{0}-directory-syncer", ofType()));
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = options.syncInterval().toMillis();
+            syncer.scheduleWithFixedDelay(this::periodicSync, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            syncer = null;
+        }
     }
 
     @Override
@@ -71,11 +147,11 @@ public class DirectoryDao<T> implements GenericDao<T>{
         if (file == null) {
             throw new NotExistsException(key, ofType());
         }
-        try {
-            return mapper.readValue(file, type);
-        } catch (IOException e) {
-            throw new DaoFileReadError(file, type, e);
+        T entity = readIndexed(key, file);
+        if (entity == null) {
+            throw new NotExistsException(key, ofType());
         }
+        return entity;
     }
 
     @Override
@@ -92,120 +168,718 @@ public class DirectoryDao<T> implements GenericDao<T>{
 
     @Override
     public Stream<T> stream() {
-        return index.values().stream()
-                .map(file -> {
-                    try {
-                        return mapper.readValue(file, type);
-                    } catch (IOException e) {
-                        throw new DaoFileReadError(file, type, e);
-                    }
-                });
+        return index.entrySet().stream()
+                .map(entry -> readIndexed(entry.getKey(), entry.getValue()))
+                .filter(Objects::nonNull);
     }
 
     @Override
     public Stream<T> stream(Predicate<? super T> prediacte) {
-        return index.values().stream()
-                .map(file -> {
-                    try {
-                        return mapper.readValue(file, type);
-                    } catch (IOException e) {
-                        throw new DaoFileReadError(file, type, e);
-                    }
-                })
+        return stream()
                 .filter(prediacte);
     }
 
     @Override
     public T insert(T entity) throws AlreadyExistsException {
+        checkSynced();
         String key = keyGetter.get(entity);
-         if (key != null) {
-            if (exists(key)) {
-                throw new AlreadyExistsException(key, ofType());
-            }
-        } else {
+        if (key == null) {
             key = keyGenerator.get();
             keySetter.set(entity, key);
         }
-        File file = newFile(dir, key+".json");
+        locks.lock(key);
         try {
-            mapper.writeValue(file, entity);
-            index.put(key, file);
-        } catch (Throwable e) {
-            throw new DaoFileWriteError(file, type, key, e);
+            if (exists(key)) {
+                throw new AlreadyExistsException(key, ofType());
+            }
+            File file = fileOf(key);
+            try {
+                write(file, entity);
+                ownWrite(key, file);
+                index.put(key, file);
+                track(key, file, entity);
+            } catch (Throwable e) {
+                throw new DaoFileWriteError(file, type, key, e);
+            }
+            stored(key, entity);
+            written(List.of(file));
+        } finally {
+            locks.unlock(key);
         }
         return entity;
     }
 
     @Override
     public T update(T entity) throws NotExistsException, DataIntegrityViolationException {
+        checkSynced();
         String key = keyGetter.get(entity);
-        if (key != null) {
-            if (!exists(key)) {
-                throw new NotExistsException(key, ofType());
-            }
-        } else {
+        if (key == null) {
             throw new DataIntegrityViolationException(key, type, "No primary key defined during update");
         }
-        File file = index.get(key);
+        locks.lock(key);
         try {
-            mapper.writeValue(file, entity);
-        } catch (Throwable e) {
-            throw new DaoFileWriteError(file, type, key, e);
+            File file = index.get(key);
+            if (file == null) {
+                throw new NotExistsException(key, ofType());
+            }
+            try {
+                write(file, entity);
+                ownWrite(key, file);
+                track(key, file, entity);
+            } catch (Throwable e) {
+                throw new DaoFileWriteError(file, type, key, e);
+            }
+            stored(key, entity);
+            written(List.of(file));
+        } finally {
+            locks.unlock(key);
         }
         return entity;
     }
 
     @Override
     public T delete(String key) throws NotExistsException {
-        T deleted = get(key);
-        File file = index.get(key);
+        checkSynced();
+        locks.lock(key);
+        try {
+            T deleted = get(key);
+            File file = index.get(key);
+            deleteFile(key, file);
+            if (manifestEntries != null) {
+                manifestEntries.remove(key);
+            }
+            deleted(key);
+            removed(List.of(file));
+            return deleted;
+        } finally {
+            locks.unlock(key);
+        }
+    }
+
+    @Override
+    public List<T> insertAll(Collection<T> entities) throws AlreadyExistsException {
+        checkSynced();
+        // Keys are generated up front so that every key in the batch is locked, but only set once the batch is valid
+        Map<String, T> batch = new LinkedHashMap<>();
+        Map<String, T> generated = new HashMap<>();
+        for (T entity : entities) {
+            String key = keyGetter.get(entity);
+            if (key == null) {
+                key = keyGenerator.get();
+                generated.put(key, entity);
+            } else if (batch.containsKey(key)) {
+                throw new AlreadyExistsException(key, ofType());
+            }
+            batch.put(key, entity);
+        }
+        locks.lock(batch.keySet());
+        try {
+            for (String key : batch.keySet()) {
+                if (exists(key)) {
+                    throw new AlreadyExistsException(key, ofType());
+                }
+            }
+            generated.forEach((key, entity) -> keySetter.set(entity, key));
+            writeAll(batch);
+        } finally {
+            locks.unlock(batch.keySet());
+        }
+        return new ArrayList<>(entities);
+    }
+
+    @Override
+    public List<T> updateAll(Collection<T> entities) throws NotExistsException, DataIntegrityViolationException {
+        checkSynced();
+        Map<String, T> batch = new LinkedHashMap<>();
+        for (T entity : entities) {
+            String key = keyGetter.get(entity);
+            if (key == null) {
+                throw new DataIntegrityViolationException(key, type, "No primary key defined during update");
+            }
+            batch.put(key, entity);
+        }
+        locks.lock(batch.keySet());
+        try {
+            for (String key : batch.keySet()) {
+                if (!exists(key)) {
+                    throw new NotExistsException(key, ofType());
+                }
+            }
+            writeAll(batch);
+        } finally {
+            locks.unlock(batch.keySet());
+        }
+        return new ArrayList<>(entities);
+    }
+
+    @Override
+    public List<T> deleteAll(Collection<String> keys) throws NotExistsException {
+        checkSynced();
+        Set<String> batch = new LinkedHashSet<>(keys);
+        locks.lock(batch);
+        try {
+            for (String key : batch) {
+                if (!exists(key)) {
+                    throw new NotExistsException(key, ofType());
+                }
+            }
+            List<T> deleted = new ArrayList<>(batch.size());
+            for (String key : batch) {
+                deleted.add(get(key));
+            }
+            Map<String, File> removed = new LinkedHashMap<>();
+            try {
+                for (String key : batch) {
+                    File file = index.get(key);
+                    try {
+                        deleteFile(key, file);
+                    } catch (DaoFileWriteError err) {
+                        throw new BatchWriteError(ofType(), new ArrayList<>(removed.keySet()), err);
+                    }
+                    removed.put(key, file);
+                    if (manifestEntries != null) {
+                        manifestEntries.remove(key);
+                    }
+                    deleted(key);
+                }
+            } finally {
+                removed(removed.values());
+            }
+            return deleted;
+        } finally {
+            locks.unlock(batch);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (watcher != null) {
+            try {
+                watcher.close();
+            } catch (IOException err) {
+                throw new GenericDaoError(MessageFormat.format("Unable to stop watching {0}s in {1}", ofType(), dir), err);
+            }
+        }
+        if (syncer != null) {
+            syncer.shutdown();
+            sync();
+        }
+        saveManifest();
+    }
+
+    @Override
+    public void bindMeters(DaoMeters meters) {
+        meters.counter("file.bytes.read", "Bytes read from entity files", bytesRead::sum);
+        meters.counter("file.bytes.written", "Bytes written to entity files", bytesWritten::sum);
+        meters.duration("index.rebuild", "Time taken by the last index of the directory", () -> indexDuration);
+    }
+
+    public void sync() {
+        for (File file : new ArrayList<>(unsyncedFiles)) {
+            unsyncedFiles.remove(file);
+            force(file, false);
+        }
+        for (File directory : new ArrayList<>(unsyncedDirectories)) {
+            unsyncedDirectories.remove(directory);
+            force(directory, true);
+        }
+    }
+
+    File newFile(File dir, String name) {
+        return new File(dir, name);
+    }
+
+    // Where a new entity's file goes, in its shard when the directory is sharded
+    private File fileOf(String key) {
+        File directory = dir;
+        for (String shard : Shards.of(key, options.shardDepth())) {
+            directory = newFile(directory, shard);
+        }
+        return newFile(directory, fileName(key));
+    }
+
+    private String fileName(String key) {
+        return key + codec.extension();
+    }
+
+    private String keyOf(String fileName) {
+        return fileName.substring(0, fileName.length() - codec.extension().length());
+    }
+
+    private T read(File file) {
+        try {
+            T entity = codec.read(file, type);
+            bytesRead.add(file.length());
+            return entity;
+        } catch (IOException e) {
+            throw new DaoFileReadError(file, type, e);
+        }
+    }
+
+    private Map<String, Object> readFields(File file, List<IndexField> fields) {
+        try {
+            Map<String, Object> values = codec.readFields(file, fields);
+            if (values != null) {
+                bytesRead.add(file.length());
+            }
+            return values;
+        } catch (IOException e) {
+            throw new DaoFileReadError(file, type, e);
+        }
+    }
+
+    // Unindexed first so that readers who find the file gone know it was deleted
+    private void deleteFile(String key, File file) {
+        index.remove(key);
         try {
             Files.delete(file.toPath());
-            index.remove(key);
+            if (watcher != null) {
+                ownWrites.put(key, Stamp.DELETED);
+            }
         } catch (IOException e) {
+            index.put(key, file);
             throw new DaoFileWriteError(file, type, key, e);
         }
-        return deleted;
     }
 
-    File newFile(File dir, String name) {
-        return new File(dir, name);
+    // Null when the entity was deleted while it was being read
+    private T readIndexed(String key, File file) {
+        try {
+            return read(file);
+        } catch (DaoFileReadError err) {
+            if (index.get(key) != file) {
+                return null;
+            }
+            throw err;
+        }
+    }
+
+    private void writeAll(Map<String, T> batch) {
+        Map<String, File> written = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<String, T> entry : batch.entrySet()) {
+                String key = entry.getKey();
+                File file = index.get(key);
+                if (file == null) {
+                    file = fileOf(key);
+                }
+                try {
+                    write(file, entry.getValue());
+                    ownWrite(key, file);
+                    written.put(key, file);
+                    track(key, file, entry.getValue());
+                } catch (Throwable e) {
+                    // Callers that index the batch are told which of its entities reached the disk
+                    throw new BatchWriteError(ofType(), new ArrayList<>(written.keySet()), new DaoFileWriteError(file, type, key, e));
+                }
+                stored(key, entry.getValue());
+            }
+        } finally {
+            // Whatever reached the disk is indexed, even when a later write in the batch fails
+            index.putAll(written);
+        }
+        written(written.values());
+    }
+
+    private void write(File file, T entity) throws IOException {
+        // Readers and crashes only ever see the old or the new file, never a partly written one
+        if (options.isSharded()) {
+            makeDirectories(file.getParentFile());
+        }
+        File temp = newFile(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            codec.write(temp, entity);
+            bytesWritten.add(temp.length());
+            if (options.durability() == Durability.SYNC) {
+                force(temp, false);
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException err) {
+            discard(temp, err);
+            throw err;
+        }
+    }
+
+    // A write that fails takes its temp file with it rather than leaving it for the next load
+    private static void discard(File temp, Exception cause) {
+        try {
+            Files.deleteIfExists(temp.toPath());
+        } catch (IOException err) {
+            cause.addSuppressed(err);
+        }
+    }
+
+    // Shards are made as they are first needed, and synced into their parent like a new file would be
+    private void makeDirectories(File directory) throws IOException {
+        if (directory.equals(dir) || directory.isDirectory()) {
+            return;
+        }
+        makeDirectories(directory.getParentFile());
+        try {
+            Files.createDirectory(directory.toPath());
+        } catch (FileAlreadyExistsException err) {
+            // Made by a writer of another key in the same shard
+            return;
+        }
+        switch (options.durability()) {
+            case SYNC -> force(directory.getParentFile(), true);
+            case PERIODIC -> unsyncedDirectories.add(directory.getParentFile());
+            case ASYNC -> {
+            }
+        }
     }
 
-    private IndexedEntityCallback<T> indexedEntityCallback(String key, File file) {
-        return new IndexedEntityCallback<T>() {
-            @Override
-            public String getKey() {
-                return key;
+    private void written(Collection<File> files) {
+        switch (options.durability()) {
+            case SYNC -> directoriesOf(files).forEach(directory -> force(directory, true));
+            case PERIODIC -> {
+                unsyncedFiles.addAll(files);
+                unsyncedDirectories.addAll(directoriesOf(files));
             }
+            case ASYNC -> {
+            }
+        }
+    }
+
+    private void removed(Collection<File> files) {
+        switch (options.durability()) {
+            case SYNC -> directoriesOf(files).forEach(directory -> force(directory, true));
+            case PERIODIC -> unsyncedDirectories.addAll(directoriesOf(files));
+            case ASYNC -> {
+            }
+        }
+    }
+
+    private Set<File> directoriesOf(Collection<File> files) {
+        Set<File> directories = new HashSet<>();
+        files.forEach(file -> directories.add(file.getParentFile() == null ? dir : file.getParentFile()));
+        return directories;
+    }
+
+    private void force(File file, boolean directory) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), directory ? StandardOpenOption.READ : StandardOpenOption.WRITE)) {
+            channel.force(true);
+        } catch (NoSuchFileException err) {
+            // Deleted since it was written so there is nothing left to sync
+        } catch (IOException err) {
+            if (directory && isWindows()) {
+                // Directories cannot be opened for sync on Windows, where a rename is flushed with its file
+                return;
+            }
+            throw new GenericDaoError(MessageFormat.format("Unable to sync {0} file {1}", ofType(), file), err);
+        }
+    }
+
+    private static boolean isWindows() {
+        return System.getProperty("os.name", "").toLowerCase().startsWith("windows");
+    }
+
+    private void periodicSync() {
+        try {
+            sync();
+        } catch (GenericDaoError err) {
+            syncFailure = err;
+        }
+    }
 
-            @Override
-            public T getEntity() {
+    private void checkSynced() {
+        if (syncFailure != null) {
+            throw new GenericDaoError(MessageFormat.format(
+                    "Writes to {0}s in {1} may have been lost by a failed sync", ofType(), dir), syncFailure);
+        }
+    }
+
+    protected int weightOf(String key) {
+        File file = index.get(key);
+        return file == null ? 1 : (int) Math.max(1, Math.min(Integer.MAX_VALUE, file.length()));
+    }
+
+    protected Stream<String> keys() {
+        return index.keySet().stream();
+    }
+
+    public void saveManifest() {
+        if (manifestEntries != null) {
+            writeManifest(System.currentTimeMillis());
+        }
+    }
+
+    private void track(String key, File file, T entity) throws IOException {
+        if (manifestEntries == null) {
+            return;
+        }
+        BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        manifestEntries.put(key, new DirectoryManifest.Entry(
+                file.getName(),
+                attributes.lastModifiedTime().toMillis(),
+                attributes.size(),
+                indexationHandler == null ? null : indexationHandler.indexEntries(entity)));
+    }
+
+    private DirectoryManifest readManifest() {
+        File file = newFile(dir, DirectoryManifest.FILE_NAME);
+        if (!file.exists()) {
+            return DirectoryManifest.empty();
+        }
+        try {
+            DirectoryManifest manifest = codec.read(file, DirectoryManifest.class);
+            if (manifest == null || manifest.version() != DirectoryManifest.VERSION || manifest.entries() == null) {
+                return DirectoryManifest.empty();
+            }
+            return manifest;
+        } catch (IOException err) {
+            // The manifest only saves work, an unreadable one means every file is read again
+            return DirectoryManifest.empty();
+        }
+    }
+
+    private void writeManifest(long writtenAt) {
+        File file = newFile(dir, DirectoryManifest.FILE_NAME);
+        File temp = newFile(dir, DirectoryManifest.FILE_NAME + ".tmp");
+        try {
+            codec.write(temp, new DirectoryManifest(DirectoryManifest.VERSION, writtenAt, new HashMap<>(manifestEntries)));
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException err) {
+            discard(temp, err);
+            throw new GenericDaoError(MessageFormat.format("Unable to write the {0} manifest {1}", ofType(), file), err);
+        }
+    }
+
+    private DirectoryWatcher newWatcher() {
+        try {
+            return new DirectoryWatcher(
+                    dir.toPath(),
+                    options.shardDepth(),
+                    options.watchDebounce(),
+                    MessageFormat.format("{0}-directory-watcher", ofType()),
+                    this::refresh,
+                    this::rescan);
+        } catch (IOException err) {
+            throw new GenericDaoError(MessageFormat.format("Unable to watch {0}s in {1}", ofType(), dir), err);
+        }
+    }
+
+    private void ownWrite(String key, File file) {
+        if (watcher != null) {
+            ownWrites.put(key, Stamp.of(file));
+        }
+    }
+
+    private void refresh(Set<Path> paths) {
+        for (Path path : paths) {
+            String name = path.getFileName().toString();
+            if (name.endsWith(codec.extension())) {
+                refresh(keyOf(name), path.toFile());
+            }
+        }
+    }
+
+    // Events were lost so every file modified since the last look, and every key without a file, is refreshed
+    private void rescan() {
+        long since = rescannedAt - DirectoryManifest.MODIFIED_GRANULARITY;
+        rescannedAt = System.currentTimeMillis();
+        Set<String> found = new HashSet<>();
+        try {
+            for (Path directory : directories()) {
+                forEachIn(directory, path -> {
+                    File file = path.toFile();
+                    if (file.getName().endsWith(codec.extension())) {
+                        String key = keyOf(file.getName());
+                        found.add(key);
+                        if (!index.containsKey(key) || file.lastModified() >= since) {
+                            refresh(key, file);
+                        }
+                    }
+                });
+            }
+        } catch (IOException err) {
+            throw new GenericDaoError(MessageFormat.format("Unable to rescan {0}s in {1}", ofType(), dir), err);
+        }
+        for (Map.Entry<String, File> entry : new ArrayList<>(index.entrySet())) {
+            if (!found.contains(entry.getKey())) {
+                refresh(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    // Brings the key map, the subclass and then the indexation handler up to date with whatever is now in the file seen
+    private void refresh(String key, File seen) {
+        File file;
+        boolean exists;
+        locks.lock(key);
+        try {
+            Stamp stamp = Stamp.of(seen);
+            if (stamp.equals(ownWrites.remove(key))) {
+                return;
+            }
+            exists = stamp != Stamp.DELETED;
+            if (exists) {
+                File indexed = index.get(key);
+                file = seen.equals(indexed) ? indexed : seen;
+                T entity;
                 try {
-                    return mapper.readValue(file, type);
-                } catch (IOException e) {
-                    throw new DaoFileReadError(file, type);
+                    entity = read(file);
+                } catch (DaoFileReadError err) {
+                    // Still being written by whoever changed it, their next event brings the rest
+                    return;
                 }
+                index.put(key, file);
+                try {
+                    track(key, file, entity);
+                } catch (IOException err) {
+                    throw new DaoFileReadError(file, type, err);
+                }
+                stored(key, entity);
+            } else {
+                // Only the file the key is indexed to counts, not a copy it was moved away from
+                file = index.get(key);
+                if (!seen.equals(file)) {
+                    return;
+                }
+                index.remove(key);
+                if (manifestEntries != null) {
+                    manifestEntries.remove(key);
+                }
+                deleted(key);
             }
-        };
+        } finally {
+            locks.unlock(key);
+        }
+        // Outside the key lock, as writers through an IndexedDao take its lock before taking this one
+        if (indexationHandler != null) {
+            if (exists) {
+                indexationHandler.changed(new FileEntityCallback(key, file, null));
+            } else {
+                indexationHandler.removed(key);
+            }
+        }
+    }
+
+    // The file key changes with every atomic rename, so an external edit in place is told apart even within the same tick
+    private record Stamp(Object fileKey, long modified, long size) {
+        private static final Stamp DELETED = new Stamp(null, -1, -1);
+
+        private static Stamp of(File file) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+                return new Stamp(attributes.fileKey(), attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS), attributes.size());
+            } catch (IOException err) {
+                return DELETED;
+            }
+        }
+    }
+
+    private class FileEntityCallback implements IndexedEntityCallback<T> {
+        private final String key;
+        private final File file;
+        private final DirectoryManifest.Entry unchanged;
+        private T entity;
+        private Map<String, Object> fields;
+
+        private FileEntityCallback(String key, File file, DirectoryManifest.Entry unchanged) {
+            this.key = key;
+            this.file = file;
+            this.unchanged = unchanged;
+        }
+
+        @Override
+        public String getKey() {
+            return key;
+        }
+
+        @Override
+        public T getEntity() {
+            if (entity == null) {
+                entity = read(file);
+            }
+            return entity;
+        }
+
+        @Override
+        public boolean isModified() {
+            return unchanged == null;
+        }
+
+        // From the manifest when the file is unchanged, otherwise read from the indexed fields unless the entity has
+        // already been loaded for something else
+        @Override
+        public Map<String, Object> getIndexEntries() {
+            if (unchanged != null) {
+                return unchanged.indexEntries();
+            }
+            if (fields == null && entity == null && indexFields != null) {
+                fields = readFields(file, indexFields);
+            }
+            return fields;
+        }
+
+        private Map<String, Object> indexEntriesToSave() {
+            if (entity != null && indexationHandler != null) {
+                return indexationHandler.indexEntries(entity);
+            }
+            if (unchanged != null) {
+                return unchanged.indexEntries();
+            }
+            return fields == null ? null : DirectoryManifest.portable(fields);
+        }
+    }
+
+    protected <V> Map<String, V> newIndexMap() {
+        return new ConcurrentHashMap<>();
+    }
+
+    protected void indexed(IndexedEntityCallback<T> indexedEntityCallback) {
+    }
+
+    // Called with the key locked once an entity has been written
+    protected void stored(String key, T entity) {
+    }
+
+    // Called with the key locked once an entity has been deleted
+    protected void deleted(String key) {
     }
 
     protected void index() {
+        long indexedAt = System.currentTimeMillis();
+        long started = System.nanoTime();
+        rescannedAt = indexedAt;
         if (indexationHandler != null) {
             indexationHandler.start();
         }
-        Map<String, File> index = new HashMap<>();
-        try (Stream<Path> entries = Files.list(dir.toPath())) {
-            entries.forEach(path -> {
-                File file = path.toFile();
-                if (path.endsWith(".json")) {
-                    String key = file.getName().replaceFirst("[.][^.]+$", "");
-                    index.put(key, file);
-                    if (indexationHandler != null) {
-                        indexationHandler.accept(indexedEntityCallback(key, file));
-                    }
+        indexFields = indexationHandler == null ? null : indexationHandler.indexFields();
+        DirectoryManifest manifest = options.manifest() ? readManifest() : null;
+        Map<String, DirectoryManifest.Entry> manifestEntries = options.manifest() ? newIndexMap() : null;
+        Map<String, File> index = newIndexMap();
+        Consumer<Path> indexer = path -> {
+            File file = path.toFile();
+            if (file.getName().endsWith(codec.extension())) {
+                String key = keyOf(file.getName());
+                index.put(key, file);
+                if (manifest == null) {
+                    accept(new FileEntityCallback(key, file, null));
+                } else {
+                    BasicFileAttributes attributes = attributes(file);
+                    long modified = attributes.lastModifiedTime().toMillis();
+                    FileEntityCallback indexedEntityCallback = new FileEntityCallback(
+                            key, file, manifest.unchanged(key, modified, attributes.size()));
+                    accept(indexedEntityCallback);
+                    manifestEntries.put(key, new DirectoryManifest.Entry(
+                            file.getName(), modified, attributes.size(), indexedEntityCallback.indexEntriesToSave()));
                 }
-            });
+            } else if (isTemp(file.getName()) && isStale(file, indexedAt)) {
+                // Left behind by a write that never reached its rename, young ones may be another process writing
+                deleteTemp(file);
+            }
+        };
+        try {
+            if (options.isSharded()) {
+                // A listing splits poorly across threads, so the shards are shared out instead of the files in them
+                forEachEntry(directories().stream(), directory -> forEachIn(directory, indexer));
+            } else {
+                try (Stream<Path> entries = Files.list(dir.toPath())) {
+                    forEachEntry(entries, indexer);
+                }
+            }
             this.index = index;
         } catch (IOException err) {
             throw new GenericDaoError(MessageFormat.format("Unable to load {0}s from {1}", type, dir), err);
@@ -213,5 +887,101 @@ public class DirectoryDao<T> implements GenericDao<T>{
         if (indexationHandler != null) {
             indexationHandler.end();
         }
+        if (manifestEntries != null) {
+            this.manifestEntries = manifestEntries;
+            writeManifest(indexedAt);
+        }
+        indexDuration = Duration.ofNanos(System.nanoTime() - started);
+    }
+
+    // The root and every shard below it down to the shard depth, so that files not yet moved into a shard are still found
+    private List<Path> directories() throws IOException {
+        List<Path> directories = new ArrayList<>();
+        addDirectories(dir.toPath(), options.shardDepth(), directories);
+        return directories;
+    }
+
+    private static void addDirectories(Path directory, int depth, List<Path> directories) throws IOException {
+        directories.add(directory);
+        if (depth == 0) {
+            return;
+        }
+        List<Path> shards;
+        try (Stream<Path> entries = Files.list(directory)) {
+            shards = entries.filter(entry -> Shards.isShard(entry.getFileName().toString()) && Files.isDirectory(entry)).toList();
+        }
+        for (Path shard : shards) {
+            addDirectories(shard, depth - 1, directories);
+        }
+    }
+
+    private void forEachIn(Path directory, Consumer<Path> action) {
+        try (Stream<Path> entries = Files.list(directory)) {
+            entries.forEach(action);
+        } catch (IOException err) {
+            throw new GenericDaoError(MessageFormat.format("Unable to load {0}s from {1}", type, directory), err);
+        }
+    }
+
+    private void accept(IndexedEntityCallback<T> indexedEntityCallback) {
+        indexed(indexedEntityCallback);
+        if (indexationHandler != null) {
+            indexationHandler.accept(indexedEntityCallback);
+        }
+    }
+
+    private boolean isTemp(String name) {
+        return name.endsWith(codec.extension() + ".tmp") || name.equals(DirectoryManifest.FILE_NAME + ".tmp");
+    }
+
+    private boolean isStale(File file, long now) {
+        try {
+            return Files.getLastModifiedTime(file.toPath()).toMillis() < now - STALE_TEMP_MILLIS;
+        } catch (NoSuchFileException err) {
+            // Renamed into place since it was listed
+            return false;
+        } catch (IOException err) {
+            throw new DaoFileReadError(file, type, err);
+        }
+    }
+
+    private void deleteTemp(File file) {
+        try {
+            Files.deleteIfExists(file.toPath());
+        } catch (IOException err) {
+            throw new GenericDaoError(MessageFormat.format("Unable to delete the abandoned {0} file {1}", ofType(), file), err);
+        }
+    }
+
+    private BasicFileAttributes attributes(File file) {
+        try {
+            return Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+        } catch (IOException err) {
+            throw new DaoFileReadError(file, type, err);
+        }
+    }
+
+    private void forEachEntry(Stream<Path> entries, Consumer<Path> action) {
+        if (!options.isParallel()) {
+            entries.forEach(action);
+            return;
+        }
+        ForkJoinPool pool = new ForkJoinPool(options.parallelism());
+        try {
+            pool.submit(() -> entries.parallel().forEach(action)).get();
+        } catch (InterruptedException err) {
+            Thread.currentThread().interrupt();
+            throw new GenericDaoError(MessageFormat.format("Interrupted while loading {0}s from {1}", type, dir), err);
+        } catch (ExecutionException err) {
+            if (err.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (err.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw new GenericDaoError(MessageFormat.format("Unable to load {0}s from {1}", type, dir), err.getCause());
+        } finally {
+            pool.shutdown();
+        }
     }
 }
@@ -0,0 +1,100 @@
+package com.k2.plan_it_cli.dao;
+
+import java.text.MessageFormat;
+import java.time.Duration;
+
+public record DirectoryDaoOptions(
+        int parallelism,
+        boolean manifest,
+        Durability durability,
+        Duration syncInterval,
+        CacheOptions cache,
+        boolean watch,
+        Duration watchDebounce,
+        Compression compression,
+        int shardDepth) {
+
+    public DirectoryDaoOptions {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "The indexation parallelism must be at least 1 but was {0}", parallelism
+            ));
+        }
+        if (cache == null) {
+            throw new IllegalArgumentException("The cache options must be given");
+        }
+        if (durability == null) {
+            throw new IllegalArgumentException("The durability must be given");
+        }
+        if (durability == Durability.PERIODIC && (syncInterval == null || syncInterval.isZero() || syncInterval.isNegative())) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "Periodic durability needs a positive sync interval but was {0}", syncInterval
+            ));
+        }
+        if (compression == null) {
+            throw new IllegalArgumentException("The compression must be given");
+        }
+        if (shardDepth < 0 || shardDepth > Shards.MAX_DEPTH) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "The shard depth must be between 0 and {0} but was {1}", Shards.MAX_DEPTH, shardDepth
+            ));
+        }
+        if (watch && (watchDebounce == null || watchDebounce.isNegative())) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "Watching needs a debounce of zero or more but was {0}", watchDebounce
+            ));
+        }
+    }
+
+    public static DirectoryDaoOptions defaults() {
+        return new DirectoryDaoOptions(1, false, Durability.ASYNC, Duration.ofSeconds(1), CacheOptions.unbounded(), false, Duration.ofMillis(200), Compression.NONE, 0);
+    }
+
+    public DirectoryDaoOptions withParallelism(int parallelism) {
+        return new DirectoryDaoOptions(parallelism, manifest, durability, syncInterval, cache, watch, watchDebounce, compression, shardDepth);
+    }
+
+    public DirectoryDaoOptions withAvailableProcessors() {
+        return withParallelism(Runtime.getRuntime().availableProcessors());
+    }
+
+    public DirectoryDaoOptions withManifest(boolean manifest) {
+        return new DirectoryDaoOptions(parallelism, manifest, durability, syncInterval, cache, watch, watchDebounce, compression, shardDepth);
+    }
+
+    public DirectoryDaoOptions withDurability(Durability durability) {
+        return new DirectoryDaoOptions(parallelism, manifest, durability, syncInterval, cache, watch, watchDebounce, compression, shardDepth);
+    }
+
+    public DirectoryDaoOptions withSyncInterval(Duration syncInterval) {
+        return new DirectoryDaoOptions(parallelism, manifest, durability, syncInterval, cache, watch, watchDebounce, compression, shardDepth);
+    }
+
+    public DirectoryDaoOptions withCache(CacheOptions cache) {
+        return new DirectoryDaoOptions(parallelism, manifest, durability, syncInterval, cache, watch, watchDebounce, compression, shardDepth);
+    }
+
+    public DirectoryDaoOptions withWatch(boolean watch) {
+        return new DirectoryDaoOptions(parallelism, manifest, durability, syncInterval, cache, watch, watchDebounce, compression, shardDepth);
+    }
+
+    public DirectoryDaoOptions withWatchDebounce(Duration watchDebounce) {
+        return new DirectoryDaoOptions(parallelism, manifest, durability, syncInterval, cache, watch, watchDebounce, compression, shardDepth);
+    }
+
+    public DirectoryDaoOptions withCompression(Compression compression) {
+        return new DirectoryDaoOptions(parallelism, manifest, durability, syncInterval, cache, watch, watchDebounce, compression, shardDepth);
+    }
+
+    public DirectoryDaoOptions withShardDepth(int shardDepth) {
+        return new DirectoryDaoOptions(parallelism, manifest, durability, syncInterval, cache, watch, watchDebounce, compression, shardDepth);
+    }
+
+    public boolean isParallel() {
+        return parallelism > 1;
+    }
+
+    public boolean isSharded() {
+        return shardDepth > 0;
+    }
+}
@@ -0,0 +1,43 @@
+package com.k2.plan_it_cli.dao;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public record DirectoryManifest(int version, long writtenAt, Map<String, DirectoryManifest.Entry> entries) {
+    public static final int VERSION = 1;
+    public static final String FILE_NAME = ".dao-manifest";
+    // Coarsest modification time resolution we expect from a file system, some only keep it to the second or two
+    static final long MODIFIED_GRANULARITY = 2000;
+
+    public record Entry(String file, long modified, long size, Map<String, Object> indexEntries) {
+    }
+
+    public static DirectoryManifest empty() {
+        return new DirectoryManifest(VERSION, 0, new HashMap<>());
+    }
+
+    // The entries when every value reads back from the manifest as the same type, null when some would not
+    public static Map<String, Object> portable(Map<String, Object> indexEntries) {
+        for (Object indexKey : indexEntries.values()) {
+            if (indexKey != null
+                    && !(indexKey instanceof String)
+                    && !(indexKey instanceof Boolean)
+                    && !(indexKey instanceof Integer)) {
+                return null;
+            }
+        }
+        return indexEntries;
+    }
+
+    public Entry unchanged(String key, long modified, long size) {
+        Entry entry = entries.get(key);
+        if (entry == null || entry.modified() != modified || entry.size() != size) {
+            return null;
+        }
+        // A file modified too close to the manifest write could have changed again without its modified time moving
+        if (modified + MODIFIED_GRANULARITY > writtenAt) {
+            return null;
+        }
+        return entry;
+    }
+}
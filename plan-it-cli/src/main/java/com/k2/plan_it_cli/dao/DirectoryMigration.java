@@ -0,0 +1,135 @@
+package com.k2.plan_it_cli.dao;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Rewrites the entity files of directories from one codec to another in place.
+// Each file is written under its new name before the old one is deleted, so a migration cut short can simply be run again.
+public class DirectoryMigration {
+
+    public static int migrateAll(File root, EntityCodec from, EntityCodec to) {
+        try (Stream<Path> paths = Files.walk(root.toPath())) {
+            List<Path> dirs = paths.filter(Files::isDirectory).toList();
+            int migrated = 0;
+            for (Path dir : dirs) {
+                migrated += migrate(dir.toFile(), from, to);
+            }
+            return migrated;
+        } catch (IOException err) {
+            throw new GenericDaoError(MessageFormat.format("Unable to list the directories in {0}", root), err);
+        }
+    }
+
+    public static int migrate(File dir, EntityCodec from, EntityCodec to) {
+        if (from.extension().equals(to.extension())) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "Cannot migrate from {0} to {1} as they share the extension {2}", from.name(), to.name(), from.extension()));
+        }
+        List<File> files;
+        try (Stream<Path> entries = Files.list(dir.toPath())) {
+            files = entries.map(Path::toFile)
+                    .filter(file -> file.getName().endsWith(from.extension()))
+                    .toList();
+        } catch (IOException err) {
+            throw new GenericDaoError(MessageFormat.format("Unable to list the files in {0}", dir), err);
+        }
+        for (File file : files) {
+            String key = file.getName().substring(0, file.getName().length() - from.extension().length());
+            File target = new File(dir, key + to.extension());
+            File temp = new File(dir, target.getName() + ".tmp");
+            try {
+                to.write(temp, from.read(file, JsonNode.class));
+                Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                Files.delete(file.toPath());
+            } catch (IOException err) {
+                try {
+                    Files.deleteIfExists(temp.toPath());
+                } catch (IOException suppressed) {
+                    err.addSuppressed(suppressed);
+                }
+                throw new GenericDaoError(MessageFormat.format(
+                        "Unable to migrate {0} from {1} to {2}", file, from.name(), to.name()), err);
+            }
+        }
+        if (!files.isEmpty()) {
+            // It names the old files, so it is left for the next load to rebuild
+            try {
+                Files.deleteIfExists(new File(dir, DirectoryManifest.FILE_NAME).toPath());
+            } catch (IOException err) {
+                throw new GenericDaoError(MessageFormat.format("Unable to delete the manifest in {0}", dir), err);
+            }
+        }
+        return files.size();
+    }
+
+    // Moves every entity file in a directory to where a dao with the given shard depth would put it, then removes the
+    // shards left empty. Files keep their names, modification times and sizes, so a manifest stays good, and each
+    // is moved in one rename so a reshard cut short can simply be run again.
+    public static int reshard(File dir, EntityCodec codec, int depth) {
+        if (depth < 0 || depth > Shards.MAX_DEPTH) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "The shard depth must be between 0 and {0} but was {1}", Shards.MAX_DEPTH, depth));
+        }
+        List<Path> files = new ArrayList<>();
+        List<Path> shards = new ArrayList<>();
+        collect(dir.toPath(), Shards.MAX_DEPTH, codec.extension(), files, shards);
+        int moved = 0;
+        for (Path file : files) {
+            String name = file.getFileName().toString();
+            Path target = dir.toPath();
+            for (String shard : Shards.of(name.substring(0, name.length() - codec.extension().length()), depth)) {
+                target = target.resolve(shard);
+            }
+            target = target.resolve(name);
+            if (target.equals(file)) {
+                continue;
+            }
+            try {
+                Files.createDirectories(target.getParent());
+                Files.move(file, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException err) {
+                throw new GenericDaoError(MessageFormat.format("Unable to move {0} to {1}", file, target), err);
+            }
+            moved++;
+        }
+        // Deepest first, so that a shard left holding only empty shards goes too
+        for (int i = shards.size() - 1; i >= 0; i--) {
+            Path shard = shards.get(i);
+            try (Stream<Path> entries = Files.list(shard)) {
+                if (entries.findAny().isEmpty()) {
+                    Files.delete(shard);
+                }
+            } catch (IOException err) {
+                throw new GenericDaoError(MessageFormat.format("Unable to remove the empty shard {0}", shard), err);
+            }
+        }
+        return moved;
+    }
+
+    private static void collect(Path dir, int depth, String extension, List<Path> files, List<Path> shards) {
+        List<Path> entries;
+        try (Stream<Path> list = Files.list(dir)) {
+            entries = list.toList();
+        } catch (IOException err) {
+            throw new GenericDaoError(MessageFormat.format("Unable to list the files in {0}", dir), err);
+        }
+        for (Path entry : entries) {
+            String name = entry.getFileName().toString();
+            if (name.endsWith(extension)) {
+                files.add(entry);
+            } else if (depth > 0 && Shards.isShard(name) && Files.isDirectory(entry)) {
+                shards.add(entry);
+                collect(entry, depth - 1, extension, files, shards);
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.k2.plan_it_cli.dao;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.text.MessageFormat;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Reports the files changed in a directory and the shard directories below it, once a burst of events has gone quiet
+@Slf4j
+class DirectoryWatcher implements Closeable {
+    // A directory written to without pause is still refreshed after this many debounce intervals
+    static final int MAX_DEBOUNCES = 4;
+
+    private final Path dir;
+    private final WatchService watchService;
+    private final Duration debounce;
+    private final Consumer<Set<Path>> changed;
+    private final Runnable overflowed;
+    private final Thread thread;
+    // How many levels of shards lie below each watched directory
+    private final Map<WatchKey, Integer> depths = new HashMap<>();
+
+    // Registered straight away so that nothing changed between now and start() is missed
+    DirectoryWatcher(Path dir, int depth, Duration debounce, String name, Consumer<Set<Path>> changed, Runnable overflowed) throws IOException {
+        this.dir = dir;
+        this.debounce = debounce;
+        this.changed = changed;
+        this.overflowed = overflowed;
+        this.watchService = FileSystems.getDefault().newWatchService();
+        try {
+            register(dir, depth, null);
+        } catch (IOException | RuntimeException err) {
+            watchService.close();
+            throw err;
+        }
+        this.thread = new Thread(this::run, name);
+        this.thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                Set<Path> names = new LinkedHashSet<>();
+                boolean overflow = collect(watchService.take(), names);
+                long deadline = System.nanoTime() + debounce.toNanos() * MAX_DEBOUNCES;
+                WatchKey next;
+                while ((next = watchService.poll(Math.min(debounce.toNanos(), Math.max(0, deadline - System.nanoTime())), TimeUnit.NANOSECONDS)) != null) {
+                    overflow |= collect(next, names);
+                }
+                try {
+                    if (overflow) {
+                        overflowed.run();
+                    } else {
+                        changed.accept(names);
+                    }
+                } catch (RuntimeException err) {
+                    // A failed refresh must not stop later changes from being seen
+                    log.warn(MessageFormat.format("Unable to apply the external changes to {0}", dir), err);
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException err) {
+            // Closed with the dao
+        }
+    }
+
+    private boolean collect(WatchKey key, Set<Path> names) {
+        boolean overflow = false;
+        Path watched = (Path) key.watchable();
+        int depth = depths.getOrDefault(key, 0);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                overflow = true;
+                continue;
+            }
+            Path path = watched.resolve((Path) event.context());
+            if (depth > 0 && event.kind() == StandardWatchEventKinds.ENTRY_CREATE
+                    && Shards.isShard(path.getFileName().toString()) && Files.isDirectory(path)) {
+                try {
+                    register(path, depth - 1, names);
+                } catch (IOException err) {
+                    overflow = true;
+                }
+            } else {
+                names.add(path);
+            }
+        }
+        if (!key.reset()) {
+            depths.remove(key);
+        }
+        return overflow;
+    }
+
+    // A new shard may have been filled before it was registered, so whatever it already holds is reported as changed
+    private void register(Path dir, int depth, Set<Path> existing) throws IOException {
+        depths.put(dir.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE), depth);
+        if (depth == 0 && existing == null) {
+            return;
+        }
+        List<Path> entries;
+        try (Stream<Path> list = Files.list(dir)) {
+            entries = list.toList();
+        }
+        for (Path entry : entries) {
+            if (depth > 0 && Shards.isShard(entry.getFileName().toString()) && Files.isDirectory(entry)) {
+                register(entry, depth - 1, existing);
+            } else if (existing != null) {
+                existing.add(entry);
+            }
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.k2.plan_it_cli.dao;
+
+public enum Durability {
+    // Atomic renames only, the operating system decides when data reaches the disk
+    ASYNC,
+    // Every write is forced to disk, with its directory, before it returns
+    SYNC,
+    // Writes are forced to disk together, once per sync interval
+    PERIODIC
+}
@@ -0,0 +1,64 @@
+package com.k2.plan_it_cli.dao;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.text.MessageFormat;
+import java.util.List;
+import java.util.Map;
+
+// How a DirectoryDao turns entities into files and back, and the extension that tells its files apart
+public interface EntityCodec {
+    String name();
+    String extension();
+    <T> T read(File file, Class<T> type) throws IOException;
+    void write(File file, Object value) throws IOException;
+    // Closing the streams is left to the caller
+    <T> T read(InputStream in, Class<T> type) throws IOException;
+    void write(OutputStream out, Object value) throws IOException;
+
+    // The value of each field by its alias, null for a field that is missing, or null when this codec cannot read
+    // fields on their own
+    default Map<String, Object> readFields(File file, List<IndexField> fields) throws IOException {
+        return null;
+    }
+
+    default Map<String, Object> readFields(InputStream in, List<IndexField> fields) throws IOException {
+        return null;
+    }
+
+    static EntityCodec json(ObjectMapper mapper) {
+        return new JacksonCodec("json", ".json", mapper);
+    }
+
+    static EntityCodec smile() {
+        return new JacksonCodec("smile", ".smile", new SmileMapper());
+    }
+
+    static EntityCodec cbor() {
+        return new JacksonCodec("cbor", ".cbor", new CBORMapper());
+    }
+
+    // Always wrapped, so that files written while compression was on are still read once it is turned off
+    static EntityCodec compressed(EntityCodec codec, Compression compression) {
+        if (codec instanceof CompressedCodec wrapped) {
+            return new CompressedCodec(wrapped.codec(), compression);
+        }
+        return new CompressedCodec(codec, compression);
+    }
+
+    static EntityCodec named(String name) {
+        return switch (name.toLowerCase()) {
+            case "json" -> compressed(json(new ObjectMapper()), Compression.NONE);
+            case "smile" -> compressed(smile(), Compression.NONE);
+            case "cbor" -> compressed(cbor(), Compression.NONE);
+            default -> throw new IllegalArgumentException(MessageFormat.format(
+                    "Unknown codec {0}, expected one of json, smile or cbor", name));
+        };
+    }
+}
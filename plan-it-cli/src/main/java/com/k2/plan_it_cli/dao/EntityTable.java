@@ -0,0 +1,111 @@
+package com.k2.plan_it_cli.dao;
+
+import org.roaringbitmap.RoaringBitmap;
+
+import java.text.MessageFormat;
+
+// Gives every indexed entity a dense int ordinal, reusing the ordinals of removed entities.
+// The writer's table is handed to readers as snapshots that can only get entities by ordinal.
+// A table of keys only holds no entities and reads each one from the dao whenever it is asked for.
+class EntityTable<T> {
+    private final PagedArray<String> keys;
+    private final PagedArray<T> entities;
+    private final OrdinalHashTable ordinals;
+    private final RoaringBitmap free;
+    private int next;
+    private int size;
+
+    EntityTable(boolean keysOnly) {
+        this.keys = new PagedArray<>();
+        this.entities = keysOnly ? null : new PagedArray<>();
+        this.ordinals = new OrdinalHashTable(keys);
+        this.free = new RoaringBitmap();
+    }
+
+    private EntityTable(PagedArray<String> keys, PagedArray<T> entities, int size) {
+        this.keys = keys;
+        this.entities = entities;
+        this.ordinals = null;
+        this.free = null;
+        this.size = size;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int ordinal(String key) {
+        return ordinals.get(key);
+    }
+
+    // The entity may be null to be loaded from the dao when first needed
+    int add(String key, T entity) {
+        int ordinal = ordinals.get(key);
+        if (ordinal < 0) {
+            if (free.isEmpty()) {
+                ordinal = next++;
+            } else {
+                ordinal = free.first();
+                free.remove(ordinal);
+            }
+            keys.set(ordinal, key);
+            ordinals.put(ordinal);
+            size++;
+        }
+        if (entities != null) {
+            entities.set(ordinal, entity);
+        }
+        return ordinal;
+    }
+
+    void set(int ordinal, T entity) {
+        if (entities != null) {
+            entities.set(ordinal, entity);
+        }
+    }
+
+    void remove(int ordinal) {
+        ordinals.remove(keys.get(ordinal), ordinal);
+        keys.set(ordinal, null);
+        if (entities != null) {
+            entities.set(ordinal, null);
+        }
+        free.add(ordinal);
+        size--;
+    }
+
+    String key(int ordinal) {
+        return keys.get(ordinal);
+    }
+
+    // Null once the ordinal has been removed
+    T get(int ordinal, GenericDao<T> dao) {
+        String key = keys.get(ordinal);
+        if (key == null) {
+            return null;
+        }
+        if (entities == null) {
+            try {
+                return dao.get(key);
+            } catch (NotExistsException err) {
+                // Deleted since it was indexed, and about to be unindexed
+                return null;
+            }
+        }
+        T entity = entities.get(ordinal);
+        if (entity == null) {
+            try {
+                entity = dao.get(key);
+            } catch (NotExistsException err) {
+                throw new GenericDaoError(MessageFormat.format(
+                        "The indexed {0} with key {1} no longer exists", dao.ofType(), key), err);
+            }
+            entities.cache(ordinal, entity);
+        }
+        return entity;
+    }
+
+    EntityTable<T> snapshot() {
+        return new EntityTable<>(keys.snapshot(), entities == null ? null : entities.snapshot(), size);
+    }
+}
@@ -1,9 +1,13 @@
 package com.k2.plan_it_cli.dao;
 
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 
-public interface GenericDao<T> {
+public interface GenericDao<T> extends Closeable {
     String ofType();
     KeyGetter<T> keyGetter();
     boolean exists(String key);
@@ -11,7 +15,44 @@ public interface GenericDao<T> {
     T get(Predicate<? super T> predicate) throws NotExistsException, NotUniqueException;
     Stream<T> stream();
     Stream<T> stream(Predicate<? super T> predicate);
+
+    // Only the named fields of each entity found, which a dao may be able to give without building the entities
+    default Stream<Projection> stream(Predicate<? super T> predicate, List<? extends IndexGetter<? super T, ?>> fields) {
+        KeyGetter<T> keyGetter = keyGetter();
+        return stream(predicate).map(entity -> Projection.of(keyGetter.get(entity), entity, fields));
+    }
     T insert(T entity) throws AlreadyExistsException;
     T update(T entity) throws NotExistsException, DataIntegrityViolationException;
     T delete(String key) throws NotExistsException;
+
+    default List<T> insertAll(Collection<T> entities) throws AlreadyExistsException {
+        List<T> inserted = new ArrayList<>(entities.size());
+        for (T entity : entities) {
+            inserted.add(insert(entity));
+        }
+        return inserted;
+    }
+
+    default List<T> updateAll(Collection<T> entities) throws NotExistsException, DataIntegrityViolationException {
+        List<T> updated = new ArrayList<>(entities.size());
+        for (T entity : entities) {
+            updated.add(update(entity));
+        }
+        return updated;
+    }
+
+    default List<T> deleteAll(Collection<String> keys) throws NotExistsException {
+        List<T> deleted = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            deleted.add(delete(key));
+        }
+        return deleted;
+    }
+
+    default void bindMeters(DaoMeters meters) {
+    }
+
+    @Override
+    default void close() {
+    }
 }
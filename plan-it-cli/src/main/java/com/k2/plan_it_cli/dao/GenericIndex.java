@@ -1,16 +1,83 @@
 package com.k2.plan_it_cli.dao;
 
+import com.fasterxml.jackson.core.JsonPointer;
 import com.k2.plan_it_cli.dao.predicate.And;
 import com.k2.plan_it_cli.dao.predicate.IndexGetterEquals;
+import com.k2.plan_it_cli.dao.predicate.IndexGetterIn;
+import com.k2.plan_it_cli.dao.predicate.IndexGetterRange;
+import com.k2.plan_it_cli.dao.predicate.IndexGetterStartsWith;
+import com.k2.plan_it_cli.dao.predicate.Or;
 
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.function.Predicate;
 
-public record GenericIndex<T>(String alias, IndexGetter<T, ?> indexGetter, boolean isUnique) {
+// An index may also name the field its getter reads, as a JSON pointer such as "/owner/name" with the type the getter
+// returns. Indexes can then be built from that field alone, without reading whole entities.
+// An index that stores fields covers them and its own field, so projections onto those fields need no entities.
+public record GenericIndex<T>(String alias, IndexGetter<T, ?> indexGetter, boolean isUnique, boolean isSorted, JsonPointer field, Class<?> fieldType, List<StoredField<T>> stored) {
+
+    public GenericIndex {
+        if (field != null && (field.matches() || fieldType == null)) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "The {0} index field must name a property and give its type but was {1} of {2}", alias, field, fieldType
+            ));
+        }
+        stored = List.copyOf(stored);
+    }
+
+    public GenericIndex(String alias, IndexGetter<T, ?> indexGetter, boolean isUnique, boolean isSorted, JsonPointer field, Class<?> fieldType) {
+        this(alias, indexGetter, isUnique, isSorted, field, fieldType, List.of());
+    }
+
+    public GenericIndex(String alias, IndexGetter<T, ?> indexGetter, boolean isUnique, boolean isSorted) {
+        this(alias, indexGetter, isUnique, isSorted, null, null);
+    }
+
+    public GenericIndex(String alias, IndexGetter<T, ?> indexGetter, boolean isUnique) {
+        this(alias, indexGetter, isUnique, false);
+    }
+
+    public static <T, F extends Comparable<? super F>> GenericIndex<T> sorted(String alias, IndexGetter<T, F> indexGetter, boolean isUnique) {
+        return new GenericIndex<>(alias, indexGetter, isUnique, true);
+    }
+
+    public GenericIndex<T> withField(String field, Class<?> fieldType) {
+        return new GenericIndex<>(alias, indexGetter, isUnique, isSorted, JsonPointer.compile(field), fieldType, stored);
+    }
+
+    @SafeVarargs
+    public final GenericIndex<T> withStored(StoredField<T> ... stored) {
+        // Copied field by field, as handing the varargs array on is what could pollute the heap
+        List<StoredField<T>> fields = new ArrayList<>(stored.length);
+        for (StoredField<T> storedField : stored) {
+            fields.add(storedField);
+        }
+        return new GenericIndex<>(alias, indexGetter, isUnique, isSorted, field, fieldType, List.copyOf(fields));
+    }
+
+    public boolean isCovering() {
+        return !stored.isEmpty();
+    }
+
+    public IndexField indexField() {
+        return field == null ? null : new IndexField(alias, field, fieldType);
+    }
 
     public boolean supports(Predicate<? super T> predicate) {
         if (predicate instanceof IndexGetterEquals<? super T> indexGetterEquals) {
             return indexGetter.equals(indexGetterEquals.getter());
         };
+        if (predicate instanceof IndexGetterIn<? super T> indexGetterIn) {
+            return indexGetter.equals(indexGetterIn.getter());
+        };
+        if (predicate instanceof IndexGetterRange<? super T> indexGetterRange) {
+            return isSorted && indexGetter.equals(indexGetterRange.getter());
+        };
+        if (predicate instanceof IndexGetterStartsWith<? super T> indexGetterStartsWith) {
+            return isSorted && indexGetter.equals(indexGetterStartsWith.getter());
+        };
         if (predicate instanceof And<? super T> and) {
             for (Predicate<? super T> childPredicate : and.predicates()) {
                 if (supports(childPredicate)) {
@@ -19,6 +86,14 @@ public record GenericIndex<T>(String alias, IndexGetter<T, ?> indexGetter, boole
             }
             return false;
         };
+        if (predicate instanceof Or<? super T> or) {
+            for (Predicate<? super T> childPredicate : or.predicates()) {
+                if (!supports(childPredicate)) {
+                    return false;
+                }
+            }
+            return or.predicates().length > 0;
+        };
         return false;
     }
 
@@ -27,6 +102,9 @@ public record GenericIndex<T>(String alias, IndexGetter<T, ?> indexGetter, boole
         return "GenericIndex{" +
                 "alias='" + alias + '\'' +
                 ", isUnique=" + isUnique +
+                ", isSorted=" + isSorted +
+                ", field=" + field +
+                ", stored=" + stored.stream().map(StoredField::alias).toList() +
                 '}';
     }
 }
@@ -0,0 +1,90 @@
+package com.k2.plan_it_cli.dao;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// Gzip members written and read in memory, reusing a deflater and inflater per thread rather than the native
+// state that every GZIP stream allocates for itself
+class GzipFrames {
+    static final byte[] MAGIC = {(byte) 0x1f, (byte) 0x8b};
+
+    private static final int HEADER = 10;
+    private static final int TRAILER = 8;
+    private static final byte DEFLATE = 8;
+    // Deflate cannot expand data by more than about 1032 to 1, so a larger size in the trailer is corrupt
+    private static final long MAX_RATIO = 1032;
+    private static final byte[] HEADER_BYTES = {MAGIC[0], MAGIC[1], DEFLATE, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final ThreadLocal<Deflater> DEFLATERS = ThreadLocal.withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+    private static final ThreadLocal<Inflater> INFLATERS = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    static void write(byte[] raw, int length, OutputStream out) throws IOException {
+        Deflater deflater = DEFLATERS.get();
+        deflater.reset();
+        deflater.setInput(raw, 0, length);
+        deflater.finish();
+        out.write(HEADER_BYTES);
+        byte[] buffer = new byte[Math.max(64, length / 2)];
+        while (!deflater.finished()) {
+            out.write(buffer, 0, deflater.deflate(buffer));
+        }
+        CRC32 crc = new CRC32();
+        crc.update(raw, 0, length);
+        writeIntLE(out, (int) crc.getValue());
+        writeIntLE(out, length);
+    }
+
+    // Null for members with optional header fields, which are left to GZIPInputStream
+    static byte[] read(byte[] framed) throws IOException {
+        if (framed.length < HEADER + TRAILER || framed[2] != DEFLATE || framed[3] != 0) {
+            return null;
+        }
+        int size = readIntLE(framed, framed.length - 4);
+        if (size < 0 || size >= Integer.MAX_VALUE - 8 || size > (framed.length - HEADER - TRAILER) * MAX_RATIO) {
+            throw new IOException("Corrupt gzip member");
+        }
+        // One spare byte lets the inflater reach the end of the stream, anything left in it means the size was wrong
+        byte[] raw = new byte[size + 1];
+        Inflater inflater = INFLATERS.get();
+        inflater.reset();
+        inflater.setInput(framed, HEADER, framed.length - HEADER - TRAILER);
+        int inflated = 0;
+        try {
+            while (!inflater.finished() && inflated < raw.length) {
+                int read = inflater.inflate(raw, inflated, raw.length - inflated);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                inflated += read;
+            }
+        } catch (DataFormatException err) {
+            throw new IOException("Corrupt deflate data", err);
+        }
+        if (!inflater.finished() || inflated != size) {
+            throw new IOException("Truncated or oversized gzip member");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(raw, 0, size);
+        if ((int) crc.getValue() != readIntLE(framed, framed.length - TRAILER)) {
+            throw new IOException("Gzip checksum mismatch");
+        }
+        return raw;
+    }
+
+    private static void writeIntLE(OutputStream out, int value) throws IOException {
+        out.write(value);
+        out.write(value >>> 8);
+        out.write(value >>> 16);
+        out.write(value >>> 24);
+    }
+
+    private static int readIntLE(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff)
+                | (bytes[offset + 1] & 0xff) << 8
+                | (bytes[offset + 2] & 0xff) << 16
+                | (bytes[offset + 3] & 0xff) << 24;
+    }
+}
@@ -0,0 +1,117 @@
+package com.k2.plan_it_cli.dao;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+class HeapPressureListener implements NotificationListener {
+    private final Runnable onPressure;
+    private final Runnable onRelief;
+    private final BooleanSupplier belowThreshold;
+    private List<MemoryPoolMXBean> pools = List.of();
+
+    // What each pool's threshold was before any listener set it, and what every registered listener asked for
+    private record PoolThresholds(long original, Map<HeapPressureListener, Long> requested) {
+        PoolThresholds(long original) {
+            this(original, new IdentityHashMap<>());
+        }
+    }
+
+    private static final Map<String, PoolThresholds> THRESHOLDS = new HashMap<>();
+
+    HeapPressureListener(Runnable onPressure, Runnable onRelief, BooleanSupplier belowThreshold) {
+        this.onPressure = onPressure;
+        this.onRelief = onRelief;
+        this.belowThreshold = belowThreshold;
+    }
+
+    static HeapPressureListener register(double threshold, Runnable onPressure, Runnable onRelief) {
+        List<MemoryPoolMXBean> pools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isUsageThresholdSupported() && pool.getUsage().getMax() > 0) {
+                pools.add(pool);
+            }
+        }
+        HeapPressureListener listener = new HeapPressureListener(onPressure, onRelief,
+                () -> pools.stream().allMatch(pool -> pool.getUsage().getUsed() < pool.getUsageThreshold()));
+        synchronized (THRESHOLDS) {
+            listener.pools = pools;
+            for (MemoryPoolMXBean pool : pools) {
+                THRESHOLDS.computeIfAbsent(pool.getName(), name -> new PoolThresholds(pool.getUsageThreshold()))
+                        .requested().put(listener, (long) (pool.getUsage().getMax() * threshold));
+                applyThreshold(pool);
+            }
+        }
+        emitters().forEach(emitter -> emitter.addNotificationListener(listener, null, null));
+        return listener;
+    }
+
+    void unregister() {
+        for (NotificationEmitter emitter : emitters()) {
+            try {
+                emitter.removeNotificationListener(this);
+            } catch (ListenerNotFoundException err) {
+                // Already gone
+            }
+        }
+        synchronized (THRESHOLDS) {
+            for (MemoryPoolMXBean pool : pools) {
+                PoolThresholds thresholds = THRESHOLDS.get(pool.getName());
+                if (thresholds != null && thresholds.requested().remove(this) != null) {
+                    applyThreshold(pool);
+                }
+            }
+            pools = List.of();
+        }
+    }
+
+    // Thresholds are shared by the whole JVM so the lowest one asked for wins, and the pool gets back the one it had
+    // before once nobody asks for one
+    private static void applyThreshold(MemoryPoolMXBean pool) {
+        PoolThresholds thresholds = THRESHOLDS.get(pool.getName());
+        if (thresholds.requested().isEmpty()) {
+            THRESHOLDS.remove(pool.getName());
+            pool.setUsageThreshold(thresholds.original());
+            return;
+        }
+        long lowest = Collections.min(thresholds.requested().values());
+        pool.setUsageThreshold(thresholds.original() == 0 ? lowest : Math.min(lowest, thresholds.original()));
+    }
+
+    // No notification says that usage has dropped back, so it is checked after each collection
+    @Override
+    public void handleNotification(Notification notification, Object handback) {
+        if (MemoryNotificationInfo.MEMORY_THRESHOLD_EXCEEDED.equals(notification.getType())) {
+            onPressure.run();
+        } else if (GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())
+                && belowThreshold.getAsBoolean()) {
+            onRelief.run();
+        }
+    }
+
+    private static List<NotificationEmitter> emitters() {
+        List<NotificationEmitter> emitters = new ArrayList<>();
+        emitters.add((NotificationEmitter) ManagementFactory.getMemoryMXBean());
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (collector instanceof NotificationEmitter emitter) {
+                emitters.add(emitter);
+            }
+        }
+        return emitters;
+    }
+}
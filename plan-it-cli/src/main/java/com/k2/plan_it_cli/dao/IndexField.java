@@ -0,0 +1,7 @@
+package com.k2.plan_it_cli.dao;
+
+import com.fasterxml.jackson.core.JsonPointer;
+
+// Where an index finds its value in an entity's stored form, so that it can be read without building the entity
+public record IndexField(String alias, JsonPointer path, Class<?> type) {
+}
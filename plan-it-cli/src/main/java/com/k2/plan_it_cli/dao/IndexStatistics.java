@@ -0,0 +1,8 @@
+package com.k2.plan_it_cli.dao;
+
+public record IndexStatistics(String alias, boolean isUnique, boolean isSorted, long entries, long distinctValues) {
+
+    public double averagePostingSize() {
+        return distinctValues == 0 ? 0 : (double) entries / distinctValues;
+    }
+}
@@ -1,7 +1,26 @@
 package com.k2.plan_it_cli.dao;
 
+import java.util.List;
+import java.util.Map;
+
 public interface IndexationHandler<T> {
     void start();
     void accept(IndexedEntityCallback<T> indexedEntityCallback);
     void end();
+
+    default Map<String, Object> indexEntries(T entity) {
+        return null;
+    }
+
+    // Fields a dao can read the index entries from itself rather than handing over whole entities, null when it cannot
+    default List<IndexField> indexFields() {
+        return null;
+    }
+
+    // Changes made to the storage by something other than the dao, outside of start and end
+    default void changed(IndexedEntityCallback<T> indexedEntityCallback) {
+    }
+
+    default void removed(String key) {
+    }
 }
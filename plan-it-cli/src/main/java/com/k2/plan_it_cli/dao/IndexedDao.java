@@ -2,29 +2,299 @@ package com.k2.plan_it_cli.dao;
 
 import com.k2.plan_it_cli.dao.predicate.And;
 import com.k2.plan_it_cli.dao.predicate.IndexGetterEquals;
+import com.k2.plan_it_cli.dao.predicate.IndexGetterIn;
+import com.k2.plan_it_cli.dao.predicate.IndexGetterRange;
+import com.k2.plan_it_cli.dao.predicate.IndexGetterStartsWith;
+import com.k2.plan_it_cli.dao.predicate.Or;
+import org.pcollections.HashTreePMap;
+import org.pcollections.PMap;
+import org.pcollections.TreePMap;
+import org.roaringbitmap.RoaringBitmap;
 
 import java.text.MessageFormat;
 import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class IndexedDao<T> implements GenericDao<T> {
     private final GenericDao<T> dao;
     private final List<GenericIndex<T>> indexes = new ArrayList<>();
-    private Map<GenericIndex<T>,Map<Object, T>> uniqueIndexes = new HashMap<>();
-    private Map<GenericIndex<T>,Map<Object, List<T>>> rangeIndexes = new HashMap<>();
+    private final Set<String> aliases = new HashSet<>();
+    private final IndexedDaoOptions options;
+    // Null unless every index and stored field names the field it reads
+    private final List<IndexField> indexFields;
+    // The alias each field that covering indexes store is kept under
+    private final Map<IndexGetter<?, ?>, String> covered = new HashMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // Writers change their own state under the lock and publish a snapshot of it, so readers never wait
+    private IndexState<T> writerState;
+    private volatile IndexState<T> state;
+    private final LongAdder indexHits = new LongAdder();
+    private final LongAdder scans = new LongAdder();
+    private final LongAdder coveredHits = new LongAdder();
+
+    // Selectivities assumed for ranges and prefixes, which cannot be counted without walking them
+    private static final double RANGE_SELECTIVITY = 1.0 / 3;
+    private static final double BETWEEN_SELECTIVITY = 1.0 / 4;
+    private static final double PREFIX_SELECTIVITY = 1.0 / 10;
+    // Another index is only intersected when its postings are within this factor of the driving ones
+    private static final long INTERSECTION_FACTOR = 16;
 
     public IndexedDao(Function<IndexationHandler<T>,GenericDao<T>> daoSupplier, GenericIndex<T> ... indexes) {
+        this(daoSupplier, IndexedDaoOptions.defaults(), indexes);
+    }
+
+    public IndexedDao(Function<IndexationHandler<T>,GenericDao<T>> daoSupplier, IndexedDaoOptions options, GenericIndex<T> ... indexes) {
+        this.options = options;
         Collections.addAll(this.indexes, indexes);
-        this.dao = daoSupplier.apply(new ThisIndexationHandler<>(this));
+        List<IndexField> fields = new ArrayList<>();
+        this.indexes.forEach(index -> {
+            alias(index.alias());
+            fields.add(index.indexField());
+            if (index.isCovering()) {
+                covered.put(index.indexGetter(), index.alias());
+            }
+            index.stored().forEach(stored -> {
+                alias(stored.alias());
+                fields.add(stored.indexField());
+                covered.put(stored.getter(), stored.alias());
+            });
+        });
+        this.indexFields = fields.contains(null) ? null : List.copyOf(fields);
+        this.writerState = new IndexState<>(this.indexes, options.keysOnly());
+        this.state = writerState.snapshot();
+        // Changes the dao sees on disk while it is loading wait until it has been built
+        writeLock.lock();
+        try {
+            this.dao = daoSupplier.apply(new ThisIndexationHandler<>(this));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Index entries name every index and stored field by alias, so no two of them can share one
+    private void alias(String alias) {
+        if (!aliases.add(alias)) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "The alias {0} is used by more than one index or stored field", alias
+            ));
+        }
+    }
+
+    // Entities are held by ordinal so that range indexes can be bitmaps rather than lists of references.
+    // The writer's state is handed to readers as immutable snapshots, so postings published in one are never modified.
+    private static class IndexState<T> {
+        private final List<GenericIndex<T>> indexes;
+        private final EntityTable<T> table;
+        private final Map<GenericIndex<T>, UniqueOrdinals> uniqueIndexes;
+        private final Map<GenericIndex<T>, PMap<Object, RoaringBitmap>> rangeIndexes;
+        private final Map<GenericIndex<T>, Long> rangeEntries;
+        private final Map<String, FieldGetter<? super T, ?>> getters;
+        // The values covering indexes store, by alias and then ordinal
+        private final Map<String, PagedArray<Object>> columns;
+        // The value each entity was indexed under, by index and then ordinal, so that an entity changed on disk can be
+        // unindexed without the entity it was indexed from. Only the writer reads them, so they are never snapshot.
+        private final Map<GenericIndex<T>, PagedArray<Object>> indexedValues;
+        // The postings created or copied by the writer since the last snapshot, which it may still modify in place
+        private final Set<RoaringBitmap> ownedPostings = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        @SuppressWarnings("unchecked")
+        private IndexState(List<GenericIndex<T>> indexes, boolean keysOnly) {
+            this.indexes = indexes;
+            this.table = new EntityTable<>(keysOnly);
+            this.uniqueIndexes = new HashMap<>();
+            this.rangeIndexes = new HashMap<>();
+            this.rangeEntries = new HashMap<>();
+            this.getters = new HashMap<>();
+            this.columns = new HashMap<>();
+            this.indexedValues = new HashMap<>();
+            indexes.forEach(index -> {
+                indexedValues.put(index, new PagedArray<>());
+                getters.put(index.alias(), index.indexGetter().getGetter());
+                if (index.isCovering()) {
+                    columns.put(index.alias(), new PagedArray<>());
+                }
+                index.stored().forEach(stored -> {
+                    getters.put(stored.alias(), stored.getter().getGetter());
+                    columns.put(stored.alias(), new PagedArray<>());
+                });
+                if (index.isUnique()) {
+                    uniqueIndexes.put(index, new UniqueOrdinals(index.isSorted()));
+                } else {
+                    rangeIndexes.put(index, index.isSorted()
+                            ? TreePMap.empty((Comparator<Object>) (Comparator<?>) Comparator.naturalOrder())
+                            : HashTreePMap.empty());
+                    rangeEntries.put(index, 0L);
+                }
+            });
+        }
+
+        private IndexState(IndexState<T> state) {
+            this.indexes = state.indexes;
+            this.table = state.table.snapshot();
+            this.uniqueIndexes = new HashMap<>();
+            state.uniqueIndexes.forEach((index, ordinals) -> uniqueIndexes.put(index, ordinals.snapshot()));
+            this.rangeIndexes = new HashMap<>(state.rangeIndexes);
+            this.rangeEntries = new HashMap<>(state.rangeEntries);
+            this.getters = state.getters;
+            this.columns = new HashMap<>();
+            state.columns.forEach((alias, column) -> columns.put(alias, column.snapshot()));
+            this.indexedValues = null;
+        }
+
+        private IndexState<T> snapshot() {
+            ownedPostings.clear();
+            return new IndexState<>(this);
+        }
+
+        private void add(String key, T entity, Function<String, Object> valueGetter) {
+            int ordinal = table.add(key, entity);
+            index(ordinal, valueGetter);
+            store(ordinal, valueGetter);
+        }
+
+        private void update(String key, T existing, T updated) {
+            int ordinal = table.ordinal(key);
+            if (ordinal < 0) {
+                add(key, updated, valueGetter(updated));
+                return;
+            }
+            table.set(ordinal, updated);
+            store(ordinal, valueGetter(updated));
+            indexes.forEach(index -> {
+                Object existingKey = index.indexGetter().getGetter().get(existing);
+                Object updatedKey = index.indexGetter().getGetter().get(updated);
+                // Unchanged values leave postings that may be shared with a snapshot alone
+                if (!Objects.equals(existingKey, updatedKey)) {
+                    unindex(index, ordinal, existingKey);
+                    index(index, ordinal, updatedKey);
+                }
+            });
+        }
+
+        private void remove(String key, T entity) {
+            int ordinal = table.ordinal(key);
+            if (ordinal >= 0) {
+                indexes.forEach(index -> unindex(index, ordinal, index.indexGetter().getGetter().get(entity)));
+                store(ordinal, alias -> null);
+                table.remove(ordinal);
+            }
+        }
+
+        // The entity indexed under the key may have changed on disk already, so its postings are found from the values
+        // its ordinal was indexed under
+        private void refresh(String key, T entity) {
+            int ordinal = table.ordinal(key);
+            if (ordinal >= 0) {
+                indexes.forEach(index -> unindex(index, ordinal, indexedValues.get(index).get(ordinal)));
+                store(ordinal, alias -> null);
+                table.remove(ordinal);
+            }
+            if (entity != null) {
+                add(key, entity, valueGetter(entity));
+            }
+        }
+
+        private void index(int ordinal, Function<String, Object> valueGetter) {
+            indexes.forEach(index -> index(index, ordinal, valueGetter.apply(index.alias())));
+        }
+
+        private void store(int ordinal, Function<String, Object> valueGetter) {
+            columns.forEach((alias, column) -> column.set(ordinal, valueGetter.apply(alias)));
+        }
+
+        private void index(GenericIndex<T> index, int ordinal, Object indexKey) {
+            indexedValues.get(index).set(ordinal, indexKey);
+            if (indexKey == null && index.isSorted()) {
+                return;
+            }
+            if (index.isUnique()) {
+                uniqueIndexes.get(index).put(indexKey, ordinal);
+            } else if (ownedPostings(index, indexKey, true).checkedAdd(ordinal)) {
+                rangeEntries.merge(index, 1L, Long::sum);
+            }
+        }
+
+        private void unindex(GenericIndex<T> index, int ordinal, Object indexKey) {
+            indexedValues.get(index).set(ordinal, null);
+            if (indexKey == null && index.isSorted()) {
+                return;
+            }
+            if (index.isUnique()) {
+                uniqueIndexes.get(index).remove(indexKey, ordinal);
+                return;
+            }
+            RoaringBitmap ordinals = ownedPostings(index, indexKey, false);
+            if (ordinals != null) {
+                if (ordinals.checkedRemove(ordinal)) {
+                    rangeEntries.merge(index, -1L, Long::sum);
+                }
+                if (ordinals.isEmpty()) {
+                    rangeIndexes.put(index, rangeIndexes.get(index).minus(indexKey));
+                }
+            }
+        }
+
+        // Copies postings that may be in a snapshot before they are modified
+        private RoaringBitmap ownedPostings(GenericIndex<T> index, Object indexKey, boolean create) {
+            RoaringBitmap ordinals = rangeIndexes.get(index).get(indexKey);
+            if (ordinals == null && !create || ordinals != null && ownedPostings.contains(ordinals)) {
+                return ordinals;
+            }
+            ordinals = ordinals == null ? new RoaringBitmap() : ordinals.clone();
+            ownedPostings.add(ordinals);
+            rangeIndexes.put(index, rangeIndexes.get(index).plus(indexKey, ordinals));
+            return ordinals;
+        }
+
+        // The value of each index and stored field of an entity, by alias
+        private Function<String, Object> valueGetter(T entity) {
+            return alias -> getters.get(alias).get(entity);
+        }
+    }
+
+    // Either a lookup in one index or, without an index, the union of the paths for each branch of an Or
+    // An inexact path finds every entity its predicate matches but may find others too, so the predicate is still checked
+    private record AccessPath<T>(GenericIndex<T> index, Predicate<? super T> predicate, long estimate, List<AccessPath<T>> union, boolean exact) {
+        private AccessPath(GenericIndex<T> index, Predicate<? super T> predicate, long estimate) {
+            this(index, predicate, estimate, List.of(), true);
+        }
+
+        private String describe() {
+            if (index == null) {
+                return union.stream().map(AccessPath::describe).collect(Collectors.joining(" | ", "(", ")"));
+            }
+            return index.alias() + "[~" + estimate + "]";
+        }
+    }
+
+    // Residual predicates are checked against each entity the indexes find, all of them must match
+    private record QueryPlan<T>(AccessPath<T> driver, List<AccessPath<T>> intersected, List<Predicate<? super T>> residual) {
+        private boolean matches(T entity) {
+            for (Predicate<? super T> predicate : residual) {
+                if (!predicate.test(entity)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return driver.describe()
+                    + intersected.stream().map(path -> " & " + path.describe()).collect(Collectors.joining())
+                    + (residual.isEmpty() ? "" : residual.stream().map(Object::toString).collect(Collectors.joining(" & ", " filter ", "")));
+        }
     }
 
     private static class ThisIndexationHandler<T> implements IndexationHandler<T> {
         private final IndexedDao<T> indexedDao;
 
-        private Map<GenericIndex<T>,Map<Object, T>> thisUniqueIndexes = new HashMap<>();
-        private Map<GenericIndex<T>,Map<Object, List<T>>> thisRangeIndexes = new HashMap<>();
+        private IndexState<T> thisState;
 
         private ThisIndexationHandler(IndexedDao<T> indexedDao) {
             this.indexedDao = indexedDao;
@@ -32,39 +302,59 @@ public class IndexedDao<T> implements GenericDao<T> {
 
         @Override
         public void start() {
-            thisUniqueIndexes = new HashMap<>();
-            thisRangeIndexes = new HashMap<>();
-            indexedDao.indexes.forEach(index -> {
-                if (index.isUnique()) {
-                    thisUniqueIndexes.put(index, new HashMap<>());
-                } else {
-                    thisRangeIndexes.put(index, new HashMap<>());
-                }
-            });
+            thisState = new IndexState<>(indexedDao.indexes, indexedDao.options.keysOnly());
         }
 
         @Override
         public void accept(IndexedEntityCallback<T> indexedEntityCallback) {
-            addToIndexes(indexedEntityCallback.getEntity());
+            Map<String, Object> indexEntries = indexedEntityCallback.getIndexEntries();
+            if (indexEntries != null && indexEntries.keySet().containsAll(indexedDao.aliases)) {
+                synchronized (this) {
+                    thisState.add(indexedEntityCallback.getKey(), null, indexEntries::get);
+                }
+            } else {
+                T entity = indexedEntityCallback.getEntity();
+                synchronized (this) {
+                    thisState.add(indexedEntityCallback.getKey(), entity, thisState.valueGetter(entity));
+                }
+            }
         }
 
         @Override
-        public void end() {
-            indexedDao.uniqueIndexes = thisUniqueIndexes;
-            indexedDao.rangeIndexes = thisRangeIndexes;
+        public Map<String, Object> indexEntries(T entity) {
+            Map<String, Object> indexEntries = new HashMap<>();
+            for (GenericIndex<T> index : indexedDao.indexes) {
+                indexEntries.put(index.alias(), index.indexGetter().getGetter().get(entity));
+                index.stored().forEach(stored -> indexEntries.put(stored.alias(), stored.getter().getGetter().get(entity)));
+            }
+            // Only values that read back from JSON as the same type can be trusted from a manifest
+            return DirectoryManifest.portable(indexEntries);
         }
 
-        private void addToIndexes(T entity) {
-            indexedDao.indexes
-                    .forEach(index -> {
-                        Object indexKey = index.indexGetter().getGetter().get(entity);
-                        if (index.isUnique()) {
-                            thisUniqueIndexes.get(index).put(indexKey, entity);
-                        } else {
-                            thisRangeIndexes.get(index).computeIfAbsent(indexKey, k -> new ArrayList<>());
-                            thisRangeIndexes.get(index).get(indexKey).add(entity);
-                        }
-                    });
+        @Override
+        public List<IndexField> indexFields() {
+            return indexedDao.indexFields;
+        }
+
+        @Override
+        public void changed(IndexedEntityCallback<T> indexedEntityCallback) {
+            indexedDao.refresh(indexedEntityCallback.getKey());
+        }
+
+        @Override
+        public void removed(String key) {
+            indexedDao.refresh(key);
+        }
+
+        @Override
+        public void end() {
+            indexedDao.writeLock.lock();
+            try {
+                indexedDao.writerState = thisState;
+                indexedDao.state = thisState.snapshot();
+            } finally {
+                indexedDao.writeLock.unlock();
+            }
         }
     }
 
@@ -90,33 +380,23 @@ public class IndexedDao<T> implements GenericDao<T> {
 
     @Override
     public T get(Predicate<? super T> predicate) throws NotExistsException, NotUniqueException {
-        try {
-            GenericIndex<T> supportingIndex = indexFor(predicate);
-            if (supportingIndex.isUnique()) {
-                T entity = uniqueIndexes.get(supportingIndex).get(targetFrom(predicate));
-                if (entity == null) {
-                    throw new NotExistsException(predicate, ofType());
-                }
-                return entity;
-            } else {
-                Object target = targetFrom(predicate);
-                if (rangeIndexes.get(supportingIndex).get(target) == null) {
-                    throw new NotExistsException(predicate, ofType());
-                }
-                List<T> found = rangeIndexes.get(supportingIndex).get(target).stream()
-                        .filter(predicate)
-                        .toList();
-                if (found.isEmpty()) {
-                    throw new NotExistsException(predicate, ofType());
-                }
-                if (found.size() > 1) {
-                    throw new NotUniqueException(predicate, ofType());
-                }
-                return found.get(0);
-            }
-        } catch(NoSuchElementException err) {
+        IndexState<T> state = this.state;
+        Optional<QueryPlan<T>> plan = plan(state, predicate);
+        if (plan.isEmpty()) {
+            scans.increment();
             return dao.get(predicate);
         }
+        indexHits.increment();
+        List<T> found = execute(state, plan.get(), predicate)
+                .limit(2)
+                .toList();
+        if (found.isEmpty()) {
+            throw new NotExistsException(predicate, ofType());
+        }
+        if (found.size() > 1) {
+            throw new NotUniqueException(predicate, ofType());
+        }
+        return found.get(0);
     }
 
     @Override
@@ -126,95 +406,400 @@ public class IndexedDao<T> implements GenericDao<T> {
 
     @Override
     public Stream<T> stream(Predicate<? super T> predicate) {
-        try {
-            GenericIndex<T> supportingIndex = indexFor(predicate);
-            if (supportingIndex.isUnique()) {
-                return Stream.of(uniqueIndexes.get(supportingIndex).get(targetFrom(predicate))).filter(predicate);
-            } else {
-                return rangeIndexes.get(supportingIndex).get(targetFrom(predicate)).stream().filter(predicate);
-            }
-        } catch(NoSuchElementException err) {
+        IndexState<T> state = this.state;
+        Optional<QueryPlan<T>> plan = plan(state, predicate);
+        if (plan.isEmpty()) {
+            scans.increment();
             return dao.stream(predicate);
         }
+        indexHits.increment();
+        return execute(state, plan.get(), predicate);
+    }
+
+    // Answered from the covering indexes alone when they store every field and the indexes answer the whole predicate
+    @Override
+    public Stream<Projection> stream(Predicate<? super T> predicate, List<? extends IndexGetter<? super T, ?>> fields) {
+        String[] aliases = new String[fields.size()];
+        for (int i = 0; i < aliases.length; i++) {
+            aliases[i] = covered.get(fields.get(i));
+            if (aliases[i] == null) {
+                return GenericDao.super.stream(predicate, fields);
+            }
+        }
+        IndexState<T> state = this.state;
+        Optional<QueryPlan<T>> plan = plan(state, predicate);
+        if (plan.isEmpty() || !plan.get().residual().isEmpty()) {
+            return GenericDao.super.stream(predicate, fields);
+        }
+        indexHits.increment();
+        coveredHits.increment();
+        List<PagedArray<Object>> columns = Arrays.stream(aliases).map(state.columns::get).toList();
+        return ordinals(state, plan.get()).stream()
+                .mapToObj(ordinal -> {
+                    Object[] values = new Object[columns.size()];
+                    for (int i = 0; i < values.length; i++) {
+                        values[i] = columns.get(i).get(ordinal);
+                    }
+                    return new Projection(state.table.key(ordinal), fields, values);
+                });
+    }
+
+    public List<IndexStatistics> statistics() {
+        IndexState<T> state = this.state;
+        return indexes.stream()
+                .map(index -> index.isUnique()
+                        ? new IndexStatistics(index.alias(), true, index.isSorted(), state.uniqueIndexes.get(index).size(), state.uniqueIndexes.get(index).size())
+                        : new IndexStatistics(index.alias(), false, index.isSorted(), state.rangeEntries.get(index), state.rangeIndexes.get(index).size()))
+                .toList();
+    }
+
+    @Override
+    public void bindMeters(DaoMeters meters) {
+        dao.bindMeters(meters);
+        meters.counter("index.hits", "Queries answered from the indexes", indexHits::sum);
+        meters.counter("index.scans", "Queries that fell back to a full scan", scans::sum);
+        meters.counter("index.covered", "Projections answered from covering indexes without reading entities", coveredHits::sum);
+    }
+
+    String explain(Predicate<? super T> predicate) {
+        return plan(state, predicate).map(QueryPlan::toString).orElse("scan");
     }
 
     @Override
     public T insert(T entity) throws AlreadyExistsException {
-        T inserted = dao.insert(entity);
-        addToIndexes(inserted);
-        return inserted;
+        writeLock.lock();
+        try {
+            T inserted = dao.insert(entity);
+            addToIndexes(inserted);
+            publish();
+            return inserted;
+        } finally {
+            writeLock.unlock();
+        }
     }
 
     @Override
     public T update(T entity) throws NotExistsException, DataIntegrityViolationException {
-        String key = dao.keyGetter().get(entity);
-        T existing = dao.get(key);
-        T updated = dao.update(entity);
-        updateInIndexes(key, existing, updated);
-        return updated;
+        writeLock.lock();
+        try {
+            String key = dao.keyGetter().get(entity);
+            T existing = dao.get(key);
+            T updated = dao.update(entity);
+            updateInIndexes(key, existing, updated);
+            publish();
+            return updated;
+        } finally {
+            writeLock.unlock();
+        }
     }
 
     @Override
     public T delete(String key) throws NotExistsException {
-        T deleted = dao.delete(key);
-        removeFromIndexes(key, deleted);
-        return deleted;
+        writeLock.lock();
+        try {
+            T deleted = dao.delete(key);
+            removeFromIndexes(key, deleted);
+            publish();
+            return deleted;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public List<T> insertAll(Collection<T> entities) throws AlreadyExistsException {
+        writeLock.lock();
+        try {
+            List<T> inserted = dao.insertAll(entities);
+            inserted.forEach(this::addToIndexes);
+            publish();
+            return inserted;
+        } catch (BatchWriteError err) {
+            reindex(err.getApplied());
+            throw err;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public List<T> updateAll(Collection<T> entities) throws NotExistsException, DataIntegrityViolationException {
+        writeLock.lock();
+        try {
+            Map<String, T> existing = new HashMap<>();
+            for (T entity : entities) {
+                String key = dao.keyGetter().get(entity);
+                // Entities without a key are left for the dao to reject
+                if (key != null && !existing.containsKey(key)) {
+                    existing.put(key, dao.get(key));
+                }
+            }
+            List<T> updated = dao.updateAll(entities);
+            Map<String, T> latest = new LinkedHashMap<>();
+            updated.forEach(entity -> latest.put(dao.keyGetter().get(entity), entity));
+            latest.forEach((key, entity) -> updateInIndexes(key, existing.get(key), entity));
+            publish();
+            return updated;
+        } catch (BatchWriteError err) {
+            reindex(err.getApplied());
+            throw err;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public List<T> deleteAll(Collection<String> keys) throws NotExistsException {
+        writeLock.lock();
+        try {
+            List<T> deleted = dao.deleteAll(keys);
+            deleted.forEach(entity -> removeFromIndexes(dao.keyGetter().get(entity), entity));
+            publish();
+            return deleted;
+        } catch (BatchWriteError err) {
+            reindex(err.getApplied());
+            throw err;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        dao.close();
     }
 
     private void removeFromIndexes(String key, T entity) {
-        indexes.stream()
-                .forEach(index -> {
-                    Object indexKey = index.indexGetter().getGetter().get(entity);
-                    if (index.isUnique()) {
-                        uniqueIndexes.get(index).remove(indexKey);
-                    } else {
-                        Optional<T> optionalIndexEntity = rangeIndexes.get(index).get(indexKey).stream()
-                                .filter(e -> key.equals(keyGetter().get(e)))
-                                .findFirst();
-                        optionalIndexEntity.ifPresent(e -> rangeIndexes.get(index).get(indexKey).remove(e));
-                    }
-                });
+        writerState.remove(key, entity);
     }
 
     private void addToIndexes(T entity) {
-        indexes.stream()
-                .forEach(index -> {
-                    Object indexKey = index.indexGetter().getGetter().get(entity);
-                    if (index.isUnique()) {
-                        uniqueIndexes.get(index).put(indexKey, entity);
-                    } else {
-                        rangeIndexes.get(index).computeIfAbsent(indexKey, k -> new ArrayList<>());
-                        rangeIndexes.get(index).get(indexKey).add(entity);
-                    }
-                });
+        writerState.add(keyGetter().get(entity), entity, writerState.valueGetter(entity));
     }
 
     private void updateInIndexes(String key, T existing, T updated) {
-        removeFromIndexes(key, existing);
-        addToIndexes(updated);
+        writerState.update(key, existing, updated);
     }
 
-    private GenericIndex<T> indexFor(Predicate<? super T> predicate) {
+    private void refresh(String key) {
+        writeLock.lock();
+        try {
+            reindex(List.of(key));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Indexes the keys as the dao now holds them, which for a failed batch is only known for the keys it applied
+    private void reindex(List<String> keys) {
+        for (String key : keys) {
+            T entity;
+            try {
+                entity = dao.get(key);
+            } catch (NotExistsException err) {
+                entity = null;
+            }
+            writerState.refresh(key, entity);
+        }
+        publish();
+    }
+
+    private void publish() {
+        state = writerState.snapshot();
+    }
+
+    // Planned against one snapshot so that every estimate in the plan comes from the same statistics
+    private Optional<QueryPlan<T>> plan(IndexState<T> state, Predicate<? super T> predicate) {
+        List<AccessPath<T>> paths = new ArrayList<>();
+        List<Predicate<? super T>> residual = new ArrayList<>();
+        for (Predicate<? super T> child : conjuncts(predicate)) {
+            Optional<AccessPath<T>> path = accessPath(state, child);
+            if (path.isPresent()) {
+                paths.add(path.get());
+            } else {
+                residual.add(child);
+            }
+        }
+        if (paths.isEmpty()) {
+            return Optional.empty();
+        }
+        paths.sort(Comparator.comparingLong(AccessPath::estimate));
+        AccessPath<T> driver = paths.get(0);
+        if (!driver.exact()) {
+            residual.add(driver.predicate());
+        }
+        List<AccessPath<T>> intersected = new ArrayList<>();
+        for (AccessPath<T> path : paths.subList(1, paths.size())) {
+            if (path.estimate() > Math.max(1, driver.estimate()) * INTERSECTION_FACTOR) {
+                residual.add(path.predicate());
+                continue;
+            }
+            intersected.add(path);
+            if (!path.exact()) {
+                residual.add(path.predicate());
+            }
+        }
+        return Optional.of(new QueryPlan<>(driver, intersected, residual));
+    }
+
+    private Optional<AccessPath<T>> accessPath(IndexState<T> state, Predicate<? super T> predicate) {
+        if (predicate instanceof Or<? super T> or) {
+            List<AccessPath<T>> union = new ArrayList<>();
+            for (Predicate<? super T> child : or.predicates()) {
+                Optional<AccessPath<T>> path = accessPath(state, child);
+                // A single branch without an index means scanning everything anyway
+                if (path.isEmpty()) {
+                    return Optional.empty();
+                }
+                union.add(path.get());
+            }
+            if (union.isEmpty()) {
+                return Optional.empty();
+            }
+            return Optional.of(new AccessPath<>(null, predicate, union.stream().mapToLong(AccessPath::estimate).sum(), union,
+                    union.stream().allMatch(AccessPath::exact)));
+        }
+        // Only reached as a branch of an Or, which is answered from the branch's best indexed conjunct as GenericIndex
+        // supports it, leaving the Or to be checked against what that finds
+        if (predicate instanceof And<? super T> and) {
+            List<Predicate<? super T>> conjuncts = conjuncts(and);
+            return conjuncts.stream()
+                    .map(conjunct -> accessPath(state, conjunct))
+                    .flatMap(Optional::stream)
+                    .min(Comparator.comparingLong(AccessPath::estimate))
+                    .map(best -> new AccessPath<>(best.index(), best.predicate(), best.estimate(), best.union(),
+                            best.exact() && conjuncts.size() == 1));
+        }
         return indexes.stream()
                 .filter(index -> index.supports(predicate))
-                .findFirst()
-                .get();
+                .map(index -> new AccessPath<T>(index, predicate, estimate(state, index, predicate)))
+                .min(Comparator.comparingLong(AccessPath::estimate));
     }
 
-    private Object targetFrom(Predicate<? super T> predicate) {
-        if (predicate instanceof IndexGetterEquals<? super T> getter) {
-            return getter.target();
-        }
+    private List<Predicate<? super T>> conjuncts(Predicate<? super T> predicate) {
         if (predicate instanceof And<? super T> and) {
-            for (Predicate<? super T> childPredicate : and.predicates()) {
-                try {
-                    return targetFrom(childPredicate);
-                } catch(IllegalArgumentException err) {
-                    continue;
-                }
+            List<Predicate<? super T>> conjuncts = new ArrayList<>();
+            for (Predicate<? super T> child : and.predicates()) {
+                conjuncts.addAll(conjuncts(child));
             }
+            return conjuncts;
+        }
+        return List.of(predicate);
+    }
+
+    private long estimate(IndexState<T> state, GenericIndex<T> index, Predicate<? super T> predicate) {
+        // A probe gives the exact posting list size so equality is never guessed
+        if (predicate instanceof IndexGetterEquals<? super T> equals) {
+            return count(state, index, equals.target());
+        }
+        if (predicate instanceof IndexGetterIn<? super T> in) {
+            return in.targets().stream().mapToLong(target -> count(state, index, target)).sum();
+        }
+        long entries = index.isUnique() ? state.uniqueIndexes.get(index).size() : state.rangeEntries.get(index);
+        if (predicate instanceof IndexGetterRange<? super T> range) {
+            double selectivity = range.from() != null && range.to() != null ? BETWEEN_SELECTIVITY : RANGE_SELECTIVITY;
+            return (long) Math.ceil(entries * selectivity);
+        }
+        return (long) Math.ceil(entries * PREFIX_SELECTIVITY);
+    }
+
+    private Stream<T> execute(IndexState<T> state, QueryPlan<T> plan, Predicate<? super T> predicate) {
+        Stream<T> entities = ordinals(state, plan).stream()
+                .mapToObj(ordinal -> state.table.get(ordinal, dao))
+                .filter(Objects::nonNull);
+        // Entities read fresh from the dao may have changed since they were indexed, so the whole predicate is checked
+        if (options.keysOnly()) {
+            return entities.filter(predicate);
+        }
+        return plan.residual().isEmpty() ? entities : entities.filter(plan::matches);
+    }
+
+    private RoaringBitmap ordinals(IndexState<T> state, QueryPlan<T> plan) {
+        // A copy of the driving postings keeps the stream stable while the dao is written to
+        RoaringBitmap ordinals = plan.intersected().isEmpty() ? lookup(state, plan.driver()).clone() : lookup(state, plan.driver());
+        for (AccessPath<T> path : plan.intersected()) {
+            ordinals = RoaringBitmap.and(ordinals, lookup(state, path));
+        }
+        return ordinals;
+    }
+
+    // The postings returned may be those held by the index so they are never modified
+    private RoaringBitmap lookup(IndexState<T> state, AccessPath<T> path) {
+        GenericIndex<T> index = path.index();
+        Predicate<? super T> predicate = path.predicate();
+        if (path.estimate() == 0) {
+            return new RoaringBitmap();
+        }
+        if (index == null) {
+            return RoaringBitmap.or(path.union().stream().map(branch -> lookup(state, branch)).iterator());
+        }
+        if (predicate instanceof IndexGetterEquals<? super T> equals) {
+            return probe(state, index, equals.target());
+        }
+        if (predicate instanceof IndexGetterIn<? super T> in) {
+            return RoaringBitmap.or(in.targets().stream().map(target -> probe(state, index, target)).iterator());
+        }
+        if (predicate instanceof IndexGetterRange<? super T> range) {
+            return postings(index, subMap(sorted(state, index), range).values().stream());
+        }
+        if (predicate instanceof IndexGetterStartsWith<? super T> startsWith) {
+            return postings(index, sorted(state, index).tailMap(startsWith.prefix(), true).entrySet().stream()
+                    .takeWhile(entry -> ((String) entry.getKey()).startsWith(startsWith.prefix()))
+                    .map(Map.Entry::getValue));
         }
         throw new IllegalArgumentException(MessageFormat.format(
-                "Unable to get target from predicate {0}", predicate));
+                "Index {0} cannot answer predicate {1}", index, predicate));
+    }
+
+    private long count(IndexState<T> state, GenericIndex<T> index, Object target) {
+        if (target == null && index.isSorted()) {
+            return 0;
+        }
+        if (index.isUnique()) {
+            return state.uniqueIndexes.get(index).get(target) < 0 ? 0 : 1;
+        }
+        RoaringBitmap ordinals = state.rangeIndexes.get(index).get(target);
+        return ordinals == null ? 0 : ordinals.getLongCardinality();
+    }
+
+    private RoaringBitmap probe(IndexState<T> state, GenericIndex<T> index, Object target) {
+        if (target == null && index.isSorted()) {
+            return new RoaringBitmap();
+        }
+        if (index.isUnique()) {
+            int ordinal = state.uniqueIndexes.get(index).get(target);
+            return ordinal < 0 ? new RoaringBitmap() : RoaringBitmap.bitmapOf(ordinal);
+        }
+        RoaringBitmap ordinals = state.rangeIndexes.get(index).get(target);
+        return ordinals == null ? new RoaringBitmap() : ordinals;
+    }
+
+    private RoaringBitmap postings(GenericIndex<T> index, Stream<?> values) {
+        if (index.isUnique()) {
+            return RoaringBitmap.bitmapOfUnordered(values.mapToInt(ordinal -> (Integer) ordinal).toArray());
+        }
+        return RoaringBitmap.or(values.map(ordinals -> (RoaringBitmap) ordinals).iterator());
+    }
+
+    private NavigableMap<Object, ?> subMap(NavigableMap<Object, ?> sorted, IndexGetterRange<? super T> range) {
+        if (range.from() != null && range.to() != null) {
+            // An inverted or empty range matches nothing on a scan, where subMap would reject it
+            int compared = sorted.comparator().compare(range.from(), range.to());
+            if (compared > 0 || compared == 0 && !(range.fromInclusive() && range.toInclusive())) {
+                return Collections.emptyNavigableMap();
+            }
+            return sorted.subMap(range.from(), range.fromInclusive(), range.to(), range.toInclusive());
+        }
+        if (range.from() != null) {
+            return sorted.tailMap(range.from(), range.fromInclusive());
+        }
+        if (range.to() != null) {
+            return sorted.headMap(range.to(), range.toInclusive());
+        }
+        return sorted;
+    }
+
+    private NavigableMap<Object, ?> sorted(IndexState<T> state, GenericIndex<T> index) {
+        return index.isUnique() ? state.uniqueIndexes.get(index).sorted() : (NavigableMap<Object, ?>) state.rangeIndexes.get(index);
     }
 }
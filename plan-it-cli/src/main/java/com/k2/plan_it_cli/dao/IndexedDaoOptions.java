@@ -0,0 +1,14 @@
+package com.k2.plan_it_cli.dao;
+
+// With keysOnly the indexes hold just the keys of the entities they find, and every entity is read from the dao
+// when a query returns it. Nothing is kept twice and nothing can be stale, at the cost of a dao read per result.
+public record IndexedDaoOptions(boolean keysOnly) {
+
+    public static IndexedDaoOptions defaults() {
+        return new IndexedDaoOptions(false);
+    }
+
+    public IndexedDaoOptions withKeysOnly(boolean keysOnly) {
+        return new IndexedDaoOptions(keysOnly);
+    }
+}
@@ -1,6 +1,16 @@
 package com.k2.plan_it_cli.dao;
 
+import java.util.Map;
+
 public interface IndexedEntityCallback<T> {
     String getKey();
     T getEntity();
+
+    default boolean isModified() {
+        return true;
+    }
+
+    default Map<String, Object> getIndexEntries() {
+        return null;
+    }
 }
@@ -0,0 +1,140 @@
+package com.k2.plan_it_cli.dao;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class JacksonCodec implements EntityCodec {
+    private final String name;
+    private final String extension;
+    private final ObjectMapper mapper;
+
+    public JacksonCodec(String name, String extension, ObjectMapper mapper) {
+        this.name = name;
+        this.extension = extension;
+        this.mapper = mapper;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public String extension() {
+        return extension;
+    }
+
+    @Override
+    public <T> T read(File file, Class<T> type) throws IOException {
+        return mapper.readValue(file, type);
+    }
+
+    @Override
+    public void write(File file, Object value) throws IOException {
+        mapper.writeValue(file, value);
+    }
+
+    @Override
+    public <T> T read(InputStream in, Class<T> type) throws IOException {
+        return mapper.readerFor(type)
+                .without(JsonParser.Feature.AUTO_CLOSE_SOURCE)
+                .readValue(in);
+    }
+
+    @Override
+    public void write(OutputStream out, Object value) throws IOException {
+        mapper.writer()
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .writeValue(out, value);
+    }
+
+    @Override
+    public Map<String, Object> readFields(File file, List<IndexField> fields) throws IOException {
+        try (JsonParser parser = mapper.createParser(file)) {
+            return readFields(parser, fields);
+        }
+    }
+
+    @Override
+    public Map<String, Object> readFields(InputStream in, List<IndexField> fields) throws IOException {
+        try (JsonParser parser = mapper.createParser(in)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+            return readFields(parser, fields);
+        }
+    }
+
+    // Walks the tokens, skipping whatever no field lies within, and stops as soon as the last field has been read
+    private Map<String, Object> readFields(JsonParser parser, List<IndexField> fields) throws IOException {
+        Map<String, Object> values = new HashMap<>();
+        List<Pending> pending = new ArrayList<>(fields.size());
+        for (IndexField field : fields) {
+            values.put(field.alias(), null);
+            pending.add(new Pending(field, field.path()));
+        }
+        if (parser.nextToken() == JsonToken.START_OBJECT) {
+            readObject(parser, pending, values, new int[]{fields.size()});
+        }
+        return values;
+    }
+
+    // A property that some fields lie within is walked in turn. One that a field is and another lies within, or that
+    // holds an array a field points into, is read as a tree for each field to be found in.
+    private boolean readObject(JsonParser parser, List<Pending> pending, Map<String, Object> values, int[] remaining) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            JsonToken token = parser.nextToken();
+            List<Pending> matched = new ArrayList<>();
+            boolean whole = false;
+            boolean within = false;
+            for (Pending candidate : pending) {
+                if (name.equals(candidate.path().getMatchingProperty())) {
+                    Pending tail = new Pending(candidate.field(), candidate.path().tail());
+                    matched.add(tail);
+                    whole |= tail.path().matches();
+                    within |= !tail.path().matches();
+                }
+            }
+            if (matched.isEmpty()) {
+                parser.skipChildren();
+            } else if (!within && matched.stream().map(candidate -> candidate.field().type()).distinct().count() == 1) {
+                Object value = mapper.readValue(parser, matched.get(0).field().type());
+                for (Pending candidate : matched) {
+                    values.put(candidate.field().alias(), value);
+                    if (--remaining[0] == 0) {
+                        return true;
+                    }
+                }
+            } else if (!whole && token == JsonToken.START_OBJECT) {
+                if (readObject(parser, matched, values, remaining)) {
+                    return true;
+                }
+            } else {
+                JsonNode tree = mapper.readTree(parser);
+                for (Pending candidate : matched) {
+                    JsonNode node = tree.at(candidate.path());
+                    values.put(candidate.field().alias(), node.isMissingNode() ? null : mapper.treeToValue(node, candidate.field().type()));
+                    if (--remaining[0] == 0) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private record Pending(IndexField field, JsonPointer path) {
+    }
+}
@@ -0,0 +1,100 @@
+package com.k2.plan_it_cli.dao;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+import net.jpountz.xxhash.XXHashFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+// LZ4 frames written and read in memory. The frame streams allocate two 64KB buffers each, more than most entities.
+// Only the frames written here are read here, others are left to LZ4FrameInputStream.
+class Lz4Frames {
+    static final byte[] MAGIC = {(byte) 0x04, (byte) 0x22, (byte) 0x4d, (byte) 0x18};
+
+    // Version 01 with independent blocks, and no checksums, content size or dictionary
+    private static final byte FLG = 0x60;
+    // 64KB blocks, the smallest a frame allows
+    private static final byte BD = 0x40;
+    private static final byte HC = (byte) (XXHashFactory.fastestInstance().hash32().hash(new byte[]{FLG, BD}, 0, 2, 0) >> 8);
+    private static final int HEADER = MAGIC.length + 3;
+    private static final int BLOCK_SIZE = 64 * 1024;
+    private static final int UNCOMPRESSED = 0x80000000;
+    private static final LZ4Compressor COMPRESSOR = LZ4Factory.fastestInstance().fastCompressor();
+    private static final LZ4SafeDecompressor DECOMPRESSOR = LZ4Factory.fastestInstance().safeDecompressor();
+
+    static void write(byte[] raw, int length, OutputStream out) throws IOException {
+        out.write(MAGIC);
+        out.write(FLG);
+        out.write(BD);
+        out.write(HC);
+        byte[] block = new byte[COMPRESSOR.maxCompressedLength(Math.min(length, BLOCK_SIZE))];
+        for (int offset = 0; offset < length; offset += BLOCK_SIZE) {
+            int size = Math.min(BLOCK_SIZE, length - offset);
+            int compressed = COMPRESSOR.compress(raw, offset, size, block, 0, block.length);
+            if (compressed < size) {
+                writeIntLE(out, compressed);
+                out.write(block, 0, compressed);
+            } else {
+                writeIntLE(out, size | UNCOMPRESSED);
+                out.write(raw, offset, size);
+            }
+        }
+        writeIntLE(out, 0);
+    }
+
+    // Null for frames with features only the frame stream reads
+    static byte[] read(byte[] framed) throws IOException {
+        if (framed.length < HEADER + 4 || framed[4] != FLG || framed[5] != BD || framed[6] != HC) {
+            return null;
+        }
+        byte[] raw = new byte[Math.max(1024, framed.length * 4)];
+        int length = 0;
+        int offset = HEADER;
+        while (true) {
+            if (offset + 4 > framed.length) {
+                throw new IOException("Truncated LZ4 frame");
+            }
+            int header = readIntLE(framed, offset);
+            offset += 4;
+            if (header == 0) {
+                return Arrays.copyOf(raw, length);
+            }
+            int size = header & ~UNCOMPRESSED;
+            if (size > BLOCK_SIZE || offset + size > framed.length) {
+                throw new IOException("Corrupt LZ4 block");
+            }
+            if (raw.length - length < BLOCK_SIZE) {
+                raw = Arrays.copyOf(raw, Math.max(raw.length * 2, length + BLOCK_SIZE));
+            }
+            if ((header & UNCOMPRESSED) != 0) {
+                System.arraycopy(framed, offset, raw, length, size);
+                length += size;
+            } else {
+                try {
+                    length += DECOMPRESSOR.decompress(framed, offset, size, raw, length, BLOCK_SIZE);
+                } catch (LZ4Exception err) {
+                    throw new IOException("Corrupt LZ4 block", err);
+                }
+            }
+            offset += size;
+        }
+    }
+
+    private static void writeIntLE(OutputStream out, int value) throws IOException {
+        out.write(value);
+        out.write(value >>> 8);
+        out.write(value >>> 16);
+        out.write(value >>> 24);
+    }
+
+    private static int readIntLE(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xff)
+                | (bytes[offset + 1] & 0xff) << 8
+                | (bytes[offset + 2] & 0xff) << 16
+                | (bytes[offset + 3] & 0xff) << 24;
+    }
+}
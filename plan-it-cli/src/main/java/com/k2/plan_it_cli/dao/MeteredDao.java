@@ -0,0 +1,225 @@
+package com.k2.plan_it_cli.dao;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+// Times every call to the dao it wraps and publishes the counts that dao keeps of its own work
+public class MeteredDao<T> implements GenericDao<T> {
+    public static final String PREFIX = "planit.dao.";
+    public static final String OPERATION_TIMER = PREFIX + "operation";
+
+    private final GenericDao<T> dao;
+    private final MeterRegistry registry;
+    private final Timer get;
+    private final Timer getByPredicate;
+    private final Timer stream;
+    private final Timer streamByPredicate;
+    private final Timer streamProjection;
+    private final Timer insert;
+    private final Timer update;
+    private final Timer delete;
+    private final Timer insertAll;
+    private final Timer updateAll;
+    private final Timer deleteAll;
+    // The registry only holds what its counters and gauges read weakly, so they are held here for as long as the dao
+    private final List<Object> bound = new ArrayList<>();
+
+    public MeteredDao(GenericDao<T> dao, MeterRegistry registry) {
+        this.dao = dao;
+        this.registry = registry;
+        this.get = timer("get");
+        this.getByPredicate = timer("getByPredicate");
+        this.stream = timer("stream");
+        this.streamByPredicate = timer("streamByPredicate");
+        this.streamProjection = timer("streamProjection");
+        this.insert = timer("insert");
+        this.update = timer("update");
+        this.delete = timer("delete");
+        this.insertAll = timer("insertAll");
+        this.updateAll = timer("updateAll");
+        this.deleteAll = timer("deleteAll");
+        dao.bindMeters(new RegistryMeters());
+    }
+
+    @Override
+    public String ofType() {
+        return dao.ofType();
+    }
+
+    @Override
+    public KeyGetter<T> keyGetter() {
+        return dao.keyGetter();
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return dao.exists(key);
+    }
+
+    @Override
+    public T get(String key) throws NotExistsException {
+        long start = System.nanoTime();
+        try {
+            return dao.get(key);
+        } finally {
+            record(get, start);
+        }
+    }
+
+    @Override
+    public T get(Predicate<? super T> predicate) throws NotExistsException, NotUniqueException {
+        long start = System.nanoTime();
+        try {
+            return dao.get(predicate);
+        } finally {
+            record(getByPredicate, start);
+        }
+    }
+
+    // Streams are lazy so only the time taken to open them is recorded
+    @Override
+    public Stream<T> stream() {
+        long start = System.nanoTime();
+        try {
+            return dao.stream();
+        } finally {
+            record(stream, start);
+        }
+    }
+
+    @Override
+    public Stream<T> stream(Predicate<? super T> predicate) {
+        long start = System.nanoTime();
+        try {
+            return dao.stream(predicate);
+        } finally {
+            record(streamByPredicate, start);
+        }
+    }
+
+    @Override
+    public Stream<Projection> stream(Predicate<? super T> predicate, List<? extends IndexGetter<? super T, ?>> fields) {
+        long start = System.nanoTime();
+        try {
+            return dao.stream(predicate, fields);
+        } finally {
+            record(streamProjection, start);
+        }
+    }
+
+    @Override
+    public T insert(T entity) throws AlreadyExistsException {
+        long start = System.nanoTime();
+        try {
+            return dao.insert(entity);
+        } finally {
+            record(insert, start);
+        }
+    }
+
+    @Override
+    public T update(T entity) throws NotExistsException, DataIntegrityViolationException {
+        long start = System.nanoTime();
+        try {
+            return dao.update(entity);
+        } finally {
+            record(update, start);
+        }
+    }
+
+    @Override
+    public T delete(String key) throws NotExistsException {
+        long start = System.nanoTime();
+        try {
+            return dao.delete(key);
+        } finally {
+            record(delete, start);
+        }
+    }
+
+    @Override
+    public List<T> insertAll(Collection<T> entities) throws AlreadyExistsException {
+        long start = System.nanoTime();
+        try {
+            return dao.insertAll(entities);
+        } finally {
+            record(insertAll, start);
+        }
+    }
+
+    @Override
+    public List<T> updateAll(Collection<T> entities) throws NotExistsException, DataIntegrityViolationException {
+        long start = System.nanoTime();
+        try {
+            return dao.updateAll(entities);
+        } finally {
+            record(updateAll, start);
+        }
+    }
+
+    @Override
+    public List<T> deleteAll(Collection<String> keys) throws NotExistsException {
+        long start = System.nanoTime();
+        try {
+            return dao.deleteAll(keys);
+        } finally {
+            record(deleteAll, start);
+        }
+    }
+
+    @Override
+    public void bindMeters(DaoMeters meters) {
+        dao.bindMeters(meters);
+    }
+
+    @Override
+    public void close() {
+        dao.close();
+    }
+
+    private Timer timer(String operation) {
+        return Timer.builder(OPERATION_TIMER)
+                .description("Time taken by each dao operation")
+                .tag("type", dao.ofType())
+                .tag("operation", operation)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static void record(Timer timer, long start) {
+        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private class RegistryMeters implements DaoMeters {
+        @Override
+        public void counter(String name, String description, LongSupplier count) {
+            bound.add(count);
+            FunctionCounter.builder(PREFIX + name, count, supplier -> supplier.getAsLong())
+                    .description(description)
+                    .tag("type", dao.ofType())
+                    .register(registry);
+        }
+
+        @Override
+        public void duration(String name, String description, Supplier<Duration> duration) {
+            bound.add(duration);
+            TimeGauge.builder(PREFIX + name, duration, TimeUnit.MILLISECONDS, supplier -> supplier.get().toNanos() / 1_000_000.0)
+                    .description(description)
+                    .tag("type", dao.ofType())
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.k2.plan_it_cli.dao;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+import static com.k2.plan_it_cli.dao.PagedArray.PAGE_MASK;
+import static com.k2.plan_it_cli.dao.PagedArray.PAGE_SHIFT;
+import static com.k2.plan_it_cli.dao.PagedArray.PAGE_SIZE;
+
+// An open addressing table of ordinals found by the value each one stands for, without boxing or entry objects.
+// Like PagedArray its slots are paged so that snapshots for readers only copy the pages written to since the last one.
+class OrdinalHashTable {
+    private static final int EMPTY = 0;
+
+    private final PagedArray<?> values;
+    private int[][] pages;
+    private boolean[] owned;
+    private int size;
+
+    OrdinalHashTable(PagedArray<?> values) {
+        this.values = values;
+        this.pages = new int[1][PAGE_SIZE];
+        this.owned = new boolean[] {true};
+    }
+
+    private OrdinalHashTable(PagedArray<?> values, int[][] pages, int size) {
+        this.values = values;
+        this.pages = pages;
+        this.size = size;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int get(Object value) {
+        int mask = mask();
+        for (int i = home(value, mask); slot(i) != EMPTY; i = (i + 1) & mask) {
+            // Slots hold the ordinal plus one so that zero can mean empty
+            if (Objects.equals(values.get(slot(i) - 1), value)) {
+                return slot(i) - 1;
+            }
+        }
+        return -1;
+    }
+
+    // Returns the ordinal replaced for the same value, if any
+    int put(int ordinal) {
+        Object value = values.get(ordinal);
+        int mask = mask();
+        int i = home(value, mask);
+        for (; slot(i) != EMPTY; i = (i + 1) & mask) {
+            if (Objects.equals(values.get(slot(i) - 1), value)) {
+                int replaced = slot(i) - 1;
+                setSlot(i, ordinal + 1);
+                return replaced;
+            }
+        }
+        setSlot(i, ordinal + 1);
+        if (++size * 2 > mask + 1) {
+            resize((mask + 1) * 2);
+        }
+        return -1;
+    }
+
+    // Only removes the value while it still stands for the given ordinal
+    boolean remove(Object value, int ordinal) {
+        int mask = mask();
+        for (int i = home(value, mask); slot(i) != EMPTY; i = (i + 1) & mask) {
+            if (slot(i) == ordinal + 1) {
+                shiftBack(i, mask);
+                size--;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // The snapshot must be given the snapshot of the values taken at the same time
+    OrdinalHashTable snapshot(PagedArray<?> values) {
+        Arrays.fill(owned, false);
+        return new OrdinalHashTable(values, pages.clone(), size);
+    }
+
+    // Moves later entries of the probe sequence into the gap so that no tombstones are needed
+    private void shiftBack(int gap, int mask) {
+        for (int i = (gap + 1) & mask; slot(i) != EMPTY; i = (i + 1) & mask) {
+            int home = home(values.get(slot(i) - 1), mask);
+            boolean movable = gap <= i ? (home <= gap || home > i) : (home <= gap && home > i);
+            if (movable) {
+                setSlot(gap, slot(i));
+                gap = i;
+            }
+        }
+        setSlot(gap, EMPTY);
+    }
+
+    private void resize(int capacity) {
+        int[][] old = pages;
+        pages = new int[capacity >>> PAGE_SHIFT][PAGE_SIZE];
+        owned = new boolean[pages.length];
+        Arrays.fill(owned, true);
+        int mask = capacity - 1;
+        for (int[] page : old) {
+            for (int slot : page) {
+                if (slot != EMPTY) {
+                    int i = home(values.get(slot - 1), mask);
+                    while (slot(i) != EMPTY) {
+                        i = (i + 1) & mask;
+                    }
+                    pages[i >>> PAGE_SHIFT][i & PAGE_MASK] = slot;
+                }
+            }
+        }
+    }
+
+    private int mask() {
+        return (pages.length << PAGE_SHIFT) - 1;
+    }
+
+    private int slot(int i) {
+        return pages[i >>> PAGE_SHIFT][i & PAGE_MASK];
+    }
+
+    private void setSlot(int i, int slot) {
+        int page = i >>> PAGE_SHIFT;
+        if (!owned[page]) {
+            pages[page] = pages[page].clone();
+            owned[page] = true;
+        }
+        pages[page][i & PAGE_MASK] = slot;
+    }
+
+    private static int home(Object value, int mask) {
+        // The high bits of a Fibonacci hash are the well mixed ones
+        return Objects.hashCode(value) * 0x9E3779B9 >>> Integer.numberOfLeadingZeros(mask);
+    }
+}
@@ -0,0 +1,56 @@
+package com.k2.plan_it_cli.dao;
+
+import java.util.Arrays;
+
+// A growable array handed to readers as snapshots, copying only the pages written to since the last snapshot
+class PagedArray<E> {
+    static final int PAGE_SHIFT = 10;
+    static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private Object[][] pages;
+    // Pages not owned are shared with a snapshot and are copied before being written, snapshots own none
+    private boolean[] owned;
+
+    PagedArray() {
+        this(new Object[1][], new boolean[1]);
+    }
+
+    private PagedArray(Object[][] pages, boolean[] owned) {
+        this.pages = pages;
+        this.owned = owned;
+    }
+
+    @SuppressWarnings("unchecked")
+    E get(int index) {
+        int page = index >>> PAGE_SHIFT;
+        return page < pages.length && pages[page] != null ? (E) pages[page][index & PAGE_MASK] : null;
+    }
+
+    void set(int index, E value) {
+        int page = index >>> PAGE_SHIFT;
+        if (page >= pages.length) {
+            int length = Math.max(page + 1, pages.length * 2);
+            pages = Arrays.copyOf(pages, length);
+            owned = Arrays.copyOf(owned, length);
+        }
+        if (pages[page] == null) {
+            pages[page] = new Object[PAGE_SIZE];
+            owned[page] = true;
+        } else if (!owned[page]) {
+            pages[page] = pages[page].clone();
+            owned[page] = true;
+        }
+        pages[page][index & PAGE_MASK] = value;
+    }
+
+    // Writes straight into the page for values that are the same in every snapshot sharing it, like lazily loaded entities
+    void cache(int index, E value) {
+        pages[index >>> PAGE_SHIFT][index & PAGE_MASK] = value;
+    }
+
+    PagedArray<E> snapshot() {
+        Arrays.fill(owned, false);
+        return new PagedArray<>(pages.clone(), null);
+    }
+}
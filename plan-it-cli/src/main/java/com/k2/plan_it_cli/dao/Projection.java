@@ -0,0 +1,64 @@
+package com.k2.plan_it_cli.dao;
+
+import lombok.Getter;
+
+import java.text.MessageFormat;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+// The key of an entity with the values of the fields it was projected onto, in the order they were asked for
+public class Projection {
+    @Getter
+    private final String key;
+    private final List<? extends IndexGetter<?, ?>> fields;
+    private final Object[] values;
+
+    Projection(String key, List<? extends IndexGetter<?, ?>> fields, Object[] values) {
+        this.key = key;
+        this.fields = fields;
+        this.values = values;
+    }
+
+    static <T> Projection of(String key, T entity, List<? extends IndexGetter<? super T, ?>> fields) {
+        Object[] values = new Object[fields.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = fields.get(i).getGetter().get(entity);
+        }
+        return new Projection(key, fields, values);
+    }
+
+    public Object get(int field) {
+        return values[field];
+    }
+
+    @SuppressWarnings("unchecked")
+    public <F> F get(IndexGetter<?, F> field) {
+        for (int i = 0; i < values.length; i++) {
+            if (fields.get(i).equals(field)) {
+                return (F) values[i];
+            }
+        }
+        throw new IllegalArgumentException(MessageFormat.format(
+                "The projection of {0} does not include the field {1}", key, field
+        ));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Projection projection = (Projection) o;
+        return Objects.equals(key, projection.key) && Arrays.equals(values, projection.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Objects.hashCode(key) + Arrays.hashCode(values);
+    }
+
+    @Override
+    public String toString() {
+        return key + Arrays.toString(values);
+    }
+}
@@ -0,0 +1,38 @@
+package com.k2.plan_it_cli.dao;
+
+import java.util.regex.Pattern;
+
+// Spreads entity files over nested subdirectories named by successive bytes of a hash of their key, so that no
+// one directory holds more than a fraction of them. String.hashCode is fixed by the language, so every JVM agrees
+// on where a key lives.
+class Shards {
+    static final int MAX_DEPTH = 3;
+
+    private static final Pattern NAME = Pattern.compile("[0-9a-f]{2}");
+
+    static String[] of(String key, int depth) {
+        int hash = mix(key.hashCode());
+        String[] names = new String[depth];
+        for (int level = 0; level < depth; level++) {
+            names[level] = name((hash >>> (24 - 8 * level)) & 0xff);
+        }
+        return names;
+    }
+
+    static boolean isShard(String name) {
+        return NAME.matcher(name).matches();
+    }
+
+    private static String name(int value) {
+        return Character.forDigit(value >>> 4, 16) + "" + Character.forDigit(value & 0xf, 16);
+    }
+
+    // Keys that differ only at their end differ only in the low bits of their hash code
+    private static int mix(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x85ebca6b;
+        hash ^= hash >>> 13;
+        hash *= 0xc2b2ae35;
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,30 @@
+package com.k2.plan_it_cli.dao;
+
+import com.fasterxml.jackson.core.JsonPointer;
+
+import java.text.MessageFormat;
+
+// A value a covering index keeps for each entity it indexes, alongside the value it indexes the entity by. Like an index
+// it may name where the value is found in the stored form of an entity.
+public record StoredField<T>(String alias, IndexGetter<T, ?> getter, JsonPointer field, Class<?> fieldType) {
+
+    public StoredField {
+        if (field != null && (field.matches() || fieldType == null)) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "The {0} stored field must name a property and give its type but was {1} of {2}", alias, field, fieldType
+            ));
+        }
+    }
+
+    public StoredField(String alias, IndexGetter<T, ?> getter) {
+        this(alias, getter, null, null);
+    }
+
+    public StoredField<T> withField(String field, Class<?> fieldType) {
+        return new StoredField<>(alias, getter, JsonPointer.compile(field), fieldType);
+    }
+
+    public IndexField indexField() {
+        return field == null ? null : new IndexField(alias, field, fieldType);
+    }
+}
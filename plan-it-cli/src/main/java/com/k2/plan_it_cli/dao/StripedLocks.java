@@ -0,0 +1,52 @@
+package com.k2.plan_it_cli.dao;
+
+import java.util.Collection;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Serializes work on the same key while work on keys in other stripes carries on in parallel
+class StripedLocks {
+    private final ReentrantLock[] stripes;
+
+    StripedLocks(int stripes) {
+        if (stripes < 1 || Integer.bitCount(stripes) != 1) {
+            throw new IllegalArgumentException("The number of stripes must be a positive power of two, not " + stripes);
+        }
+        this.stripes = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    void lock(String key) {
+        stripes[stripe(key)].lock();
+    }
+
+    void unlock(String key) {
+        stripes[stripe(key)].unlock();
+    }
+
+    // Stripes are always taken in the same order so that batches cannot deadlock each other
+    void lock(Collection<String> keys) {
+        for (int stripe : stripes(keys)) {
+            stripes[stripe].lock();
+        }
+    }
+
+    void unlock(Collection<String> keys) {
+        for (int stripe : stripes(keys).descendingSet()) {
+            stripes[stripe].unlock();
+        }
+    }
+
+    private TreeSet<Integer> stripes(Collection<String> keys) {
+        TreeSet<Integer> stripes = new TreeSet<>();
+        keys.forEach(key -> stripes.add(stripe(key)));
+        return stripes;
+    }
+
+    private int stripe(String key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (stripes.length - 1);
+    }
+}
@@ -0,0 +1,76 @@
+package com.k2.plan_it_cli.dao;
+
+import org.pcollections.PSortedMap;
+import org.pcollections.TreePMap;
+
+import java.util.Comparator;
+import java.util.NavigableMap;
+
+// The ordinal of the entity holding each value of a unique index, hashed without boxing unless the index is sorted
+class UniqueOrdinals {
+    private PSortedMap<Object, Integer> sorted;
+    private final PagedArray<Object> values;
+    private final OrdinalHashTable hashed;
+
+    @SuppressWarnings("unchecked")
+    UniqueOrdinals(boolean isSorted) {
+        if (isSorted) {
+            sorted = TreePMap.empty((Comparator<Object>) (Comparator<?>) Comparator.naturalOrder());
+            values = null;
+            hashed = null;
+        } else {
+            values = new PagedArray<>();
+            hashed = new OrdinalHashTable(values);
+        }
+    }
+
+    private UniqueOrdinals(PSortedMap<Object, Integer> sorted, PagedArray<Object> values, OrdinalHashTable hashed) {
+        this.sorted = sorted;
+        this.values = values;
+        this.hashed = hashed;
+    }
+
+    int size() {
+        return sorted != null ? sorted.size() : hashed.size();
+    }
+
+    int get(Object value) {
+        if (sorted != null) {
+            Integer ordinal = sorted.get(value);
+            return ordinal == null ? -1 : ordinal;
+        }
+        return hashed.get(value);
+    }
+
+    void put(Object value, int ordinal) {
+        if (sorted != null) {
+            sorted = sorted.plus(value, ordinal);
+            return;
+        }
+        values.set(ordinal, value);
+        hashed.put(ordinal);
+    }
+
+    void remove(Object value, int ordinal) {
+        if (sorted != null) {
+            if (Integer.valueOf(ordinal).equals(sorted.get(value))) {
+                sorted = sorted.minus(value);
+            }
+            return;
+        }
+        hashed.remove(value, ordinal);
+        values.set(ordinal, null);
+    }
+
+    NavigableMap<Object, Integer> sorted() {
+        return sorted;
+    }
+
+    UniqueOrdinals snapshot() {
+        if (sorted != null) {
+            return new UniqueOrdinals(sorted, null, null);
+        }
+        PagedArray<Object> snapshot = values.snapshot();
+        return new UniqueOrdinals(null, snapshot, hashed.snapshot(snapshot));
+    }
+}
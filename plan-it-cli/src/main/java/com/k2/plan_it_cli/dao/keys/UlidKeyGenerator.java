@@ -0,0 +1,74 @@
+package com.k2.plan_it_cli.dao.keys;
+
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+import java.util.SplittableRandom;
+import java.util.function.LongSupplier;
+
+// Keys that sort in the order they were made: 48 bits of milliseconds then 80 random bits, in Crockford base 32.
+// Each thread keeps its own randomness, seeded from SecureRandom, so threads never contend and other processes
+// making keys in the same millisecond would have to draw the same 80 bits to collide. Within a millisecond a thread
+// counts up from its last key rather than drawing again, so its keys stay in order.
+@Primary
+@Component
+public class UlidKeyGenerator implements KeyGenerator {
+    public static final int KEY_LENGTH = 26;
+
+    private static final byte[] ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".getBytes(StandardCharsets.US_ASCII);
+    private static final SecureRandom SEEDS = new SecureRandom();
+
+    private final LongSupplier clock;
+    private final ThreadLocal<State> states = ThreadLocal.withInitial(State::new);
+
+    public UlidKeyGenerator() {
+        this(System::currentTimeMillis);
+    }
+
+    UlidKeyGenerator(LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public String nextKey(Class<?> type) {
+        return states.get().next(clock.getAsLong());
+    }
+
+    private static class State {
+        private final SplittableRandom random = new SplittableRandom(SEEDS.nextLong());
+        private final byte[] key = new byte[KEY_LENGTH];
+        private long timestamp = -1;
+        // The 80 random bits, 16 in high and 64 in low
+        private long high;
+        private long low;
+
+        private String next(long now) {
+            if (now > timestamp) {
+                timestamp = now;
+                high = random.nextInt() & 0xffff;
+                low = random.nextLong();
+            } else if (++low == 0 && (high = (high + 1) & 0xffff) == 0) {
+                // Every key in this millisecond is used up, or the clock went back, so borrow the next one
+                timestamp++;
+            }
+            for (int i = 0; i < 10; i++) {
+                key[i] = ALPHABET[(int) (timestamp >>> (45 - 5 * i)) & 31];
+            }
+            for (int i = 0; i < 16; i++) {
+                int shift = 75 - 5 * i;
+                long bits;
+                if (shift >= 64) {
+                    bits = high >>> (shift - 64);
+                } else if (shift > 59) {
+                    bits = (high << (64 - shift)) | (low >>> shift);
+                } else {
+                    bits = low >>> shift;
+                }
+                key[10 + i] = ALPHABET[(int) bits & 31];
+            }
+            return new String(key, StandardCharsets.US_ASCII);
+        }
+    }
+}
@@ -15,4 +15,9 @@ public record IndexGetterEquals<T>(IndexGetter<T, ?> getter, Object target) impl
     public Predicate<T> and(Predicate<? super T> other) {
         return Predicates.and(this, other);
     }
+
+    @Override
+    public Predicate<T> or(Predicate<? super T> other) {
+        return Predicates.or(this, other);
+    }
 }
@@ -0,0 +1,24 @@
+package com.k2.plan_it_cli.dao.predicate;
+
+import com.k2.plan_it_cli.dao.IndexGetter;
+
+import java.util.Set;
+import java.util.function.Predicate;
+
+public record IndexGetterIn<T>(IndexGetter<T, ?> getter, Set<?> targets) implements Predicate<T> {
+
+    @Override
+    public boolean test(T source) {
+        return targets.contains(getter.getGetter().get(source));
+    }
+
+    @Override
+    public Predicate<T> and(Predicate<? super T> other) {
+        return Predicates.and(this, other);
+    }
+
+    @Override
+    public Predicate<T> or(Predicate<? super T> other) {
+        return Predicates.or(this, other);
+    }
+}
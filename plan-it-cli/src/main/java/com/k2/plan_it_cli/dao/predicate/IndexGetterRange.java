@@ -0,0 +1,46 @@
+package com.k2.plan_it_cli.dao.predicate;
+
+import com.k2.plan_it_cli.dao.IndexGetter;
+
+import java.util.function.Predicate;
+
+// A null bound leaves that end of the range open
+public record IndexGetterRange<T>(
+        IndexGetter<T, ?> getter,
+        Comparable<?> from,
+        boolean fromInclusive,
+        Comparable<?> to,
+        boolean toInclusive) implements Predicate<T> {
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean test(T source) {
+        Object value = getter.getGetter().get(source);
+        if (value == null) {
+            return false;
+        }
+        if (from != null) {
+            int compared = ((Comparable<Object>) from).compareTo(value);
+            if (compared > 0 || (compared == 0 && !fromInclusive)) {
+                return false;
+            }
+        }
+        if (to != null) {
+            int compared = ((Comparable<Object>) to).compareTo(value);
+            if (compared < 0 || (compared == 0 && !toInclusive)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Predicate<T> and(Predicate<? super T> other) {
+        return Predicates.and(this, other);
+    }
+
+    @Override
+    public Predicate<T> or(Predicate<? super T> other) {
+        return Predicates.or(this, other);
+    }
+}
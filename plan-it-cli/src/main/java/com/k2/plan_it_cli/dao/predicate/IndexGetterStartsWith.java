@@ -0,0 +1,24 @@
+package com.k2.plan_it_cli.dao.predicate;
+
+import com.k2.plan_it_cli.dao.IndexGetter;
+
+import java.util.function.Predicate;
+
+public record IndexGetterStartsWith<T>(IndexGetter<T, String> getter, String prefix) implements Predicate<T> {
+
+    @Override
+    public boolean test(T source) {
+        String value = getter.getGetter().get(source);
+        return value != null && value.startsWith(prefix);
+    }
+
+    @Override
+    public Predicate<T> and(Predicate<? super T> other) {
+        return Predicates.and(this, other);
+    }
+
+    @Override
+    public Predicate<T> or(Predicate<? super T> other) {
+        return Predicates.or(this, other);
+    }
+}
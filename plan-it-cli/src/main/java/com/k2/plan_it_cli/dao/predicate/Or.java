@@ -0,0 +1,16 @@
+package com.k2.plan_it_cli.dao.predicate;
+
+import java.util.function.Predicate;
+
+public record Or<T>(Predicate<? super T> ... predicates) implements Predicate<T> {
+
+    @Override
+    public boolean test(T source) {
+        for (Predicate<? super T> predicate : predicates) {
+            if (predicate.test(source)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
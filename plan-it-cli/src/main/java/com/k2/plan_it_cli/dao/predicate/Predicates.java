@@ -3,6 +3,8 @@ package com.k2.plan_it_cli.dao.predicate;
 import com.k2.plan_it_cli.dao.FieldGetter;
 import com.k2.plan_it_cli.dao.IndexGetter;
 
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.function.Predicate;
 
 public class Predicates {
@@ -12,4 +14,35 @@ public class Predicates {
     public static <T> And<T> and(Predicate<? super T> ... predicates) {
         return new And<T>(predicates);
     }
+    public static <T> Or<T> or(Predicate<? super T> ... predicates) {
+        return new Or<T>(predicates);
+    }
+    // Null is not a target, as sorted indexes leave null values out and a unique index holds one entity per value
+    public static <R,T> IndexGetterIn<R> in(IndexGetter<R, T> getter, Collection<? extends T> targets) {
+        for (T target : targets) {
+            if (target == null) {
+                throw new IllegalArgumentException("The targets of an in predicate cannot include null");
+            }
+        }
+        return new IndexGetterIn<R>(getter, new LinkedHashSet<>(targets));
+    }
+    // Half open, from is included and to is not, so that adjacent ranges share no values
+    public static <R,T extends Comparable<? super T>> IndexGetterRange<R> between(IndexGetter<R, T> getter, T from, T to) {
+        return new IndexGetterRange<R>(getter, from, true, to, false);
+    }
+    public static <R,T extends Comparable<? super T>> IndexGetterRange<R> greaterThan(IndexGetter<R, T> getter, T from) {
+        return new IndexGetterRange<R>(getter, from, false, null, false);
+    }
+    public static <R,T extends Comparable<? super T>> IndexGetterRange<R> greaterThanOrEqual(IndexGetter<R, T> getter, T from) {
+        return new IndexGetterRange<R>(getter, from, true, null, false);
+    }
+    public static <R,T extends Comparable<? super T>> IndexGetterRange<R> lessThan(IndexGetter<R, T> getter, T to) {
+        return new IndexGetterRange<R>(getter, null, false, to, false);
+    }
+    public static <R,T extends Comparable<? super T>> IndexGetterRange<R> lessThanOrEqual(IndexGetter<R, T> getter, T to) {
+        return new IndexGetterRange<R>(getter, null, false, to, true);
+    }
+    public static <R> IndexGetterStartsWith<R> startsWith(IndexGetter<R, String> getter, String prefix) {
+        return new IndexGetterStartsWith<R>(getter, prefix);
+    }
 }
@@ -0,0 +1,222 @@
+package com.k2.plan_it_cli.dao.segment;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+class Segment {
+    static final byte PUT = 1;
+    static final byte DELETE = 2;
+    // length, crc, kind and key length
+    static final int HEADER_SIZE = 4 + 4 + 1 + 2;
+
+    record Record(int offset, int size, byte kind, String key, byte[] value) {
+    }
+
+    interface RecordConsumer {
+        void accept(Record record);
+    }
+
+    private final int id;
+    private final File file;
+    private final MappedByteBuffer buffer;
+    private int position;
+    private long liveBytes;
+    private long tombstoneBytes;
+
+    private Segment(int id, File file, MappedByteBuffer buffer) {
+        this.id = id;
+        this.file = file;
+        this.buffer = buffer;
+    }
+
+    static String fileName(int id) {
+        return String.format("segment-%010d.log", id);
+    }
+
+    static int idOf(String fileName) {
+        return Integer.parseInt(fileName.substring("segment-".length(), fileName.length() - ".log".length()));
+    }
+
+    static boolean isSegment(String fileName) {
+        return fileName.matches("segment-\\d{10}\\.log");
+    }
+
+    // The new file's length and its entry in the directory are synced, or a record forced into it could vanish with the
+    // file after a crash
+    static Segment create(File dir, int id, int size) throws IOException {
+        File file = new File(dir, fileName(id));
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(size);
+            raf.getFD().sync();
+        }
+        syncDirectory(dir);
+        return map(id, file, size);
+    }
+
+    static Segment open(File file) throws IOException {
+        return map(idOf(file.getName()), file, file.length());
+    }
+
+    private static Segment map(int id, File file, long size) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            if (raf.length() < size) {
+                raf.setLength(size);
+            }
+            return new Segment(id, file, raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+    }
+
+    int id() {
+        return id;
+    }
+
+    File file() {
+        return file;
+    }
+
+    int position() {
+        return position;
+    }
+
+    int capacity() {
+        return buffer.capacity();
+    }
+
+    long liveBytes() {
+        return liveBytes;
+    }
+
+    void addLive(long bytes) {
+        liveBytes += bytes;
+    }
+
+    void addTombstone(long bytes) {
+        liveBytes += bytes;
+        tombstoneBytes += bytes;
+    }
+
+    double garbageRatio(boolean oldest) {
+        if (position == 0) {
+            return 0;
+        }
+        // Nothing older can be resurrected once this is the oldest segment so its tombstones are garbage too
+        long live = oldest ? liveBytes - tombstoneBytes : liveBytes;
+        return 1 - (double) live / position;
+    }
+
+    static int sizeOf(byte[] key, byte[] value) {
+        return HEADER_SIZE + key.length + (value == null ? 0 : value.length);
+    }
+
+    int append(byte kind, byte[] key, byte[] value) {
+        int size = sizeOf(key, value);
+        // Leave room for the zero length that marks the end of the records
+        if (position + size + 4 > buffer.capacity()) {
+            return -1;
+        }
+        int offset = position;
+        int valueLength = value == null ? 0 : value.length;
+        buffer.putInt(offset + 4, crc(kind, key, value));
+        buffer.put(offset + 8, kind);
+        buffer.putShort(offset + 9, (short) key.length);
+        buffer.put(offset + HEADER_SIZE, key);
+        if (valueLength > 0) {
+            buffer.put(offset + HEADER_SIZE + key.length, value);
+        }
+        // The length goes last so that a torn write is never mistaken for a record
+        buffer.putInt(offset, size - 4);
+        position += size;
+        return offset;
+    }
+
+    Record read(int offset) {
+        int size = buffer.getInt(offset) + 4;
+        byte kind = buffer.get(offset + 8);
+        int keyLength = buffer.getShort(offset + 9);
+        byte[] key = new byte[keyLength];
+        buffer.get(offset + HEADER_SIZE, key);
+        byte[] value = new byte[size - HEADER_SIZE - keyLength];
+        buffer.get(offset + HEADER_SIZE + keyLength, value);
+        return new Record(offset, size, kind, new String(key, StandardCharsets.UTF_8), value);
+    }
+
+    byte[] value(int offset) {
+        int size = buffer.getInt(offset) + 4;
+        int keyLength = buffer.getShort(offset + 9);
+        byte[] value = new byte[size - HEADER_SIZE - keyLength];
+        buffer.get(offset + HEADER_SIZE + keyLength, value);
+        return value;
+    }
+
+    // A record torn by a crash ends the log. It is cleared so that what is appended in its place is never read as part of it.
+    void scan(RecordConsumer consumer) {
+        int offset = 0;
+        while (offset + HEADER_SIZE <= buffer.capacity()) {
+            int length = buffer.getInt(offset);
+            if (length == 0) {
+                break;
+            }
+            if (!isRecord(offset, length)) {
+                truncate(offset);
+                break;
+            }
+            Record record = read(offset);
+            byte[] key = record.key().getBytes(StandardCharsets.UTF_8);
+            if (buffer.getInt(offset + 4) != crc(record.kind(), key, record.value())) {
+                truncate(offset);
+                break;
+            }
+            consumer.accept(record);
+            offset += record.size();
+        }
+        position = offset;
+    }
+
+    // The lengths of a record must fit within the mapped bytes left, and its key within the record
+    private boolean isRecord(int offset, int length) {
+        if (length < HEADER_SIZE - 4 || length > buffer.capacity() - offset - 4) {
+            return false;
+        }
+        int keyLength = buffer.getShort(offset + 9);
+        return keyLength >= 0 && keyLength <= length + 4 - HEADER_SIZE;
+    }
+
+    private void truncate(int offset) {
+        byte[] zeros = new byte[8192];
+        for (int i = offset; i < buffer.capacity(); i += zeros.length) {
+            buffer.put(i, zeros, 0, Math.min(zeros.length, buffer.capacity() - i));
+        }
+        buffer.force();
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    private static void syncDirectory(File dir) throws IOException {
+        try (FileChannel channel = FileChannel.open(dir.toPath(), StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException err) {
+            // Directories cannot be opened for sync on Windows, where a new file is flushed with its contents
+            if (!System.getProperty("os.name", "").toLowerCase().startsWith("windows")) {
+                throw err;
+            }
+        }
+    }
+
+    private static int crc(byte kind, byte[] key, byte[] value) {
+        CRC32 crc = new CRC32();
+        crc.update(kind);
+        crc.update(key);
+        if (value != null) {
+            crc.update(value);
+        }
+        return (int) crc.getValue();
+    }
+}
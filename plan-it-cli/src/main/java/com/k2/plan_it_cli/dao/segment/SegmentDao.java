@@ -0,0 +1,470 @@
+package com.k2.plan_it_cli.dao.segment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.k2.plan_it_cli.dao.*;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.text.MessageFormat;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+@Slf4j
+public class SegmentDao<T> implements GenericDao<T> {
+    private final Class<T> type;
+    private final KeyGetter<T> keyGetter;
+    private final KeySetter<T> keySetter;
+    private final Supplier<String> keyGenerator;
+    private final File dir;
+    // Records are compressed one at a time, so records written with or without compression can share a segment
+    private final EntityCodec codec;
+    private final SegmentDaoOptions options;
+    private final Map<String, Location> locations = new ConcurrentHashMap<>();
+    private final NavigableMap<Integer, Segment> segments = new TreeMap<>();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ScheduledExecutorService compactor;
+    private Segment active;
+    private boolean closed;
+
+    private record Location(Segment segment, int offset, int size) {
+    }
+
+    public SegmentDao(
+            Class<T> type,
+            KeyGetter<T> keyGetter,
+            KeySetter<T> keySetter,
+            Supplier<String> keyGenerator,
+            File dir,
+            ObjectMapper mapper) {
+        this(type, keyGetter, keySetter, keyGenerator, dir, mapper, null, SegmentDaoOptions.defaults());
+    }
+
+    public SegmentDao(
+            Class<T> type,
+            KeyGetter<T> keyGetter,
+            KeySetter<T> keySetter,
+            Supplier<String> keyGenerator,
+            File dir,
+            ObjectMapper mapper,
+            IndexationHandler<T> indexationHandler,
+            SegmentDaoOptions options) {
+        this.type = type;
+        this.keyGetter = keyGetter;
+        this.keySetter = keySetter;
+        this.keyGenerator = keyGenerator;
+        this.dir = dir;
+        this.codec = EntityCodec.compressed(EntityCodec.json(mapper), options.compression());
+        this.options = options;
+        open(indexationHandler);
+        if (options.isCompacting()) {
+            compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, MessageFormat.format("{0}-segment-compactor", ofType()));
+                thread.setDaemon(true);
+                return thread;
+            });
+            long interval = options.compactionInterval().toMillis();
+            compactor.scheduleWithFixedDelay(this::scheduledCompact, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            compactor = null;
+        }
+    }
+
+    @Override
+    public String ofType() {
+        return type.getSimpleName();
+    }
+
+    @Override
+    public KeyGetter<T> keyGetter() {
+        return keyGetter;
+    }
+
+    @Override
+    public boolean exists(String key) {
+        return locations.containsKey(key);
+    }
+
+    @Override
+    public T get(String key) throws NotExistsException {
+        Location location = locations.get(key);
+        if (location == null) {
+            throw new NotExistsException(key, ofType());
+        }
+        return read(location);
+    }
+
+    @Override
+    public T get(Predicate<? super T> predicate) throws NotExistsException, NotUniqueException {
+        List<T> list = stream(predicate).limit(2).toList();
+        if (list.isEmpty()) {
+            throw new NotExistsException(predicate, ofType());
+        }
+        if (list.size() > 1) {
+            throw new NotUniqueException(predicate, ofType());
+        }
+        return list.get(0);
+    }
+
+    @Override
+    public Stream<T> stream() {
+        return locations.values().stream()
+                .map(this::read);
+    }
+
+    @Override
+    public Stream<T> stream(Predicate<? super T> predicate) {
+        return stream()
+                .filter(predicate);
+    }
+
+    @Override
+    public T insert(T entity) throws AlreadyExistsException {
+        writeLock.lock();
+        try {
+            String key = keyGetter.get(entity);
+            if (key != null) {
+                if (exists(key)) {
+                    throw new AlreadyExistsException(key, ofType());
+                }
+            } else {
+                key = keyGenerator.get();
+                keySetter.set(entity, key);
+            }
+            put(key, entity);
+            sync();
+            return entity;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public T update(T entity) throws NotExistsException, DataIntegrityViolationException {
+        String key = keyGetter.get(entity);
+        if (key == null) {
+            throw new DataIntegrityViolationException(key, type, "No primary key defined during update");
+        }
+        writeLock.lock();
+        try {
+            if (!exists(key)) {
+                throw new NotExistsException(key, ofType());
+            }
+            put(key, entity);
+            sync();
+            return entity;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public T delete(String key) throws NotExistsException {
+        writeLock.lock();
+        try {
+            T deleted = get(key);
+            remove(key);
+            sync();
+            return deleted;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public List<T> insertAll(Collection<T> entities) throws AlreadyExistsException {
+        writeLock.lock();
+        try {
+            Set<String> keys = new HashSet<>();
+            for (T entity : entities) {
+                String key = keyGetter.get(entity);
+                if (key != null && (exists(key) || !keys.add(key))) {
+                    throw new AlreadyExistsException(key, ofType());
+                }
+            }
+            List<String> applied = new ArrayList<>();
+            try {
+                for (T entity : entities) {
+                    String key = keyGetter.get(entity);
+                    if (key == null) {
+                        key = keyGenerator.get();
+                        keySetter.set(entity, key);
+                    }
+                    put(key, entity);
+                    applied.add(key);
+                }
+            } catch (GenericDaoError err) {
+                throw new BatchWriteError(ofType(), applied, err);
+            } finally {
+                sync();
+            }
+            return new ArrayList<>(entities);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public List<T> updateAll(Collection<T> entities) throws NotExistsException, DataIntegrityViolationException {
+        writeLock.lock();
+        try {
+            for (T entity : entities) {
+                String key = keyGetter.get(entity);
+                if (key == null) {
+                    throw new DataIntegrityViolationException(key, type, "No primary key defined during update");
+                }
+                if (!exists(key)) {
+                    throw new NotExistsException(key, ofType());
+                }
+            }
+            List<String> applied = new ArrayList<>();
+            try {
+                for (T entity : entities) {
+                    String key = keyGetter.get(entity);
+                    put(key, entity);
+                    applied.add(key);
+                }
+            } catch (GenericDaoError err) {
+                throw new BatchWriteError(ofType(), applied, err);
+            } finally {
+                sync();
+            }
+            return new ArrayList<>(entities);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public List<T> deleteAll(Collection<String> keys) throws NotExistsException {
+        writeLock.lock();
+        try {
+            Set<String> batch = new LinkedHashSet<>(keys);
+            List<T> deleted = new ArrayList<>(batch.size());
+            for (String key : batch) {
+                deleted.add(get(key));
+            }
+            List<String> applied = new ArrayList<>();
+            try {
+                for (String key : batch) {
+                    remove(key);
+                    applied.add(key);
+                }
+            } catch (GenericDaoError err) {
+                throw new BatchWriteError(ofType(), applied, err);
+            } finally {
+                sync();
+            }
+            return deleted;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void compact() {
+        writeLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            for (Segment segment : new ArrayList<>(segments.values())) {
+                boolean oldest = segment == segments.firstEntry().getValue();
+                if (segment != active && segment.garbageRatio(oldest) >= options.compactionThreshold()) {
+                    compact(segment);
+                }
+            }
+            sync();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // An exception thrown by a scheduled task cancels every later run, so a failed compaction is left to the next one
+    private void scheduledCompact() {
+        try {
+            compact();
+        } catch (RuntimeException err) {
+            log.warn(MessageFormat.format("Unable to compact the {0} segments in {1}", ofType(), dir), err);
+        }
+    }
+
+    @Override
+    public void close() {
+        writeLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (compactor != null) {
+                compactor.shutdownNow();
+            }
+            active.force();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    int segmentCount() {
+        return segments.size();
+    }
+
+    private void put(String key, T entity) {
+        byte[] value;
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            codec.write(out, entity);
+            value = out.toByteArray();
+        } catch (IOException err) {
+            throw new DaoFileWriteError(active.file(), type, key, err);
+        }
+        Location location = append(Segment.PUT, key, value);
+        location.segment().addLive(location.size());
+        release(locations.put(key, location));
+    }
+
+    private void remove(String key) {
+        Location location = append(Segment.DELETE, key, null);
+        location.segment().addTombstone(location.size());
+        release(locations.remove(key));
+    }
+
+    private void release(Location location) {
+        if (location != null) {
+            location.segment().addLive(-location.size());
+        }
+    }
+
+    private Location append(byte kind, String key, byte[] value) {
+        checkOpen();
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        if (keyBytes.length > Short.MAX_VALUE) {
+            throw new DaoFileWriteError(active.file(), type, key, new IllegalArgumentException(MessageFormat.format(
+                    "A key of {0} bytes is longer than the {1} bytes a segment record can hold",
+                    keyBytes.length, Short.MAX_VALUE)));
+        }
+        if (Segment.sizeOf(keyBytes, value) + 4 > options.segmentSize()) {
+            throw new DaoFileWriteError(active.file(), type, key, new IllegalArgumentException(MessageFormat.format(
+                    "A record of {0} bytes does not fit in a segment of {1} bytes",
+                    Segment.sizeOf(keyBytes, value), options.segmentSize())));
+        }
+        int offset = active.append(kind, keyBytes, value);
+        if (offset < 0) {
+            roll();
+            offset = active.append(kind, keyBytes, value);
+        }
+        return new Location(active, offset, Segment.sizeOf(keyBytes, value));
+    }
+
+    private void roll() {
+        active.force();
+        try {
+            active = Segment.create(dir, active.id() + 1, options.segmentSize());
+            segments.put(active.id(), active);
+        } catch (IOException err) {
+            throw new GenericDaoError(MessageFormat.format("Unable to create a new {0} segment in {1}", ofType(), dir), err);
+        }
+    }
+
+    private void sync() {
+        if (options.forceOnWrite()) {
+            active.force();
+        }
+    }
+
+    private void compact(Segment segment) {
+        boolean oldest = segment == segments.firstEntry().getValue();
+        segment.scan(record -> {
+            if (record.kind() == Segment.PUT) {
+                Location location = locations.get(record.key());
+                if (location != null && location.segment() == segment && location.offset() == record.offset()) {
+                    Location moved = append(Segment.PUT, record.key(), record.value());
+                    moved.segment().addLive(moved.size());
+                    locations.put(record.key(), moved);
+                }
+            } else if (!oldest && !locations.containsKey(record.key())) {
+                // An older segment may still hold a put for this key so the tombstone has to survive
+                Location moved = append(Segment.DELETE, record.key(), null);
+                moved.segment().addTombstone(moved.size());
+            }
+        });
+        // The copies must be on disk before the only other copy is deleted, segments rolled meanwhile were forced on roll
+        active.force();
+        segments.remove(segment.id());
+        if (!segment.file().delete()) {
+            throw new GenericDaoError(MessageFormat.format("Unable to delete compacted {0} segment {1}", ofType(), segment.file()));
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new GenericDaoError(MessageFormat.format("The {0} segment store in {1} is closed", ofType(), dir));
+        }
+    }
+
+    private T read(Location location) {
+        try {
+            return codec.read(new ByteArrayInputStream(location.segment().value(location.offset())), type);
+        } catch (IOException err) {
+            throw new DaoFileReadError(location.segment().file(), type, err);
+        }
+    }
+
+    private void open(IndexationHandler<T> indexationHandler) {
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new GenericDaoError(MessageFormat.format("Unable to create {0} segment directory {1}", ofType(), dir));
+        }
+        try {
+            File[] files = dir.listFiles((parent, name) -> Segment.isSegment(name));
+            for (File file : files == null ? new File[0] : files) {
+                Segment segment = Segment.open(file);
+                segments.put(segment.id(), segment);
+            }
+            for (Segment segment : segments.values()) {
+                segment.scan(record -> {
+                    if (record.kind() == Segment.PUT) {
+                        Location location = new Location(segment, record.offset(), record.size());
+                        segment.addLive(location.size());
+                        release(locations.put(record.key(), location));
+                    } else {
+                        segment.addTombstone(record.size());
+                        release(locations.remove(record.key()));
+                    }
+                });
+            }
+            if (segments.isEmpty()) {
+                active = Segment.create(dir, 1, options.segmentSize());
+                segments.put(active.id(), active);
+            } else {
+                active = segments.lastEntry().getValue();
+            }
+        } catch (IOException err) {
+            throw new GenericDaoError(MessageFormat.format("Unable to load {0}s from {1}", type, dir), err);
+        }
+        if (indexationHandler != null) {
+            indexationHandler.start();
+            locations.forEach((key, location) -> indexationHandler.accept(new IndexedEntityCallback<>() {
+                @Override
+                public String getKey() {
+                    return key;
+                }
+
+                @Override
+                public T getEntity() {
+                    return read(location);
+                }
+            }));
+            indexationHandler.end();
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.k2.plan_it_cli.dao.segment;
+
+import com.k2.plan_it_cli.dao.Compression;
+
+import java.text.MessageFormat;
+import java.time.Duration;
+
+public record SegmentDaoOptions(int segmentSize, Duration compactionInterval, double compactionThreshold, boolean forceOnWrite, Compression compression) {
+
+    public SegmentDaoOptions {
+        if (segmentSize < Segment.HEADER_SIZE + 1) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "The segment size must be greater than {0} but was {1}", Segment.HEADER_SIZE, segmentSize
+            ));
+        }
+        if (compactionThreshold <= 0 || compactionThreshold > 1) {
+            throw new IllegalArgumentException(MessageFormat.format(
+                    "The compaction threshold must be greater than 0 and at most 1 but was {0}", compactionThreshold
+            ));
+        }
+        if (compression == null) {
+            throw new IllegalArgumentException("The compression must be given");
+        }
+    }
+
+    public static SegmentDaoOptions defaults() {
+        return new SegmentDaoOptions(16 * 1024 * 1024, Duration.ofMinutes(1), 0.5, false, Compression.NONE);
+    }
+
+    public SegmentDaoOptions withSegmentSize(int segmentSize) {
+        return new SegmentDaoOptions(segmentSize, compactionInterval, compactionThreshold, forceOnWrite, compression);
+    }
+
+    public SegmentDaoOptions withCompactionInterval(Duration compactionInterval) {
+        return new SegmentDaoOptions(segmentSize, compactionInterval, compactionThreshold, forceOnWrite, compression);
+    }
+
+    public SegmentDaoOptions withCompactionThreshold(double compactionThreshold) {
+        return new SegmentDaoOptions(segmentSize, compactionInterval, compactionThreshold, forceOnWrite, compression);
+    }
+
+    public SegmentDaoOptions withForceOnWrite(boolean forceOnWrite) {
+        return new SegmentDaoOptions(segmentSize, compactionInterval, compactionThreshold, forceOnWrite, compression);
+    }
+
+    public SegmentDaoOptions withCompression(Compression compression) {
+        return new SegmentDaoOptions(segmentSize, compactionInterval, compactionThreshold, forceOnWrite, compression);
+    }
+
+    public boolean isCompacting() {
+        return compactionInterval != null && !compactionInterval.isZero() && !compactionInterval.isNegative();
+    }
+}
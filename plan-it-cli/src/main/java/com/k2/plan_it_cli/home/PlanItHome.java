@@ -14,6 +14,7 @@ import java.util.stream.Stream;
 @Component
 public class PlanItHome {
     public static final String PLAN_IT_HOME_ENV = "PLAN_IT_HOME";
+    public static final String SOCKET_NAME = "planit.sock";
     final File home;
     final File bin;
     final File config;
@@ -95,6 +96,12 @@ public class PlanItHome {
         return plans;
     }
 
+    // Where a daemon for this home listens for commands
+    public File getSocket() {
+        checkHome();
+        return new File(home, SOCKET_NAME);
+    }
+
     public static String getHomeEnv() {
         return System.getenv(PLAN_IT_HOME_ENV);
     }
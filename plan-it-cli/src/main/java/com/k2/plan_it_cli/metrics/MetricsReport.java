@@ -0,0 +1,84 @@
+package com.k2.plan_it_cli.metrics;
+
+import com.k2.plan_it_cli.config.PlanItConstants;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.text.MessageFormat;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+@Component
+public class MetricsReport {
+    private final MeterRegistry registry;
+
+    @Autowired
+    public MetricsReport(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void report(PrintStream out) {
+        out.println(MessageFormat.format("{0} Statistics", PlanItConstants.APP_NAME));
+        out.println("=".repeat(PlanItConstants.APP_NAME.length() + 11));
+        out.println();
+        registry.getMeters().stream()
+                .sorted(Comparator.comparing(MetricsReport::describe))
+                .forEach(meter -> out.println(describe(meter) + " " + values(meter)));
+    }
+
+    public void export(File file) {
+        try (PrintStream out = new PrintStream(file)) {
+            report(out);
+        } catch (FileNotFoundException err) {
+            throw new IllegalStateException(MessageFormat.format("Unable to export statistics to {0}", file), err);
+        }
+    }
+
+    private static String describe(Meter meter) {
+        Meter.Id id = meter.getId();
+        return id.getName() + id.getTags().stream()
+                .map(tag -> tag.getKey() + "=" + tag.getValue())
+                .collect(Collectors.joining(",", "{", "}"));
+    }
+
+    private static String values(Meter meter) {
+        if (meter instanceof Timer timer) {
+            HistogramSnapshot snapshot = timer.takeSnapshot();
+            StringBuilder values = new StringBuilder()
+                    .append("count=").append(snapshot.count())
+                    .append(" mean=").append(millis(snapshot.mean(TimeUnit.MILLISECONDS)))
+                    .append(" max=").append(millis(snapshot.max(TimeUnit.MILLISECONDS)));
+            for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+                values.append(" p").append(Math.round(percentile.percentile() * 100))
+                        .append("=").append(millis(percentile.value(TimeUnit.MILLISECONDS)));
+            }
+            return values.toString();
+        }
+        if (meter instanceof TimeGauge gauge) {
+            return millis(gauge.value(TimeUnit.MILLISECONDS));
+        }
+        return StreamSupport.stream(meter.measure().spliterator(), false)
+                .map(measurement -> measurement.getStatistic().getTagValueRepresentation() + "=" + number(measurement.getValue()))
+                .collect(Collectors.joining(" "));
+    }
+
+    private static String millis(double value) {
+        return String.format(Locale.ROOT, "%.3fms", value);
+    }
+
+    private static String number(double value) {
+        return value == Math.rint(value) && !Double.isInfinite(value) ? String.valueOf((long) value) : String.format(Locale.ROOT, "%.3f", value);
+    }
+}
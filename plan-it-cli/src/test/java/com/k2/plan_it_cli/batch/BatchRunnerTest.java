@@ -0,0 +1,136 @@
+package com.k2.plan_it_cli.batch;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchRunnerTest {
+
+    private static BufferedReader script(String... lines) {
+        return new BufferedReader(new StringReader(String.join("\n", lines)));
+    }
+
+    @Test
+    public void shouldRunCommandsInOrderSkippingBlankAndCommentLines() throws IOException {
+        // Given
+        List<String> ran = new ArrayList<>();
+        List<Object> results = new ArrayList<>();
+        BatchRunner sut = new BatchRunner(command -> {
+            ran.add(command);
+            return "ran " + command;
+        }, 1);
+
+        // When
+        int count = sut.run(script("home show", "", "# a comment", "  stats show  "), results::add);
+
+        // Then
+        assertEquals(2, count);
+        assertEquals(List.of("home show", "stats show"), ran);
+        assertEquals(List.of("ran home show", "ran stats show"), results);
+    }
+
+    @Test
+    public void shouldRunBackgroundCommandsTogetherAndWaitForThemBeforeTheNextCommand() throws IOException {
+        // Given
+        CountDownLatch started = new CountDownLatch(2);
+        List<String> ran = Collections.synchronizedList(new ArrayList<>());
+        List<Object> results = new ArrayList<>();
+        Function<String, Object> commands = command -> {
+            if (command.startsWith("slow")) {
+                started.countDown();
+                try {
+                    // Neither returns unless the other has started alongside it
+                    assertTrue(started.await(5, TimeUnit.SECONDS));
+                } catch (InterruptedException err) {
+                    throw new IllegalStateException(err);
+                }
+            }
+            ran.add(command);
+            return command;
+        };
+        BatchRunner sut = new BatchRunner(commands, 2);
+
+        // When
+        sut.run(script("slow 1 &", "slow 2&", "last"), results::add);
+
+        // Then
+        assertEquals("last", ran.get(2));
+        assertEquals(List.of("slow 1", "slow 2", "last"), results);
+    }
+
+    @Test
+    public void shouldPrintWhatBackgroundCommandsPrintInScriptOrder() throws IOException {
+        // Given
+        CountDownLatch secondPrinted = new CountDownLatch(1);
+        Function<String, Object> commands = command -> {
+            if (command.equals("first")) {
+                try {
+                    // Only prints once the command after it has printed
+                    assertTrue(secondPrinted.await(5, TimeUnit.SECONDS));
+                } catch (InterruptedException err) {
+                    throw new IllegalStateException(err);
+                }
+            }
+            System.out.println("printed by " + command);
+            if (command.equals("second")) {
+                secondPrinted.countDown();
+            }
+            return "";
+        };
+        BatchRunner sut = new BatchRunner(commands, 2);
+        PrintStream systemOut = System.out;
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+
+        // When
+        System.setOut(new PrintStream(printed, true, Charset.defaultCharset()));
+        try {
+            sut.run(script("first &", "second &", "third"), result -> {});
+        } finally {
+            System.setOut(systemOut);
+        }
+
+        // Then
+        assertEquals(String.join(System.lineSeparator(), "printed by first", "printed by second", "printed by third", ""),
+                printed.toString(Charset.defaultCharset()));
+        assertSame(systemOut, System.out);
+    }
+
+    @Test
+    public void shouldReportTheLineOfACommandThatFailed() {
+        // Given
+        BatchRunner sut = new BatchRunner(command -> {
+            if (command.equals("bad")) {
+                throw new IllegalArgumentException("Bad command");
+            }
+            return command;
+        }, 2);
+
+        // When
+        IllegalStateException foreground = assertThrows(IllegalStateException.class, () -> sut.run(script("good", "# comment", "bad"), result -> {}));
+        IllegalStateException background = assertThrows(IllegalStateException.class, () -> sut.run(script("good &", "bad &"), result -> {}));
+
+        // Then
+        assertEquals("The command bad on line 3 of the script failed: Bad command", foreground.getMessage());
+        assertEquals("The command bad on line 2 of the script failed: Bad command", background.getMessage());
+        assertInstanceOf(IllegalArgumentException.class, background.getCause());
+    }
+
+    @Test
+    public void shouldRejectParallelismBelowOne() {
+        // Then When
+        assertThrows(IllegalArgumentException.class, () -> new BatchRunner(command -> command, 0));
+    }
+}
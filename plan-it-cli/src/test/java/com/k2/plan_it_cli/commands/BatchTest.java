@@ -0,0 +1,50 @@
+package com.k2.plan_it_cli.commands;
+
+import com.k2.plan_it_cli.batch.ShellCommands;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BatchTest {
+
+    @Mock
+    ShellCommands shellCommands;
+
+    @InjectMocks
+    Batch sut;
+
+    @Test
+    public void shouldConstructWithShellCommands() {
+        // Then
+        assertNotNull(sut);
+        assertEquals(shellCommands, sut.getShellCommands());
+    }
+
+    @Test
+    public void shouldRunEveryCommandInTheScript(@TempDir Path temp) throws IOException {
+        // Given
+        Path script = temp.resolve("script.txt");
+        Files.writeString(script, "migrate --from json --to smile\nhome show &\nstats export before.txt &\n");
+        doReturn("").when(shellCommands).apply(anyString());
+
+        // When
+        String result = sut.batch(script.toString(), 2);
+
+        // Then
+        assertEquals("Ran 3 commands from " + script, result);
+        verify(shellCommands).apply("migrate --from json --to smile");
+        verify(shellCommands).apply("home show");
+        verify(shellCommands).apply("stats export before.txt");
+    }
+}
@@ -0,0 +1,51 @@
+package com.k2.plan_it_cli.commands;
+
+import com.k2.plan_it_cli.batch.ShellCommands;
+import com.k2.plan_it_cli.home.PlanItHome;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.doReturn;
+
+@ExtendWith(MockitoExtension.class)
+public class DaemonTest {
+
+    @Mock
+    PlanItHome planItHome;
+    @Mock
+    ShellCommands shellCommands;
+
+    @InjectMocks
+    Daemon sut;
+
+    @Test
+    public void shouldConstructWithPlanItHomeAndShellCommands() {
+        // Then
+        assertNotNull(sut);
+        assertEquals(planItHome, sut.getPlanItHome());
+        assertEquals(shellCommands, sut.getShellCommands());
+    }
+
+    @Test
+    public void shouldServeOnTheSocketInTheHomeUntilIdle(@TempDir Path temp) throws IOException {
+        // Given
+        File socket = temp.resolve("planit.sock").toFile();
+        doReturn(socket).when(planItHome).getSocket();
+
+        // When
+        String result = sut.daemon(1);
+
+        // Then
+        assertEquals("Served 0 commands on " + socket + " before being idle for 1 seconds", result);
+        assertFalse(socket.exists());
+    }
+}
@@ -0,0 +1,49 @@
+package com.k2.plan_it_cli.commands;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.k2.plan_it_cli.home.PlanItHome;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.doReturn;
+
+@ExtendWith(MockitoExtension.class)
+public class MigrateTest {
+
+    @Mock
+    PlanItHome planItHome;
+
+    @InjectMocks
+    Migrate sut;
+
+    @Test
+    public void shouldConstructWithPlanItHome() {
+        // Then
+        assertNotNull(sut);
+        assertEquals(planItHome, sut.getPlanItHome());
+    }
+
+    @Test
+    public void shouldMigrateThePlansInTheHome(@TempDir Path temp) throws IOException {
+        // Given
+        new ObjectMapper().writeValue(temp.resolve("AAA.json").toFile(), Map.of("key", "AAA"));
+        doReturn(temp.toFile()).when(planItHome).getPlans();
+
+        // When
+        String result = sut.migrate("json", "cbor");
+
+        // Then
+        assertEquals("Migrated 1 files in " + temp + " from json to cbor", result);
+        assertTrue(Files.exists(temp.resolve("AAA.cbor")));
+    }
+}
@@ -0,0 +1,43 @@
+package com.k2.plan_it_cli.commands;
+
+import com.k2.plan_it_cli.dao.GenericDao;
+import com.k2.plan_it_cli.plans.model.Plan;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.doReturn;
+
+@ExtendWith(MockitoExtension.class)
+public class PlansTest {
+
+    @Mock
+    GenericDao<Plan> planDao;
+
+    @InjectMocks
+    Plans sut;
+
+    @Test
+    public void shouldConstructWithPlanDao() {
+        // Then
+        assertNotNull(sut);
+        assertEquals(planDao, sut.getPlanDao());
+    }
+
+    @Test
+    public void shouldListPlansByReference() {
+        // Given
+        doReturn(Stream.of(new Plan("BBB", "Second", "b"), new Plan("AAA", "First", "a"))).when(planDao).stream();
+
+        // When
+        String result = sut.list();
+
+        // Then
+        assertEquals("AAA First" + System.lineSeparator() + "BBB Second", result);
+    }
+}
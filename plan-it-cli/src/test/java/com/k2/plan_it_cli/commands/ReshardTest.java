@@ -0,0 +1,53 @@
+package com.k2.plan_it_cli.commands;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.k2.plan_it_cli.home.PlanItHome;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.doReturn;
+
+@ExtendWith(MockitoExtension.class)
+public class ReshardTest {
+
+    @Mock
+    PlanItHome planItHome;
+
+    @InjectMocks
+    Reshard sut;
+
+    @Test
+    public void shouldConstructWithPlanItHome() {
+        // Then
+        assertNotNull(sut);
+        assertEquals(planItHome, sut.getPlanItHome());
+    }
+
+    @Test
+    public void shouldReshardThePlansInTheHome(@TempDir Path temp) throws IOException {
+        // Given
+        new ObjectMapper().writeValue(temp.resolve("AAA.json").toFile(), Map.of("key", "AAA"));
+        doReturn(temp.toFile()).when(planItHome).getPlans();
+
+        // When
+        String result = sut.reshard(1, "json");
+
+        // Then
+        assertEquals("Moved 1 files in " + temp + " to a shard depth of 1", result);
+        assertFalse(Files.exists(temp.resolve("AAA.json")));
+        try (Stream<Path> shards = Files.list(temp)) {
+            assertEquals(1, shards.filter(Files::isDirectory).count());
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.k2.plan_it_cli.commands;
+
+import com.k2.plan_it_cli.metrics.MetricsReport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class StatsTest {
+
+    @Mock
+    MetricsReport metricsReport;
+
+    @InjectMocks
+    Stats sut;
+
+    @Test
+    public void shouldConstructWithMetricsReport() {
+        // Then
+        assertNotNull(sut);
+        assertEquals(metricsReport, sut.getMetricsReport());
+    }
+
+    @Test
+    public void shouldPresentMetricsReportOnShow() {
+        // Then When
+        assertEquals("", sut.show());
+        verify(metricsReport).report(System.out);
+    }
+
+    @Test
+    public void shouldExportMetricsReportToFile() {
+        // Given
+        File file = new File("stats.txt");
+
+        // When
+        assertEquals("Exported statistics to stats.txt", sut.export(file));
+
+        // Then
+        verify(metricsReport).export(file);
+    }
+}
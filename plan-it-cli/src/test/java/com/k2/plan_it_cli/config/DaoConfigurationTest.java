@@ -0,0 +1,54 @@
+package com.k2.plan_it_cli.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.k2.plan_it_cli.batch.ShellCommands;
+import com.k2.plan_it_cli.home.PlanItHome;
+import com.k2.plan_it_cli.metrics.MetricsReport;
+import com.k2.plan_it_cli.plans.model.Plan;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.doReturn;
+
+@SpringBootTest(properties = "spring.shell.interactive.enabled=false")
+public class DaoConfigurationTest {
+
+    @TempDir
+    static Path plans;
+
+    @MockBean
+    PlanItHome planItHome;
+
+    @Autowired
+    ShellCommands shellCommands;
+
+    @Autowired
+    MetricsReport metricsReport;
+
+    @Test
+    public void shouldRecordCommandsThatUseThePlanDao() throws IOException {
+        // Given
+        new ObjectMapper().writeValue(plans.resolve("AAA.json").toFile(), new Plan("AAA", "First", "a"));
+        doReturn(plans.toFile()).when(planItHome).getPlans();
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+
+        // When
+        Object listed = shellCommands.apply("plans list");
+        metricsReport.report(new PrintStream(report, true, StandardCharsets.UTF_8));
+
+        // Then
+        assertEquals("AAA First", listed);
+        assertTrue(report.toString(StandardCharsets.UTF_8).contains("planit.dao.operation{operation=stream,type=Plan} count=1 "),
+                report.toString(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,76 @@
+package com.k2.plan_it_cli.daemon;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DaemonClientTest {
+
+    @TempDir
+    Path temp;
+
+    @Test
+    public void shouldNotConnectWithoutListeningDaemon() throws IOException {
+        // Given
+        Path stale = Files.writeString(temp.resolve("planit.sock"), "left behind");
+
+        // Then When
+        assertNull(DaemonClient.connect(temp.resolve("missing.sock")));
+        assertNull(DaemonClient.connect(stale));
+    }
+
+    @Test
+    public void shouldReportDaemonLostAfterCommandWasSent() throws Exception {
+        // Given
+        Path socket = temp.resolve("planit.sock");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ByteArrayOutputStream errors = new ByteArrayOutputStream();
+        try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+            server.bind(UnixDomainSocketAddress.of(socket));
+            // Takes the whole command and starts to answer, then goes away before the end of the output
+            CompletableFuture<String> received = CompletableFuture.supplyAsync(() -> {
+                try (SocketChannel client = server.accept()) {
+                    DataInputStream in = new DataInputStream(Channels.newInputStream(client));
+                    String[] words = new String[in.readInt()];
+                    for (int i = 0; i < words.length; i++) {
+                        words[i] = in.readUTF();
+                    }
+                    DataOutputStream out = new DataOutputStream(Channels.newOutputStream(client));
+                    out.writeInt(4);
+                    out.write("half".getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                    return String.join(" ", words);
+                } catch (IOException err) {
+                    throw new IllegalStateException(err);
+                }
+            });
+
+            // When
+            int status = DaemonClient.forward(DaemonClient.connect(socket), new String[]{"reshard", "2"}, output,
+                    new PrintStream(errors, true, StandardCharsets.UTF_8));
+
+            // Then
+            assertEquals("reshard 2", received.get(5, TimeUnit.SECONDS));
+            assertEquals(DaemonServer.FAILURE, status);
+            assertEquals("half", output.toString(StandardCharsets.UTF_8));
+            assertTrue(errors.toString(StandardCharsets.UTF_8).startsWith("The daemon stopped answering reshard 2, so it may or may not have run"));
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.k2.plan_it_cli.daemon;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DaemonServerTest {
+
+    @TempDir
+    Path temp;
+
+    private CompletableFuture<Integer> start(Path socket, Duration idleTimeout, Function<String[], Object> commands) throws InterruptedException {
+        return start(socket, idleTimeout, DaemonServer.REQUEST_TIMEOUT, commands);
+    }
+
+    private CompletableFuture<Integer> start(Path socket, Duration idleTimeout, Duration requestTimeout, Function<String[], Object> commands) throws InterruptedException {
+        CompletableFuture<Integer> served = CompletableFuture.supplyAsync(() -> {
+            try {
+                return new DaemonServer(socket, idleTimeout, requestTimeout, commands).serve();
+            } catch (IOException err) {
+                throw new IllegalStateException(err);
+            }
+        });
+        while (!isListening(socket) && !served.isDone()) {
+            Thread.sleep(10);
+        }
+        return served;
+    }
+
+    // The socket file is there a moment before the daemon listens on it, so only a connection shows that it is up
+    private static boolean isListening(Path socket) {
+        try (SocketChannel probe = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+            return true;
+        } catch (IOException err) {
+            return false;
+        }
+    }
+
+    @Test
+    public void shouldServeCommandsUntilIdleForTheTimeout() throws Exception {
+        // Given
+        Path socket = temp.resolve("planit.sock");
+        CompletableFuture<Integer> served = start(socket, Duration.ofSeconds(1), words -> {
+            if (words[0].equals("fail")) {
+                throw new IllegalArgumentException("Failed " + String.join(" ", words));
+            }
+            System.out.println("Printed by " + words[0]);
+            return "Result of " + String.join(" ", words);
+        });
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ByteArrayOutputStream failure = new ByteArrayOutputStream();
+
+        // When
+        int status = DaemonClient.forward(socket, new String[]{"home", "show"}, output);
+        int failed = DaemonClient.forward(socket, new String[]{"fail", "now"}, failure);
+
+        // Then
+        assertEquals(DaemonServer.SUCCESS, status);
+        assertEquals("Printed by home" + System.lineSeparator() + "Result of home show" + System.lineSeparator(), output.toString(StandardCharsets.UTF_8));
+        assertEquals(DaemonServer.FAILURE, failed);
+        assertEquals("Failed fail now" + System.lineSeparator(), failure.toString(StandardCharsets.UTF_8));
+        assertEquals(2, served.get(5, TimeUnit.SECONDS));
+        assertFalse(Files.exists(socket));
+    }
+
+    @Test
+    public void shouldReplaceStaleSocketButNotOneInUse() throws Exception {
+        // Given
+        Path socket = temp.resolve("planit.sock");
+        Files.writeString(socket, "left behind");
+        CompletableFuture<Integer> served = start(socket, Duration.ofSeconds(2), words -> "");
+
+        // When
+        IllegalStateException err = assertThrows(IllegalStateException.class,
+                () -> new DaemonServer(socket, Duration.ofSeconds(1), words -> "").serve());
+
+        // Then
+        assertEquals("A daemon is already listening on " + socket, err.getMessage());
+        assertEquals(0, served.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shouldDropClientsThatSendNoCommandInTime() throws Exception {
+        // Given
+        Path socket = temp.resolve("planit.sock");
+        CompletableFuture<Integer> served = start(socket, Duration.ofSeconds(1), Duration.ofMillis(200), words -> String.join(" ", words));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // When
+        try (SocketChannel silent = SocketChannel.open(UnixDomainSocketAddress.of(socket));
+             SocketChannel garbled = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+            garbled.write(ByteBuffer.allocate(4).putInt(0, -1));
+            int status = DaemonClient.forward(socket, new String[]{"home", "show"}, output);
+
+            // Then
+            assertEquals(DaemonServer.SUCCESS, status);
+            assertEquals("home show" + System.lineSeparator(), output.toString(StandardCharsets.UTF_8));
+        }
+        assertEquals(1, served.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void shouldRejectTimeoutsThatAreNotPositive() {
+        // Then When
+        assertThrows(IllegalArgumentException.class, () -> new DaemonServer(temp.resolve("planit.sock"), Duration.ZERO, words -> ""));
+        assertThrows(IllegalArgumentException.class, () -> new DaemonServer(temp.resolve("planit.sock"), Duration.ofSeconds(1), Duration.ZERO, words -> ""));
+    }
+}
@@ -0,0 +1,25 @@
+package com.k2.plan_it_cli.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class BatchWriteErrorTest {
+
+    @Test
+    public void shouldConstructWithMessageForTypeAppliedKeysAndCause() {
+        // Given
+        RuntimeException cause = new RuntimeException("CAUSE");
+
+        // When
+        BatchWriteError err = new BatchWriteError("TYPE", List.of("AAA", "BBB"), cause);
+
+        // Then
+        assertEquals("A batch of TYPEs failed after 2 of its keys were applied: CAUSE", err.getMessage());
+        assertEquals("TYPE", err.getType());
+        assertEquals(List.of("AAA", "BBB"), err.getApplied());
+        assertEquals(cause, err.getCause());
+    }
+}
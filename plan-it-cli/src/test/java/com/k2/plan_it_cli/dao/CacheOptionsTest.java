@@ -0,0 +1,34 @@
+package com.k2.plan_it_cli.dao;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CacheOptionsTest {
+
+    @Test
+    public void shouldDefaultToUnbounded() {
+        // When
+        CacheOptions options = DirectoryDaoOptions.defaults().cache();
+
+        // Then
+        assertFalse(options.isBounded());
+    }
+
+    @Test
+    public void shouldBeBoundedBySizeOrWeight() {
+        // Then When
+        assertTrue(CacheOptions.maximumSize(10).isBounded());
+        assertTrue(CacheOptions.maximumWeight(1024).isBounded());
+        assertThrows(IllegalArgumentException.class, () -> new CacheOptions(10, 1024, 0));
+        assertThrows(IllegalArgumentException.class, () -> CacheOptions.maximumSize(-1));
+    }
+
+    @Test
+    public void shouldOnlyWatchHeapPressureWhenBounded() {
+        // Then When
+        assertEquals(0.8, CacheOptions.maximumSize(10).withHeapPressureThreshold(0.8).heapPressureThreshold());
+        assertThrows(IllegalArgumentException.class, () -> CacheOptions.unbounded().withHeapPressureThreshold(0.8));
+        assertThrows(IllegalArgumentException.class, () -> CacheOptions.maximumSize(10).withHeapPressureThreshold(1));
+    }
+}
@@ -5,16 +5,22 @@ import lombok.Getter;
 import lombok.Setter;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 
@@ -53,6 +59,7 @@ public class CachingDirectoryDaoTest {
         doReturn(aaa).when(mapper).readValue(paths.files.get(0), APojo.class);
 
         try(MockedStatic<Files> filesMockedStatic = mockStatic(Files.class)) {
+            plainFiles(filesMockedStatic);
             filesMockedStatic.when(() -> {
                 Files.list(paths.path);
             }).thenReturn(paths.entries.stream());
@@ -74,6 +81,297 @@ public class CachingDirectoryDaoTest {
 
     }
 
+    @Test
+    public void shouldLoadInParallelOnConstruct(@TempDir Path temp) throws IOException, NotExistsException {
+        // Given
+        Paths paths = mockPaths(dir, "AAA.json", "BBB.json", "CCC.xml");
+        // Static mocks do not reach the loading threads, so they peek at a real plain file
+        Path plain = Files.writeString(temp.resolve("plain.json"), "{}");
+        doReturn(plain).when(paths.files.get(0)).toPath();
+        doReturn(plain).when(paths.files.get(1)).toPath();
+        APojo aaa = new APojo("AAA", "NAME");
+        doReturn(aaa).when(mapper).readValue(paths.files.get(0), APojo.class);
+        APojo bbb = new APojo("BBB", "NAME");
+        doReturn(bbb).when(mapper).readValue(paths.files.get(1), APojo.class);
+
+        try(MockedStatic<Files> filesMockedStatic = mockStatic(Files.class)) {
+            plainFiles(filesMockedStatic);
+            filesMockedStatic.when(() -> {
+                Files.list(paths.path);
+            }).thenReturn(paths.entries.stream());
+
+            // When
+            sut = new CachingDirectoryDao<>(
+                    APojo.class,
+                    APojo::getKey,
+                    (entity, key) -> {entity.setKey(key); return entity;},
+                    keyGenerator,
+                    dir,
+                    mapper,
+                    null,
+                    DirectoryDaoOptions.defaults().withParallelism(2));
+
+            // Then
+            assertEquals(aaa, sut.get("AAA"));
+            assertEquals(bbb, sut.get("BBB"));
+            assertFalse(sut.exists("CCC"));
+        }
+    }
+
+    @Test
+    public void shouldLoadUnchangedEntitiesOnFirstUseWhenStartingFromManifest(@TempDir Path temp) throws IOException, NotExistsException {
+        // Given
+        ObjectMapper jsonMapper = spy(new ObjectMapper());
+        File aaa = temp.resolve("AAA.json").toFile();
+        jsonMapper.writeValue(aaa, new DirectoryDaoTest.Stored("AAA", "aaa"));
+        aaa.setLastModified(System.currentTimeMillis() - 60_000);
+        new CachingDirectoryDao<>(
+                DirectoryDaoTest.Stored.class,
+                DirectoryDaoTest.Stored::getKey,
+                (entity, key) -> {entity.setKey(key); return entity;},
+                keyGenerator,
+                temp.toFile(),
+                jsonMapper,
+                null,
+                DirectoryDaoOptions.defaults().withManifest(true));
+        clearInvocations(jsonMapper);
+
+        // When
+        CachingDirectoryDao<DirectoryDaoTest.Stored> warm = new CachingDirectoryDao<>(
+                DirectoryDaoTest.Stored.class,
+                DirectoryDaoTest.Stored::getKey,
+                (entity, key) -> {entity.setKey(key); return entity;},
+                keyGenerator,
+                temp.toFile(),
+                jsonMapper,
+                null,
+                DirectoryDaoOptions.defaults().withManifest(true));
+
+        // Then
+        verify(jsonMapper, never()).readValue(aaa, DirectoryDaoTest.Stored.class);
+        assertEquals("aaa", warm.get("AAA").getName());
+        assertEquals(1, warm.stream().count());
+        verify(jsonMapper, times(1)).readValue(aaa, DirectoryDaoTest.Stored.class);
+    }
+
+    @Test
+    public void shouldServeBatchWritesFromCache(@TempDir Path temp) throws IOException, NotExistsException, AlreadyExistsException, DataIntegrityViolationException {
+        // Given
+        ObjectMapper jsonMapper = spy(new ObjectMapper());
+        CachingDirectoryDao<DirectoryDaoTest.Stored> dao = new CachingDirectoryDao<>(
+                DirectoryDaoTest.Stored.class,
+                DirectoryDaoTest.Stored::getKey,
+                (entity, key) -> {entity.setKey(key); return entity;},
+                keyGenerator,
+                temp.toFile(),
+                jsonMapper);
+        dao.insertAll(List.of(new DirectoryDaoTest.Stored("AAA", "aaa"), new DirectoryDaoTest.Stored("BBB", "bbb")));
+
+        // When
+        dao.updateAll(List.of(new DirectoryDaoTest.Stored("AAA", "updated")));
+        dao.deleteAll(List.of("BBB"));
+
+        // Then
+        assertEquals("updated", dao.get("AAA").getName());
+        assertFalse(dao.exists("BBB"));
+        assertEquals(1, dao.stream().count());
+        verify(jsonMapper, never()).readValue(any(File.class), eq(DirectoryDaoTest.Stored.class));
+    }
+
+    @Test
+    public void shouldCacheLastWriteOfConcurrentUpdatesToTheSameKey(@TempDir Path temp) throws Exception {
+        // Given
+        CachingDirectoryDao<DirectoryDaoTest.Stored> dao = new CachingDirectoryDao<>(
+                DirectoryDaoTest.Stored.class,
+                DirectoryDaoTest.Stored::getKey,
+                (entity, key) -> {entity.setKey(key); return entity;},
+                keyGenerator,
+                temp.toFile(),
+                new ObjectMapper());
+        dao.insert(new DirectoryDaoTest.Stored("AAA", "aaa"));
+        ExecutorService writers = Executors.newFixedThreadPool(4);
+
+        // When
+        List<Future<?>> updates = new ArrayList<>();
+        for (int w = 0; w < 4; w++) {
+            int writer = w;
+            updates.add(writers.submit(() -> {
+                for (int i = 0; i < 25; i++) {
+                    dao.update(new DirectoryDaoTest.Stored("AAA", "writer " + writer + " update " + i));
+                }
+                return null;
+            }));
+        }
+        for (Future<?> update : updates) {
+            update.get();
+        }
+        writers.shutdown();
+
+        // Then
+        String onDisk = new ObjectMapper().readValue(temp.resolve("AAA.json").toFile(), DirectoryDaoTest.Stored.class).getName();
+        assertEquals(onDisk, dao.get("AAA").getName());
+    }
+
+    @Test
+    public void shouldRefreshCacheFromExternalChangesWhenWatching(@TempDir Path temp) throws Exception {
+        // Given
+        ObjectMapper jsonMapper = new ObjectMapper();
+        CachingDirectoryDao<DirectoryDaoTest.Stored> dao = new CachingDirectoryDao<>(
+                DirectoryDaoTest.Stored.class,
+                DirectoryDaoTest.Stored::getKey,
+                (entity, key) -> {entity.setKey(key); return entity;},
+                keyGenerator,
+                temp.toFile(),
+                jsonMapper,
+                null,
+                DirectoryDaoOptions.defaults().withWatch(true).withWatchDebounce(Duration.ofMillis(50)));
+        dao.insert(new DirectoryDaoTest.Stored("AAA", "aaa"));
+        dao.insert(new DirectoryDaoTest.Stored("BBB", "bbb"));
+
+        try {
+            // When
+            jsonMapper.writeValue(temp.resolve("AAA.json").toFile(), new DirectoryDaoTest.Stored("AAA", "changed"));
+            Files.delete(temp.resolve("BBB.json"));
+
+            // Then
+            DirectoryDaoTest.awaitUntil(() -> !dao.exists("BBB") && "changed".equals(dao.stream()
+                    .filter(stored -> stored.getKey().equals("AAA"))
+                    .findFirst()
+                    .map(DirectoryDaoTest.Stored::getName)
+                    .orElse(null)));
+            assertEquals("changed", dao.get("AAA").getName());
+            assertEquals(1, dao.stream().count());
+        } finally {
+            dao.close();
+        }
+    }
+
+    @Test
+    public void shouldNotPreloadBoundedCache(@TempDir Path temp) throws IOException, NotExistsException {
+        // Given
+        ObjectMapper jsonMapper = spy(new ObjectMapper());
+        for (int i = 0; i < 5; i++) {
+            jsonMapper.writeValue(temp.resolve("K" + i + ".json").toFile(), new DirectoryDaoTest.Stored("K" + i, "name " + i));
+        }
+        clearInvocations(jsonMapper);
+
+        // When
+        CachingDirectoryDao<DirectoryDaoTest.Stored> dao = new CachingDirectoryDao<>(
+                DirectoryDaoTest.Stored.class,
+                DirectoryDaoTest.Stored::getKey,
+                (entity, key) -> {entity.setKey(key); return entity;},
+                keyGenerator,
+                temp.toFile(),
+                jsonMapper,
+                null,
+                DirectoryDaoOptions.defaults().withCache(CacheOptions.maximumSize(2)));
+
+        // Then
+        verify(jsonMapper, never()).readValue(any(File.class), eq(DirectoryDaoTest.Stored.class));
+        assertEquals(0, dao.cacheSize());
+        assertEquals("name 3", dao.get("K3").getName());
+        assertEquals("name 3", dao.get("K3").getName());
+        verify(jsonMapper, times(1)).readValue(any(File.class), eq(DirectoryDaoTest.Stored.class));
+    }
+
+    @Test
+    public void shouldEvictFromCacheBoundedBySize(@TempDir Path temp) throws NotExistsException, AlreadyExistsException {
+        // Given
+        CachingDirectoryDao<DirectoryDaoTest.Stored> dao = new CachingDirectoryDao<>(
+                DirectoryDaoTest.Stored.class,
+                DirectoryDaoTest.Stored::getKey,
+                (entity, key) -> {entity.setKey(key); return entity;},
+                keyGenerator,
+                temp.toFile(),
+                new ObjectMapper(),
+                null,
+                DirectoryDaoOptions.defaults().withCache(CacheOptions.maximumSize(10)));
+
+        // When
+        for (int i = 0; i < 100; i++) {
+            dao.insert(new DirectoryDaoTest.Stored("K" + i, "name " + i));
+        }
+
+        // Then
+        assertTrue(dao.cacheSize() <= 10);
+        for (int i = 0; i < 100; i++) {
+            assertEquals("name " + i, dao.get("K" + i).getName());
+        }
+        assertEquals(100, dao.stream().count());
+        assertTrue(dao.cacheSize() <= 10);
+    }
+
+    @Test
+    public void shouldEvictFromCacheBoundedByWeight(@TempDir Path temp) throws NotExistsException, AlreadyExistsException {
+        // Given
+        CachingDirectoryDao<DirectoryDaoTest.Stored> dao = new CachingDirectoryDao<>(
+                DirectoryDaoTest.Stored.class,
+                DirectoryDaoTest.Stored::getKey,
+                (entity, key) -> {entity.setKey(key); return entity;},
+                keyGenerator,
+                temp.toFile(),
+                new ObjectMapper(),
+                null,
+                DirectoryDaoOptions.defaults().withCache(CacheOptions.maximumWeight(1024)));
+
+        // When
+        for (int i = 0; i < 20; i++) {
+            dao.insert(new DirectoryDaoTest.Stored("K" + i, "x".repeat(200)));
+        }
+
+        // Then
+        assertTrue(dao.cacheSize() <= 5);
+        assertEquals(200, dao.get("K0").getName().length());
+    }
+
+    @Test
+    public void shouldShrinkBoundedCacheUnderHeapPressure(@TempDir Path temp) {
+        // Given
+        CachingDirectoryDao<DirectoryDaoTest.Stored> dao = new CachingDirectoryDao<>(
+                DirectoryDaoTest.Stored.class,
+                DirectoryDaoTest.Stored::getKey,
+                (entity, key) -> {entity.setKey(key); return entity;},
+                keyGenerator,
+                temp.toFile(),
+                new ObjectMapper(),
+                null,
+                DirectoryDaoOptions.defaults().withCache(CacheOptions.maximumSize(100).withHeapPressureThreshold(0.9)));
+
+        // When
+        dao.onHeapPressure();
+        dao.onHeapPressure();
+
+        // Then
+        assertEquals(25, dao.cacheMaximum());
+        dao.close();
+    }
+
+    @Test
+    public void shouldShrinkNoFurtherThanFloorAndRestoreOnRelief(@TempDir Path temp) {
+        // Given
+        CachingDirectoryDao<DirectoryDaoTest.Stored> dao = new CachingDirectoryDao<>(
+                DirectoryDaoTest.Stored.class,
+                DirectoryDaoTest.Stored::getKey,
+                (entity, key) -> {entity.setKey(key); return entity;},
+                keyGenerator,
+                temp.toFile(),
+                new ObjectMapper(),
+                null,
+                DirectoryDaoOptions.defaults().withCache(CacheOptions.maximumSize(100).withHeapPressureThreshold(0.9)));
+
+        // When
+        for (int i = 0; i < 10; i++) {
+            dao.onHeapPressure();
+        }
+        long shrunk = dao.cacheMaximum();
+        dao.onHeapRelief();
+
+        // Then
+        assertEquals(100 / CachingDirectoryDao.SHRINK_LIMIT, shrunk);
+        assertEquals(100, dao.cacheMaximum());
+        dao.close();
+    }
+
     @Test
     public void shouldThrowNotExistsExceptionWhenKeyDoesNotExistOnGet() throws IOException {
         // Given
@@ -82,6 +380,7 @@ public class CachingDirectoryDaoTest {
         doReturn(aaa).when(mapper).readValue(paths.files.get(0), APojo.class);
 
         try(MockedStatic<Files> filesMockedStatic = mockStatic(Files.class)) {
+            plainFiles(filesMockedStatic);
             filesMockedStatic.when(() -> {
                 Files.list(paths.path);
             }).thenReturn(paths.entries.stream());
@@ -107,6 +406,7 @@ public class CachingDirectoryDaoTest {
         doReturn(aaa).when(mapper).readValue(paths.files.get(0), APojo.class);
 
         try(MockedStatic<Files> filesMockedStatic = mockStatic(Files.class)) {
+            plainFiles(filesMockedStatic);
             filesMockedStatic.when(() -> {
                 Files.list(paths.path);
             }).thenReturn(paths.entries.stream());
@@ -139,6 +439,7 @@ public class CachingDirectoryDaoTest {
         doReturn(true).when(predicate).test(aaa);
 
         try(MockedStatic<Files> filesMockedStatic = mockStatic(Files.class)) {
+            plainFiles(filesMockedStatic);
             filesMockedStatic.when(() -> {
                 Files.list(paths.path);
             }).thenReturn(paths.entries.stream());
@@ -172,6 +473,7 @@ public class CachingDirectoryDaoTest {
         File b = mock(File.class);
 
         try(MockedStatic<Files> filesMockedStatic = mockStatic(Files.class)) {
+            plainFiles(filesMockedStatic);
             filesMockedStatic.when(() -> {
                 Files.list(paths.path);
             }).thenReturn(paths.entries.stream());
@@ -185,7 +487,11 @@ public class CachingDirectoryDaoTest {
                     mapper);
 
             CachingDirectoryDao<APojo> spy = spy(sut);
+            File bTemp = mock(File.class);
             doReturn(b).when(spy).newFile(dir, "BBB.json");
+            doReturn(dir).when(b).getParentFile();
+            doReturn("BBB.json").when(b).getName();
+            doReturn(bTemp).when(spy).newFile(dir, "BBB.json.tmp");
 
             // When
             APojo result = spy.insert(bbb);
@@ -193,7 +499,7 @@ public class CachingDirectoryDaoTest {
             // Then
             assertTrue(spy.exists("BBB"));
             assertEquals("BBB", result.getKey());
-            verify(mapper).writeValue(b, bbb);
+            verify(mapper).writeValue(bTemp, bbb);
         }
 
     }
@@ -207,6 +513,7 @@ public class CachingDirectoryDaoTest {
         APojo updated = new APojo("AAA", "UPDATED");
 
         try(MockedStatic<Files> filesMockedStatic = mockStatic(Files.class)) {
+            plainFiles(filesMockedStatic);
             filesMockedStatic.when(() -> {
                 Files.list(paths.path);
             }).thenReturn(paths.entries.stream());
@@ -237,6 +544,7 @@ public class CachingDirectoryDaoTest {
         doReturn(aaa).when(mapper).readValue(paths.files.get(0), APojo.class);
 
         try(MockedStatic<Files> filesMockedStatic = mockStatic(Files.class)) {
+            plainFiles(filesMockedStatic);
             filesMockedStatic.when(() -> {
                 Files.list(paths.path);
             }).thenReturn(paths.entries.stream());
@@ -274,6 +582,11 @@ public class CachingDirectoryDaoTest {
             this.files = files;
         }
     }
+    // The codec peeks at each file for a compression magic number before handing it to the mapper
+    private static void plainFiles(MockedStatic<Files> files) {
+        files.when(() -> Files.newInputStream(any())).thenAnswer(invocation -> new ByteArrayInputStream(new byte[]{'{', '}'}));
+    }
+
     private Paths mockPaths(File dir, String ... contents) {
         List<Path> paths = new ArrayList<>();
         List<File> files = new ArrayList<>();
@@ -284,15 +597,8 @@ public class CachingDirectoryDaoTest {
             File f = mock(File.class);
             paths.add(p);
             files.add(f);
-            if(entry.endsWith(".json")) {
-                doReturn(true).when(p).endsWith(".json");
-            } else {
-                doReturn(false).when(p).endsWith(".json");
-            }
             doReturn(f).when(p).toFile();
-            if (p.endsWith(".json")) {
-                doReturn(entry).when(f).getName();
-            }
+            doReturn(entry).when(f).getName();
         }
         return new Paths(path, paths, files);
     }
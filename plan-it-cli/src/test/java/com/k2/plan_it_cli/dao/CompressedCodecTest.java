@@ -0,0 +1,148 @@
+package com.k2.plan_it_cli.dao;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import net.jpountz.lz4.LZ4FrameOutputStream;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompressedCodecTest {
+
+    EntityCodec json = EntityCodec.json(new ObjectMapper());
+    DirectoryDaoTest.Stored stored = new DirectoryDaoTest.Stored("AAA", "a".repeat(1000));
+
+    @Test
+    public void shouldWriteDeflateAsGzip(@TempDir Path temp) throws IOException {
+        // Given
+        EntityCodec sut = EntityCodec.compressed(json, Compression.DEFLATE);
+        File file = temp.resolve("AAA.json").toFile();
+
+        // When
+        sut.write(file, stored);
+
+        // Then
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        assertEquals((byte) 0x1f, bytes[0]);
+        assertEquals((byte) 0x8b, bytes[1]);
+        assertTrue(bytes.length < 200);
+        assertEquals(stored.getName(), sut.read(file, DirectoryDaoTest.Stored.class).getName());
+    }
+
+    @Test
+    public void shouldWriteLz4Frames(@TempDir Path temp) throws IOException {
+        // Given
+        EntityCodec sut = EntityCodec.compressed(json, Compression.LZ4);
+        File file = temp.resolve("AAA.json").toFile();
+
+        // When
+        sut.write(file, stored);
+
+        // Then
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        assertArrayEquals(new byte[]{0x04, 0x22, 0x4d, 0x18}, new byte[]{bytes[0], bytes[1], bytes[2], bytes[3]});
+        assertTrue(bytes.length < 200);
+        assertEquals(stored.getName(), sut.read(file, DirectoryDaoTest.Stored.class).getName());
+    }
+
+    @Test
+    public void shouldReadWhateverCompressionTheFileWasWrittenWith(@TempDir Path temp) throws IOException {
+        // Given
+        File plain = temp.resolve("plain.json").toFile();
+        File deflated = temp.resolve("deflated.json").toFile();
+        json.write(plain, stored);
+        EntityCodec.compressed(json, Compression.DEFLATE).write(deflated, stored);
+        EntityCodec sut = EntityCodec.compressed(json, Compression.LZ4);
+
+        // When Then
+        assertEquals(stored.getName(), sut.read(plain, DirectoryDaoTest.Stored.class).getName());
+        assertEquals(stored.getName(), sut.read(deflated, DirectoryDaoTest.Stored.class).getName());
+    }
+
+    @Test
+    public void shouldReadFramesWrittenByOtherTools(@TempDir Path temp) throws IOException {
+        // Given
+        File gzipped = temp.resolve("gzipped.json").toFile();
+        File framed = temp.resolve("framed.json").toFile();
+        try (OutputStream out = new GZIPOutputStream(new FileOutputStream(gzipped))) {
+            json.write(out, stored);
+        }
+        try (OutputStream out = new LZ4FrameOutputStream(new FileOutputStream(framed))) {
+            json.write(out, stored);
+        }
+        EntityCodec sut = EntityCodec.compressed(json, Compression.LZ4);
+
+        // When Then
+        assertEquals(stored.getName(), sut.read(gzipped, DirectoryDaoTest.Stored.class).getName());
+        assertEquals(stored.getName(), sut.read(framed, DirectoryDaoTest.Stored.class).getName());
+    }
+
+    @Test
+    public void shouldRoundTripEntitiesLargerThanABlock(@TempDir Path temp) throws IOException {
+        // Given
+        DirectoryDaoTest.Stored large = new DirectoryDaoTest.Stored("BBB", "abcdefghij".repeat(20_000));
+        File deflated = temp.resolve("deflated.json").toFile();
+        File framed = temp.resolve("framed.json").toFile();
+
+        // When
+        EntityCodec.compressed(json, Compression.DEFLATE).write(deflated, large);
+        EntityCodec.compressed(json, Compression.LZ4).write(framed, large);
+
+        // Then
+        EntityCodec sut = EntityCodec.compressed(json, Compression.LZ4);
+        assertEquals(large.getName(), sut.read(deflated, DirectoryDaoTest.Stored.class).getName());
+        assertEquals(large.getName(), sut.read(framed, DirectoryDaoTest.Stored.class).getName());
+    }
+
+    @Test
+    public void shouldReadCompressedFilesWithoutCompression(@TempDir Path temp) throws IOException {
+        // Given
+        File deflated = temp.resolve("deflated.json").toFile();
+        File framed = temp.resolve("framed.json").toFile();
+        File plain = temp.resolve("plain.json").toFile();
+        EntityCodec.compressed(json, Compression.DEFLATE).write(deflated, stored);
+        EntityCodec.compressed(json, Compression.LZ4).write(framed, stored);
+        EntityCodec sut = EntityCodec.compressed(json, Compression.NONE);
+
+        // When
+        sut.write(plain, stored);
+
+        // Then
+        assertEquals('{', Files.readAllBytes(plain.toPath())[0]);
+        assertEquals("json", sut.name());
+        assertEquals(stored.getName(), sut.read(deflated, DirectoryDaoTest.Stored.class).getName());
+        assertEquals(stored.getName(), sut.read(framed, DirectoryDaoTest.Stored.class).getName());
+        assertEquals(stored.getName(), EntityCodec.named("json").read(deflated, DirectoryDaoTest.Stored.class).getName());
+    }
+
+    @Test
+    public void shouldRejectGzipMemberWithCorruptSize(@TempDir Path temp) throws IOException {
+        // Given
+        File deflated = temp.resolve("deflated.json").toFile();
+        EntityCodec sut = EntityCodec.compressed(json, Compression.DEFLATE);
+        sut.write(deflated, stored);
+        byte[] bytes = Files.readAllBytes(deflated.toPath());
+
+        for (int size : new int[]{-1, Integer.MAX_VALUE, bytes.length * 2000}) {
+            // When
+            bytes[bytes.length - 4] = (byte) size;
+            bytes[bytes.length - 3] = (byte) (size >>> 8);
+            bytes[bytes.length - 2] = (byte) (size >>> 16);
+            bytes[bytes.length - 1] = (byte) (size >>> 24);
+            Files.write(deflated.toPath(), bytes);
+
+            // Then
+            IOException err = assertThrows(IOException.class, () -> sut.read(deflated, DirectoryDaoTest.Stored.class));
+            assertEquals("Corrupt gzip member", err.getMessage());
+        }
+    }
+}
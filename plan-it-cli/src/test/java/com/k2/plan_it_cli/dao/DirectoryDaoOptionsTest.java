@@ -0,0 +1,108 @@
+package com.k2.plan_it_cli.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DirectoryDaoOptionsTest {
+
+    @Test
+    public void shouldDefaultToSequentialIndexation() {
+        // When
+        DirectoryDaoOptions options = DirectoryDaoOptions.defaults();
+
+        // Then
+        assertEquals(1, options.parallelism());
+        assertFalse(options.isParallel());
+    }
+
+    @Test
+    public void shouldBeParallelWithParallelismGreaterThanOne() {
+        // When
+        DirectoryDaoOptions options = DirectoryDaoOptions.defaults().withParallelism(4);
+
+        // Then
+        assertEquals(4, options.parallelism());
+        assertTrue(options.isParallel());
+    }
+
+    @Test
+    public void shouldRejectParallelismLessThanOne() {
+        // Then When
+        assertThrows(IllegalArgumentException.class, () -> DirectoryDaoOptions.defaults().withParallelism(0));
+    }
+
+    @Test
+    public void shouldDefaultToAsyncDurability() {
+        // When
+        DirectoryDaoOptions options = DirectoryDaoOptions.defaults();
+
+        // Then
+        assertEquals(Durability.ASYNC, options.durability());
+    }
+
+    @Test
+    public void shouldRequirePositiveSyncIntervalForPeriodicDurability() {
+        // Then When
+        assertThrows(IllegalArgumentException.class, () -> DirectoryDaoOptions.defaults()
+                .withSyncInterval(Duration.ZERO)
+                .withDurability(Durability.PERIODIC));
+        assertEquals(Duration.ofMillis(10), DirectoryDaoOptions.defaults()
+                .withDurability(Durability.PERIODIC)
+                .withSyncInterval(Duration.ofMillis(10))
+                .syncInterval());
+    }
+
+    @Test
+    public void shouldNotCompressByDefault() {
+        // When
+        DirectoryDaoOptions options = DirectoryDaoOptions.defaults();
+
+        // Then
+        assertEquals(Compression.NONE, options.compression());
+        assertEquals(Compression.DEFLATE, options.withCompression(Compression.DEFLATE).compression());
+        assertThrows(IllegalArgumentException.class, () -> options.withCompression(null));
+    }
+
+    @Test
+    public void shouldNotWatchByDefault() {
+        // When
+        DirectoryDaoOptions options = DirectoryDaoOptions.defaults();
+
+        // Then
+        assertFalse(options.watch());
+        assertEquals(Duration.ofMillis(200), options.watchDebounce());
+    }
+
+    @Test
+    public void shouldRequireNonNegativeDebounceWhenWatching() {
+        // Then When
+        assertThrows(IllegalArgumentException.class, () -> DirectoryDaoOptions.defaults()
+                .withWatchDebounce(Duration.ofMillis(-1))
+                .withWatch(true));
+        assertEquals(Duration.ZERO, DirectoryDaoOptions.defaults()
+                .withWatch(true)
+                .withWatchDebounce(Duration.ZERO)
+                .watchDebounce());
+    }
+
+    @Test
+    public void shouldNotShardByDefault() {
+        // When
+        DirectoryDaoOptions options = DirectoryDaoOptions.defaults();
+
+        // Then
+        assertEquals(0, options.shardDepth());
+        assertFalse(options.isSharded());
+        assertTrue(options.withShardDepth(2).isSharded());
+    }
+
+    @Test
+    public void shouldRejectShardDepthOutOfRange() {
+        // Then When
+        assertThrows(IllegalArgumentException.class, () -> DirectoryDaoOptions.defaults().withShardDepth(-1));
+        assertThrows(IllegalArgumentException.class, () -> DirectoryDaoOptions.defaults().withShardDepth(Shards.MAX_DEPTH + 1));
+    }
+}
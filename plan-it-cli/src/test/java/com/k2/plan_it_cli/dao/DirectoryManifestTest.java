@@ -0,0 +1,61 @@
+package com.k2.plan_it_cli.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DirectoryManifestTest {
+
+    DirectoryManifest sut = new DirectoryManifest(
+            DirectoryManifest.VERSION,
+            10_000,
+            Map.of(
+                    "AAA", new DirectoryManifest.Entry("AAA.json", 5_000, 100, Map.of("name", "aaa")),
+                    "BBB", new DirectoryManifest.Entry("BBB.json", 9_500, 100, null)));
+
+    @Test
+    public void shouldReturnEntryWhenModifiedAndSizeMatch() {
+        // When
+        DirectoryManifest.Entry entry = sut.unchanged("AAA", 5_000, 100);
+
+        // Then
+        assertNotNull(entry);
+        assertEquals(Map.of("name", "aaa"), entry.indexEntries());
+    }
+
+    @Test
+    public void shouldNotReturnEntryWhenModifiedDiffers() {
+        // Then When
+        assertNull(sut.unchanged("AAA", 6_000, 100));
+    }
+
+    @Test
+    public void shouldNotReturnEntryWhenSizeDiffers() {
+        // Then When
+        assertNull(sut.unchanged("AAA", 5_000, 101));
+    }
+
+    @Test
+    public void shouldNotReturnEntryForUnknownKey() {
+        // Then When
+        assertNull(sut.unchanged("CCC", 5_000, 100));
+    }
+
+    @Test
+    public void shouldNotReturnEntryModifiedTooCloseToManifestWrite() {
+        // Then When
+        assertNull(sut.unchanged("BBB", 9_500, 100));
+    }
+
+    @Test
+    public void shouldBeEmpty() {
+        // When
+        DirectoryManifest empty = DirectoryManifest.empty();
+
+        // Then
+        assertEquals(DirectoryManifest.VERSION, empty.version());
+        assertTrue(empty.entries().isEmpty());
+    }
+}
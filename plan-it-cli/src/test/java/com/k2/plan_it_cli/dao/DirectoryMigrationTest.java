@@ -0,0 +1,115 @@
+package com.k2.plan_it_cli.dao;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DirectoryMigrationTest {
+
+    ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void shouldConvertEveryEntityFileInPlace(@TempDir Path temp) throws IOException, NotExistsException {
+        // Given
+        Files.createDirectories(temp.resolve("nested"));
+        mapper.writeValue(temp.resolve("AAA.json").toFile(), new DirectoryDaoTest.Stored("AAA", "aaa"));
+        mapper.writeValue(temp.resolve("nested/BBB.json").toFile(), new DirectoryDaoTest.Stored("BBB", "bbb"));
+        Files.writeString(temp.resolve(DirectoryManifest.FILE_NAME), "{}");
+
+        // When
+        int migrated = DirectoryMigration.migrateAll(temp.toFile(), EntityCodec.json(mapper), EntityCodec.smile());
+
+        // Then
+        assertEquals(2, migrated);
+        assertFalse(Files.exists(temp.resolve("AAA.json")));
+        assertFalse(Files.exists(temp.resolve("nested/BBB.json")));
+        assertFalse(Files.exists(temp.resolve(DirectoryManifest.FILE_NAME)));
+        DirectoryDao<DirectoryDaoTest.Stored> dao = new DirectoryDao<>(
+                DirectoryDaoTest.Stored.class,
+                DirectoryDaoTest.Stored::getKey,
+                (entity, key) -> {entity.setKey(key); return entity;},
+                () -> null,
+                temp.toFile(),
+                EntityCodec.smile(),
+                null,
+                DirectoryDaoOptions.defaults());
+        assertEquals("aaa", dao.get("AAA").getName());
+    }
+
+    @Test
+    public void shouldFinishAMigrationThatWasCutShort(@TempDir Path temp) throws IOException {
+        // Given
+        mapper.writeValue(temp.resolve("AAA.json").toFile(), new DirectoryDaoTest.Stored("AAA", "aaa"));
+        EntityCodec.smile().write(temp.resolve("AAA.smile").toFile(), new DirectoryDaoTest.Stored("AAA", "stale"));
+
+        // When
+        int migrated = DirectoryMigration.migrate(temp.toFile(), EntityCodec.json(mapper), EntityCodec.smile());
+
+        // Then
+        assertEquals(1, migrated);
+        assertEquals("aaa", EntityCodec.smile().read(temp.resolve("AAA.smile").toFile(), DirectoryDaoTest.Stored.class).getName());
+        assertFalse(Files.exists(temp.resolve("AAA.json")));
+    }
+
+    @Test
+    public void shouldMigrateCompressedFiles(@TempDir Path temp) throws IOException {
+        // Given
+        EntityCodec.compressed(EntityCodec.json(mapper), Compression.DEFLATE).write(temp.resolve("AAA.json").toFile(), new DirectoryDaoTest.Stored("AAA", "aaa"));
+        EntityCodec.compressed(EntityCodec.json(mapper), Compression.LZ4).write(temp.resolve("BBB.json").toFile(), new DirectoryDaoTest.Stored("BBB", "bbb"));
+
+        // When
+        int migrated = DirectoryMigration.migrateAll(temp.toFile(), EntityCodec.named("json"), EntityCodec.named("smile"));
+
+        // Then
+        assertEquals(2, migrated);
+        assertEquals("aaa", EntityCodec.smile().read(temp.resolve("AAA.smile").toFile(), DirectoryDaoTest.Stored.class).getName());
+        assertEquals("bbb", EntityCodec.smile().read(temp.resolve("BBB.smile").toFile(), DirectoryDaoTest.Stored.class).getName());
+    }
+
+    @Test
+    public void shouldRejectMigrationBetweenCodecsSharingAnExtension(@TempDir Path temp) {
+        // When Then
+        assertThrows(IllegalArgumentException.class,
+                () -> DirectoryMigration.migrate(temp.toFile(), EntityCodec.json(mapper), EntityCodec.named("json")));
+    }
+
+    @Test
+    public void shouldReshardFlatDirectoriesAndBack(@TempDir Path temp) throws IOException {
+        // Given
+        for (String key : new String[]{"AAA", "BBB", "CCC"}) {
+            mapper.writeValue(temp.resolve(key + ".json").toFile(), new DirectoryDaoTest.Stored(key, key.toLowerCase()));
+        }
+        Files.writeString(temp.resolve(DirectoryManifest.FILE_NAME), "{}");
+
+        // When
+        int sharded = DirectoryMigration.reshard(temp.toFile(), EntityCodec.json(mapper), 2);
+
+        // Then
+        assertEquals(3, sharded);
+        String[] shards = Shards.of("BBB", 2);
+        assertTrue(Files.exists(temp.resolve(shards[0]).resolve(shards[1]).resolve("BBB.json")));
+        assertFalse(Files.exists(temp.resolve("BBB.json")));
+        assertTrue(Files.exists(temp.resolve(DirectoryManifest.FILE_NAME)));
+        assertEquals(0, DirectoryMigration.reshard(temp.toFile(), EntityCodec.json(mapper), 2));
+
+        // When
+        int flattened = DirectoryMigration.reshard(temp.toFile(), EntityCodec.json(mapper), 0);
+
+        // Then
+        assertEquals(3, flattened);
+        assertTrue(Files.exists(temp.resolve("BBB.json")));
+        assertFalse(Files.exists(temp.resolve(shards[0])));
+    }
+
+    @Test
+    public void shouldRejectShardDepthOutOfRange(@TempDir Path temp) {
+        // Then When
+        assertThrows(IllegalArgumentException.class, () -> DirectoryMigration.reshard(temp.toFile(), EntityCodec.json(mapper), -1));
+    }
+}
@@ -0,0 +1,61 @@
+package com.k2.plan_it_cli.dao;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DirectoryWatcherTest {
+
+    @Test
+    public void shouldReportChangesToDirectoryThatIsNeverQuiet(@TempDir Path temp) throws Exception {
+        // Given
+        Duration debounce = Duration.ofMillis(200);
+        CompletableFuture<Set<Path>> reported = new CompletableFuture<>();
+        try (DirectoryWatcher sut = new DirectoryWatcher(temp, 0, debounce, "watcher", reported::complete, () -> {})) {
+            sut.start();
+
+            // When
+            long writingUntil = System.nanoTime() + debounce.toNanos() * DirectoryWatcher.MAX_DEBOUNCES * 5;
+            while (!reported.isDone() && System.nanoTime() < writingUntil) {
+                Files.writeString(temp.resolve("AAA.json"), String.valueOf(System.nanoTime()));
+                Thread.sleep(debounce.toMillis() / 4);
+            }
+
+            // Then
+            assertTrue(reported.isDone());
+            assertTrue(reported.get(1, TimeUnit.SECONDS).contains(temp.resolve("AAA.json")));
+        }
+    }
+
+    @Test
+    public void shouldKeepWatchingAfterRefreshFails(@TempDir Path temp) throws Exception {
+        // Given
+        CompletableFuture<Set<Path>> reported = new CompletableFuture<>();
+        boolean[] failed = {false};
+        try (DirectoryWatcher sut = new DirectoryWatcher(temp, 0, Duration.ofMillis(50), "watcher", names -> {
+            if (!failed[0]) {
+                failed[0] = true;
+                throw new IllegalStateException("Broken external edit");
+            }
+            reported.complete(names);
+        }, () -> {})) {
+            sut.start();
+            Files.writeString(temp.resolve("AAA.json"), "{");
+            Thread.sleep(500);
+
+            // When
+            Files.writeString(temp.resolve("BBB.json"), "{}");
+
+            // Then
+            assertTrue(reported.get(5, TimeUnit.SECONDS).contains(temp.resolve("BBB.json")));
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.k2.plan_it_cli.dao;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EntityCodecTest {
+
+    @Test
+    public void shouldRoundTripEntitiesInEveryCodec(@TempDir Path temp) throws IOException {
+        for (EntityCodec codec : List.of(EntityCodec.json(new ObjectMapper()), EntityCodec.smile(), EntityCodec.cbor())) {
+            // Given
+            File file = temp.resolve("AAA" + codec.extension()).toFile();
+
+            // When
+            codec.write(file, new DirectoryDaoTest.Stored("AAA", "aaa"));
+            DirectoryDaoTest.Stored read = codec.read(file, DirectoryDaoTest.Stored.class);
+
+            // Then
+            assertEquals("AAA", read.getKey());
+            assertEquals("aaa", read.getName());
+        }
+    }
+
+    @Test
+    public void shouldFindCodecsByName() {
+        // Then
+        assertEquals(".json", EntityCodec.named("json").extension());
+        assertEquals(".smile", EntityCodec.named("SMILE").extension());
+        assertEquals(".cbor", EntityCodec.named("cbor").extension());
+    }
+
+    @Test
+    public void shouldRejectUnknownCodec() {
+        // When
+        IllegalArgumentException err = assertThrows(IllegalArgumentException.class, () -> EntityCodec.named("xml"));
+
+        // Then
+        assertEquals("Unknown codec xml, expected one of json, smile or cbor", err.getMessage());
+    }
+
+    @Test
+    public void shouldReadIndexedFieldsOnTheirOwnInEveryCodec(@TempDir Path temp) throws IOException {
+        List<IndexField> fields = List.of(
+                new IndexField("name", JsonPointer.compile("/name"), String.class),
+                new IndexField("city", JsonPointer.compile("/address/city"), String.class),
+                new IndexField("size", JsonPointer.compile("/size"), Integer.class),
+                new IndexField("missing", JsonPointer.compile("/missing"), String.class));
+        Map<String, Object> entity = Map.of(
+                "name", "aaa",
+                "notes", List.of(Map.of("name", "not this one")),
+                "address", Map.of("street", "high street", "city", "york"),
+                "size", 3);
+        for (EntityCodec codec : List.of(
+                EntityCodec.json(new ObjectMapper()),
+                EntityCodec.smile(),
+                EntityCodec.cbor(),
+                EntityCodec.compressed(EntityCodec.json(new ObjectMapper()), Compression.LZ4))) {
+            // Given
+            File file = temp.resolve("AAA" + codec.extension()).toFile();
+            codec.write(file, entity);
+
+            // When
+            Map<String, Object> read = codec.readFields(file, fields);
+
+            // Then
+            assertEquals("aaa", read.get("name"), codec.name());
+            assertEquals("york", read.get("city"), codec.name());
+            assertEquals(3, read.get("size"), codec.name());
+            assertTrue(read.containsKey("missing"), codec.name());
+            assertNull(read.get("missing"), codec.name());
+        }
+    }
+
+    @Test
+    public void shouldReadFieldsInArraysAndWithinOtherFieldsInEveryCodec(@TempDir Path temp) throws IOException {
+        List<IndexField> fields = List.of(
+                new IndexField("firstTag", JsonPointer.compile("/tags/0"), String.class),
+                new IndexField("secondTag", JsonPointer.compile("/tags/1"), String.class),
+                new IndexField("noTag", JsonPointer.compile("/tags/5"), String.class),
+                new IndexField("address", JsonPointer.compile("/address"), Map.class),
+                new IndexField("city", JsonPointer.compile("/address/city"), String.class),
+                new IndexField("firstNote", JsonPointer.compile("/notes/0/name"), String.class));
+        Map<String, Object> entity = Map.of(
+                "tags", List.of("red", "blue"),
+                "notes", List.of(Map.of("name", "first note")),
+                "address", Map.of("street", "high street", "city", "york"));
+        for (EntityCodec codec : List.of(EntityCodec.json(new ObjectMapper()), EntityCodec.smile(), EntityCodec.cbor())) {
+            // Given
+            File file = temp.resolve("AAA" + codec.extension()).toFile();
+            codec.write(file, entity);
+
+            // When
+            Map<String, Object> read = codec.readFields(file, fields);
+
+            // Then
+            assertEquals("red", read.get("firstTag"), codec.name());
+            assertEquals("blue", read.get("secondTag"), codec.name());
+            assertNull(read.get("noTag"), codec.name());
+            assertEquals(Map.of("street", "high street", "city", "york"), read.get("address"), codec.name());
+            assertEquals("york", read.get("city"), codec.name());
+            assertEquals("first note", read.get("firstNote"), codec.name());
+        }
+    }
+
+    @Test
+    public void shouldStopReadingOnceEveryFieldIsFound(@TempDir Path temp) throws IOException {
+        // Given
+        File file = temp.resolve("AAA.json").toFile();
+        Files.writeString(file.toPath(), "{\"key\": \"AAA\", \"name\": \"aaa\", \"description\": \"never fin");
+
+        // When
+        Map<String, Object> read = EntityCodec.json(new ObjectMapper()).readFields(
+                file, List.of(new IndexField("name", JsonPointer.compile("/name"), String.class)));
+
+        // Then
+        assertEquals(Map.of("name", "aaa"), read);
+    }
+}
@@ -0,0 +1,100 @@
+package com.k2.plan_it_cli.dao;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class EntityTableTest {
+
+    @Mock
+    GenericDao<String> dao;
+
+    @Test
+    public void shouldGiveDenseOrdinalsAndReuseRemovedOnes() {
+        // Given
+        EntityTable<String> sut = new EntityTable<>(false);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, sut.add("K" + i, "entity " + i));
+        }
+
+        // When
+        sut.remove(sut.ordinal("K7"));
+        sut.remove(sut.ordinal("K3"));
+
+        // Then
+        assertEquals(98, sut.size());
+        assertEquals(-1, sut.ordinal("K7"));
+        assertNull(sut.get(7, dao));
+        assertEquals(3, sut.add("NEW1", "new 1"));
+        assertEquals(7, sut.add("NEW2", "new 2"));
+        assertEquals(100, sut.add("NEW3", "new 3"));
+        assertEquals("NEW2", sut.key(7));
+        assertEquals(99, sut.ordinal("K99"));
+    }
+
+    @Test
+    public void shouldKeepOrdinalWhenKeyIsAddedAgain() {
+        // Given
+        EntityTable<String> sut = new EntityTable<>(false);
+        sut.add("AAA", "first");
+
+        // When
+        int ordinal = sut.add("AAA", "second");
+
+        // Then
+        assertEquals(0, ordinal);
+        assertEquals(1, sut.size());
+        assertEquals("second", sut.get(0, dao));
+    }
+
+    @Test
+    public void shouldLoadEntityFromDaoOnlyOnce() throws NotExistsException {
+        // Given
+        EntityTable<String> sut = new EntityTable<>(false);
+        sut.add("AAA", null);
+        doReturn("loaded").when(dao).get("AAA");
+
+        // When
+        sut.get(0, dao);
+
+        // Then
+        assertEquals("loaded", sut.get(0, dao));
+        verify(dao, times(1)).get("AAA");
+    }
+
+    @Test
+    public void shouldThrowGenericDaoErrorWhenIndexedEntityIsMissing() throws NotExistsException {
+        // Given
+        EntityTable<String> sut = new EntityTable<>(false);
+        sut.add("AAA", null);
+        doThrow(new NotExistsException("AAA", "String")).when(dao).get("AAA");
+        doReturn("String").when(dao).ofType();
+
+        // Then When
+        assertThrows(GenericDaoError.class, () -> sut.get(0, dao));
+    }
+
+    @Test
+    public void shouldReadEntityFromDaoEveryTimeWhenHoldingKeysOnly() throws NotExistsException {
+        // Given
+        EntityTable<String> sut = new EntityTable<>(true);
+        sut.add("AAA", "added");
+        sut.add("BBB", "added");
+        doReturn("loaded").when(dao).get("AAA");
+        doThrow(new NotExistsException("BBB", "String")).when(dao).get("BBB");
+
+        // When
+        sut.get(0, dao);
+
+        // Then
+        assertEquals("loaded", sut.get(0, dao));
+        assertEquals("loaded", sut.snapshot().get(0, dao));
+        assertNull(sut.get(1, dao));
+        verify(dao, times(3)).get("AAA");
+    }
+}
@@ -1,9 +1,12 @@
 package com.k2.plan_it_cli.dao;
 
+import com.k2.plan_it_cli.dao.predicate.Predicates;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -21,4 +24,73 @@ public class GenericIndexTest {
         assertEquals(indexGetter, sut.indexGetter());
         assertEquals(false, sut.isUnique());
     }
+
+    @Test
+    public void shouldOnlySupportRangeAndPrefixPredicatesWhenSorted() {
+        // Given
+        IndexGetter<String, String> indexGetter = new IndexGetter<>(s -> s);
+        GenericIndex<String> sorted = GenericIndex.sorted("SORTED", indexGetter, false);
+        GenericIndex<String> hashed = new GenericIndex<>("HASHED", indexGetter, false);
+
+        // Then
+        assertTrue(sorted.isSorted());
+        assertFalse(hashed.isSorted());
+        assertTrue(sorted.supports(Predicates.between(indexGetter, "a", "c")));
+        assertTrue(sorted.supports(Predicates.startsWith(indexGetter, "a")));
+        assertTrue(sorted.supports(Predicates.equals(indexGetter, "a")));
+        assertTrue(sorted.supports(Predicates.and(s -> true, Predicates.greaterThan(indexGetter, "a"))));
+        assertFalse(hashed.supports(Predicates.between(indexGetter, "a", "c")));
+        assertFalse(hashed.supports(Predicates.startsWith(indexGetter, "a")));
+        assertTrue(hashed.supports(Predicates.equals(indexGetter, "a")));
+    }
+
+    @Test
+    public void shouldSupportInAndOrOfSupportedPredicates() {
+        // Given
+        IndexGetter<String, String> indexGetter = new IndexGetter<>(s -> s);
+        IndexGetter<String, Integer> otherGetter = new IndexGetter<>(String::length);
+        GenericIndex<String> sut = new GenericIndex<>("HASHED", indexGetter, false);
+
+        // Then
+        assertTrue(sut.supports(Predicates.in(indexGetter, List.of("a", "b"))));
+        assertTrue(sut.supports(Predicates.or(Predicates.equals(indexGetter, "a"), Predicates.equals(indexGetter, "b"))));
+        assertFalse(sut.supports(Predicates.or(Predicates.equals(indexGetter, "a"), Predicates.equals(otherGetter, 1))));
+        assertFalse(sut.supports(Predicates.in(otherGetter, List.of(1))));
+    }
+
+    @Test
+    public void shouldNameTheFieldItsGetterReads() {
+        // Given
+        GenericIndex<Integer> sut = new GenericIndex<>("ALIAS", new IndexGetter<Integer, Boolean>(i -> i > 0), false);
+
+        // When
+        IndexField field = sut.withField("/positive", Boolean.class).indexField();
+
+        // Then
+        assertNull(sut.indexField());
+        assertEquals("ALIAS", field.alias());
+        assertEquals("/positive", field.path().toString());
+        assertEquals(Boolean.class, field.type());
+        assertThrows(IllegalArgumentException.class, () -> sut.withField("", Boolean.class));
+        assertThrows(IllegalArgumentException.class, () -> sut.withField("/positive", null));
+    }
+
+    @Test
+    public void shouldCoverTheFieldsItStores() {
+        // Given
+        IndexGetter<Integer, Boolean> positive = new IndexGetter<>(i -> i > 0);
+        IndexGetter<Integer, Integer> negated = new IndexGetter<>(i -> -i);
+        GenericIndex<Integer> sut = new GenericIndex<>("ALIAS", positive, false);
+
+        // When
+        GenericIndex<Integer> covering = sut.withStored(new StoredField<>("NEGATED", negated).withField("/negated", Integer.class))
+                .withField("/positive", Boolean.class);
+
+        // Then
+        assertFalse(sut.isCovering());
+        assertTrue(covering.isCovering());
+        assertEquals(List.of("NEGATED"), covering.stored().stream().map(StoredField::alias).toList());
+        assertEquals("/negated", covering.stored().get(0).indexField().path().toString());
+        assertNull(new StoredField<>("NEGATED", negated).indexField());
+    }
 }
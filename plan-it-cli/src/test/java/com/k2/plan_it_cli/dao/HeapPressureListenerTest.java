@@ -0,0 +1,92 @@
+package com.k2.plan_it_cli.dao;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import org.junit.jupiter.api.Test;
+
+import javax.management.Notification;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HeapPressureListenerTest {
+
+    @Test
+    public void shouldRunCallbackWhenUsageThresholdExceeded() {
+        // Given
+        AtomicInteger calls = new AtomicInteger();
+        HeapPressureListener sut = new HeapPressureListener(calls::incrementAndGet, () -> {}, () -> false);
+
+        // When
+        sut.handleNotification(new Notification(MemoryNotificationInfo.MEMORY_THRESHOLD_EXCEEDED, this, 1), null);
+        sut.handleNotification(new Notification(MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED, this, 2), null);
+
+        // Then
+        assertEquals(1, calls.get());
+    }
+
+    @Test
+    public void shouldRunReliefCallbackAfterCollectionBelowThreshold() {
+        // Given
+        AtomicInteger reliefs = new AtomicInteger();
+        AtomicBoolean belowThreshold = new AtomicBoolean(false);
+        HeapPressureListener sut = new HeapPressureListener(() -> {}, reliefs::incrementAndGet, belowThreshold::get);
+
+        // When
+        sut.handleNotification(new Notification(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION, this, 1), null);
+        belowThreshold.set(true);
+        sut.handleNotification(new Notification(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION, this, 2), null);
+        sut.handleNotification(new Notification(MemoryNotificationInfo.MEMORY_THRESHOLD_EXCEEDED, this, 3), null);
+
+        // Then
+        assertEquals(1, reliefs.get());
+    }
+
+    @Test
+    public void shouldRegisterAndUnregister() {
+        // Given
+        HeapPressureListener sut = HeapPressureListener.register(0.99, () -> {}, () -> {});
+
+        // When Then
+        assertDoesNotThrow(sut::unregister);
+        assertDoesNotThrow(sut::unregister);
+    }
+
+    @Test
+    public void shouldRestoreThresholdsWhenLastListenerUnregisters() {
+        // Given
+        Map<String, Long> before = heapThresholds();
+        HeapPressureListener first = HeapPressureListener.register(0.95, () -> {}, () -> {});
+        HeapPressureListener second = HeapPressureListener.register(0.90, () -> {}, () -> {});
+        Map<String, Long> whileBoth = heapThresholds();
+
+        // When
+        second.unregister();
+        Map<String, Long> whileFirst = heapThresholds();
+        first.unregister();
+
+        // Then
+        heapPools().forEach(pool -> {
+            assertEquals((long) (pool.getUsage().getMax() * 0.90), whileBoth.get(pool.getName()));
+            assertEquals((long) (pool.getUsage().getMax() * 0.95), whileFirst.get(pool.getName()));
+        });
+        assertEquals(before, heapThresholds());
+    }
+
+    private static List<MemoryPoolMXBean> heapPools() {
+        return ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP && pool.isUsageThresholdSupported() && pool.getUsage().getMax() > 0)
+                .toList();
+    }
+
+    private static Map<String, Long> heapThresholds() {
+        return heapPools().stream().collect(Collectors.toMap(MemoryPoolMXBean::getName, MemoryPoolMXBean::getUsageThreshold));
+    }
+}
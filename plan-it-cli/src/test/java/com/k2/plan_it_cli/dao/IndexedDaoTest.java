@@ -1,6 +1,7 @@
 package com.k2.plan_it_cli.dao;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.k2.plan_it_cli.dao.predicate.IndexGetterRange;
 import com.k2.plan_it_cli.dao.predicate.Predicates;
 import lombok.Getter;
 import lombok.Setter;
@@ -15,8 +16,18 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
@@ -224,6 +235,7 @@ public class IndexedDaoTest {
         // Given
         APojo aPojo4 = new APojo("4", "ccc");
         doReturn(aPojo4).when(dao).insert(aPojo4);
+        doReturn(keyGetter).when(dao).keyGetter();
 
         // When
         sut.insert(aPojo4);
@@ -247,11 +259,484 @@ public class IndexedDaoTest {
         assertEquals(aPojo3Updated, sut.get(Predicates.equals(nameIndexGetter, "ccc")));
     }
 
+    @Test
+    public void shouldAddBatchToIndexes() throws AlreadyExistsException, NotExistsException, NotUniqueException {
+        // Given
+        APojo aPojo4 = new APojo("4", "ccc");
+        APojo aPojo5 = new APojo("5", "cde");
+        doReturn(List.of(aPojo4, aPojo5)).when(dao).insertAll(List.of(aPojo4, aPojo5));
+        doReturn(keyGetter).when(dao).keyGetter();
+
+        // When
+        sut.insertAll(List.of(aPojo4, aPojo5));
+
+        // Then
+        assertEquals(aPojo4, sut.get(Predicates.equals(nameIndexGetter, "ccc")));
+        assertEquals(List.of(aPojo4, aPojo5), sut.stream(Predicates.equals(upperFistLetterIndexGetter, "C")).toList());
+        verify(dao, never()).insert(any());
+    }
+
+    @Test
+    public void shouldUpdateBatchInIndexes() throws NotExistsException, DataIntegrityViolationException, NotUniqueException {
+        // Given
+        APojo aPojo1Updated = new APojo("1", "ccc");
+        APojo aPojo3Updated = new APojo("3", "ddd");
+        doReturn(keyGetter).when(dao).keyGetter();
+        doReturn(aPojo1).when(dao).get("1");
+        doReturn(aPojo3).when(dao).get("3");
+        doReturn(List.of(aPojo1Updated, aPojo3Updated)).when(dao).updateAll(List.of(aPojo1Updated, aPojo3Updated));
+
+        // When
+        sut.updateAll(List.of(aPojo1Updated, aPojo3Updated));
+
+        // Then
+        assertEquals(aPojo1Updated, sut.get(Predicates.equals(nameIndexGetter, "ccc")));
+        assertEquals(aPojo3Updated, sut.get(Predicates.equals(nameIndexGetter, "ddd")));
+        assertThrows(NotExistsException.class, () -> sut.get(Predicates.equals(nameIndexGetter, "aaa")));
+        assertEquals(List.of(aPojo2), sut.stream(Predicates.equals(upperFistLetterIndexGetter, "A")).toList());
+    }
+
+    @Test
+    public void shouldRemoveBatchFromIndexes() throws NotExistsException, NotUniqueException {
+        // Given
+        doReturn(keyGetter).when(dao).keyGetter();
+        doReturn(List.of(aPojo1, aPojo3)).when(dao).deleteAll(List.of("1", "3"));
+
+        // When
+        assertEquals(List.of(aPojo1, aPojo3), sut.deleteAll(List.of("1", "3")));
+
+        // Then
+        assertThrows(NotExistsException.class, () -> sut.get(Predicates.equals(nameIndexGetter, "aaa")));
+        assertThrows(NotExistsException.class, () -> sut.get(Predicates.equals(nameIndexGetter, "bbb")));
+        assertEquals(aPojo2, sut.get(Predicates.equals(upperFistLetterIndexGetter, "A")));
+    }
+
+    @Test
+    public void shouldIndexWhatAFailedBatchApplied() throws Exception {
+        // Given
+        APojo aPojo4 = new APojo("4", "ccc");
+        APojo aPojo5 = new APojo("5", "cde");
+        BatchWriteError inserting = new BatchWriteError("APojo", List.of("4"), new GenericDaoError("FAILED"));
+        BatchWriteError deleting = new BatchWriteError("APojo", List.of("1"), new GenericDaoError("FAILED"));
+        doThrow(inserting).when(dao).insertAll(List.of(aPojo4, aPojo5));
+        doThrow(deleting).when(dao).deleteAll(List.of("1", "3"));
+        doReturn(aPojo4).when(dao).get("4");
+        doThrow(new NotExistsException("1", "APojo")).when(dao).get("1");
+
+        // When
+        assertEquals(inserting, assertThrows(BatchWriteError.class, () -> sut.insertAll(List.of(aPojo4, aPojo5))));
+        assertEquals(deleting, assertThrows(BatchWriteError.class, () -> sut.deleteAll(List.of("1", "3"))));
+
+        // Then
+        assertEquals(List.of(aPojo4), sut.stream(Predicates.equals(upperFistLetterIndexGetter, "C")).toList());
+        assertThrows(NotExistsException.class, () -> sut.get(Predicates.equals(nameIndexGetter, "aaa")));
+        assertEquals(aPojo3, sut.get(Predicates.equals(nameIndexGetter, "bbb")));
+    }
+
+    @Test
+    public void shouldStreamRangesFromSortedIndexes() {
+        // Given
+        GenericIndex<APojo> sortedName = GenericIndex.sorted("Name", nameIndexGetter, true);
+        GenericIndex<APojo> sortedFirstLetter = GenericIndex.sorted("FirstLetter", upperFistLetterIndexGetter, false);
+        sut = new IndexedDao<>(aPojoIndexationHandler -> {
+            aPojoIndexationHandler.start();
+            for (APojo aPojo : List.of(aPojo1, aPojo2, aPojo3)) {
+                aPojoIndexationHandler.accept(new IndexedEntityCallback<APojo>() {
+                    @Override
+                    public String getKey() {
+                        return aPojo.getKey();
+                    }
+
+                    @Override
+                    public APojo getEntity() {
+                        return aPojo;
+                    }
+                });
+            }
+            aPojoIndexationHandler.end();
+            return dao;
+        }, sortedName, sortedFirstLetter);
+
+        // Then When
+        assertEquals(List.of(aPojo1, aPojo2), sut.stream(Predicates.between(nameIndexGetter, "aaa", "bbb")).toList());
+        assertEquals(List.of(aPojo2, aPojo3), sut.stream(Predicates.greaterThan(nameIndexGetter, "aaa")).toList());
+        assertEquals(List.of(aPojo1), sut.stream(Predicates.lessThanOrEqual(nameIndexGetter, "aaa")).toList());
+        assertEquals(List.of(aPojo2), sut.stream(Predicates.startsWith(nameIndexGetter, "ab")).toList());
+        assertEquals(List.of(aPojo1, aPojo2), sut.stream(Predicates.lessThan(upperFistLetterIndexGetter, "B")).toList());
+        assertEquals(List.of(aPojo3), sut.stream(Predicates.and(
+                Predicates.greaterThanOrEqual(upperFistLetterIndexGetter, "B"),
+                Predicates.startsWith(nameIndexGetter, "b"))).toList());
+        verify(dao, never()).stream(any());
+    }
+
+    @Test
+    public void shouldAnswerInvertedAndEmptyRangesFromSortedIndexesAsScanDoes() {
+        // Given
+        GenericIndex<APojo> sortedName = GenericIndex.sorted("Name", nameIndexGetter, true);
+        GenericIndex<APojo> sortedFirstLetter = GenericIndex.sorted("FirstLetter", upperFistLetterIndexGetter, false);
+        sut = new IndexedDao<>(aPojoIndexationHandler -> {
+            aPojoIndexationHandler.start();
+            for (APojo aPojo : List.of(aPojo1, aPojo2, aPojo3)) {
+                aPojoIndexationHandler.accept(new IndexedEntityCallback<APojo>() {
+                    @Override
+                    public String getKey() {
+                        return aPojo.getKey();
+                    }
+
+                    @Override
+                    public APojo getEntity() {
+                        return aPojo;
+                    }
+                });
+            }
+            aPojoIndexationHandler.end();
+            return dao;
+        }, sortedName, sortedFirstLetter);
+        List<Predicate<APojo>> ranges = List.of(
+                Predicates.between(nameIndexGetter, "bbb", "aaa"),
+                Predicates.between(nameIndexGetter, "aaa", "aaa"),
+                Predicates.between(upperFistLetterIndexGetter, "B", "A"),
+                new IndexGetterRange<>(nameIndexGetter, "aaa", true, "aaa", true));
+
+        // Then When
+        for (Predicate<APojo> range : ranges) {
+            assertEquals(Stream.of(aPojo1, aPojo2, aPojo3).filter(range).toList(), sut.stream(range).toList());
+        }
+        assertEquals(List.of(aPojo1), sut.stream(ranges.get(3)).toList());
+        verify(dao, never()).stream(any());
+    }
+
+    @Test
+    public void shouldKeepSortedIndexesUpToDate() throws AlreadyExistsException, NotExistsException, NotUniqueException {
+        // Given
+        GenericIndex<APojo> sortedName = GenericIndex.sorted("Name", nameIndexGetter, true);
+        sut = new IndexedDao<>(aPojoIndexationHandler -> {
+            aPojoIndexationHandler.start();
+            aPojoIndexationHandler.end();
+            return dao;
+        }, sortedName);
+        APojo aPojo4 = new APojo("4", "ccc");
+        doReturn(keyGetter).when(dao).keyGetter();
+        doReturn(aPojo4).when(dao).insert(aPojo4);
+        doReturn(aPojo4).when(dao).delete("4");
+
+        // When
+        sut.insert(aPojo4);
+
+        // Then
+        assertEquals(aPojo4, sut.get(Predicates.startsWith(nameIndexGetter, "c")));
+        sut.delete("4");
+        assertThrows(NotExistsException.class, () -> sut.get(Predicates.startsWith(nameIndexGetter, "c")));
+    }
+
+    private IndexedDao<APojo> fromStoredIndexEntries(List<APojo> aPojos, GenericIndex<APojo> ... indexes) {
+        return new IndexedDao<>(aPojoIndexationHandler -> {
+            aPojoIndexationHandler.start();
+            for (APojo aPojo : aPojos) {
+                Map<String, Object> indexEntries = new HashMap<>();
+                for (GenericIndex<APojo> index : indexes) {
+                    indexEntries.put(index.alias(), index.indexGetter().getGetter().get(aPojo));
+                }
+                aPojoIndexationHandler.accept(new IndexedEntityCallback<APojo>() {
+                    @Override
+                    public String getKey() {
+                        return aPojo.getKey();
+                    }
+
+                    @Override
+                    public APojo getEntity() {
+                        throw new AssertionError("Entities should not be read while indexing");
+                    }
+
+                    @Override
+                    public Map<String, Object> getIndexEntries() {
+                        return indexEntries;
+                    }
+                });
+            }
+            aPojoIndexationHandler.end();
+            return dao;
+        }, indexes);
+    }
+
+    @Test
+    public void shouldDriveFromMostSelectiveIndexAndIntersectTheOthers() throws NotExistsException {
+        // Given
+        IndexGetter<APojo, String> lastLetterIndexGetter = new IndexGetter<>(entity -> entity.getName().substring(entity.getName().length() - 1));
+        GenericIndex<APojo> lastLetterIndex = new GenericIndex<>("LastLetter", lastLetterIndexGetter, false);
+        APojo aPojo4 = new APojo("4", "aab");
+        APojo aPojo5 = new APojo("5", "bbc");
+        sut = fromStoredIndexEntries(List.of(aPojo1, aPojo2, aPojo3, aPojo4, aPojo5), rangeNameIndex, lastLetterIndex);
+        doReturn(aPojo2).when(dao).get("2");
+        Predicate<APojo> predicate = Predicates.and(
+                Predicates.equals(upperFistLetterIndexGetter, "A"),
+                Predicates.equals(lastLetterIndexGetter, "c"));
+
+        // When
+        List<APojo> found = sut.stream(predicate).toList();
+
+        // Then
+        assertEquals("LastLetter[~2] & UpperFirstLetter[~3]", sut.explain(predicate));
+        assertEquals(List.of(aPojo2), found);
+        verify(dao, times(1)).get("2");
+        verify(dao, never()).get("5");
+        verify(dao, never()).stream(any());
+    }
+
+    @Test
+    public void shouldOnlyFilterOnChildrenWithoutAnIndex() throws NotExistsException, NotUniqueException {
+        // Given
+        sut = fromStoredIndexEntries(List.of(aPojo1, aPojo2, aPojo3), uniqueNameIndex, rangeNameIndex);
+        doReturn(aPojo1).when(dao).get("1");
+        doReturn(aPojo2).when(dao).get("2");
+        Predicate<APojo> endsWithC = entity -> entity.getName().endsWith("c");
+        Predicate<APojo> predicate = Predicates.and(Predicates.equals(upperFistLetterIndexGetter, "A"), endsWithC);
+
+        // When
+        APojo found = sut.get(predicate);
+
+        // Then
+        assertEquals(aPojo2, found);
+        assertEquals("UpperFirstLetter[~2] filter " + endsWithC, sut.explain(predicate));
+        assertEquals("PKey[~1] & UpperFirstLetter[~2]", sut.explain(Predicates.and(
+                Predicates.equals(upperFistLetterIndexGetter, "A"),
+                Predicates.equals(nameIndexGetter, "abc"))));
+        assertEquals("scan", sut.explain(endsWithC));
+    }
+
+    @Test
+    public void shouldFilterOnEveryChildWithoutAnIndex() throws NotExistsException {
+        // Given
+        sut = fromStoredIndexEntries(List.of(aPojo1, aPojo2, aPojo3), uniqueNameIndex, rangeNameIndex);
+        doReturn(aPojo1).when(dao).get("1");
+        doReturn(aPojo2).when(dao).get("2");
+        Predicate<APojo> startsWithA = entity -> entity.getName().startsWith("a");
+        Predicate<APojo> endsWithC = entity -> entity.getName().endsWith("c");
+        Predicate<APojo> predicate = Predicates.and(startsWithA, Predicates.equals(upperFistLetterIndexGetter, "A"), endsWithC);
+
+        // When
+        List<APojo> found = sut.stream(predicate).toList();
+
+        // Then
+        assertEquals(List.of(aPojo2), found);
+        assertEquals("UpperFirstLetter[~2] filter " + startsWithA + " & " + endsWithC, sut.explain(predicate));
+    }
+
+    @Test
+    public void shouldAnswerInFromIndexWithoutTouchingDao() {
+        // When
+        List<APojo> found = sut.stream(Predicates.in(nameIndexGetter, List.of("aaa", "bbb", "zzz"))).toList();
+
+        // Then
+        assertEquals(List.of(aPojo1, aPojo3), found);
+        assertEquals("PKey[~2]", sut.explain(Predicates.in(nameIndexGetter, List.of("aaa", "bbb", "zzz"))));
+        verifyNoInteractions(dao);
+    }
+
+    @Test
+    public void shouldAnswerInFromEveryKindOfIndexAsScanDoes() {
+        // Given
+        APojo unnamed = new APojo("4", null);
+        List<APojo> aPojos = List.of(aPojo1, aPojo2, aPojo3, unnamed);
+        Predicate<APojo> in = Predicates.in(nameIndexGetter, List.of("aaa", "bbb", "zzz"));
+        List<GenericIndex<APojo>> indexes = List.of(
+                new GenericIndex<>("Name", nameIndexGetter, true),
+                new GenericIndex<>("Name", nameIndexGetter, false),
+                GenericIndex.sorted("Name", nameIndexGetter, true),
+                GenericIndex.sorted("Name", nameIndexGetter, false));
+
+        for (GenericIndex<APojo> index : indexes) {
+            // When
+            IndexedDao<APojo> indexed = new IndexedDao<>(aPojoIndexationHandler -> {
+                aPojoIndexationHandler.start();
+                aPojos.forEach(aPojo -> aPojoIndexationHandler.accept(callback(aPojo.getKey(), aPojo)));
+                aPojoIndexationHandler.end();
+                return dao;
+            }, index);
+
+            // Then
+            assertEquals(aPojos.stream().filter(in).toList(), indexed.stream(in).toList());
+        }
+        verifyNoInteractions(dao);
+    }
+
+    @Test
+    public void shouldAnswerOrOverAndFromIndexedConjunctAndFilterTheRest() throws NotExistsException, NotUniqueException {
+        // Given
+        Predicate<APojo> notIndexed = aPojo -> aPojo.getKey().equals("2");
+        Predicate<APojo> predicate = Predicates.or(
+                Predicates.and(Predicates.equals(upperFistLetterIndexGetter, "A"), notIndexed),
+                Predicates.equals(nameIndexGetter, "bbb"));
+
+        // When
+        List<APojo> found = sut.stream(predicate).toList();
+
+        // Then
+        assertEquals(List.of(aPojo1, aPojo2, aPojo3).stream().filter(predicate).toList(), found);
+        assertEquals(List.of(aPojo2, aPojo3), found);
+        assertTrue(sut.explain(predicate).startsWith("(UpperFirstLetter[~2] | PKey[~1]) filter "), sut.explain(predicate));
+        assertTrue(rangeNameIndex.supports(Predicates.and(Predicates.equals(upperFistLetterIndexGetter, "A"), notIndexed)));
+        verifyNoInteractions(dao);
+    }
+
+    @Test
+    public void shouldAnswerOrAsDeduplicatedUnionOfIndexes() throws NotExistsException, NotUniqueException {
+        // Given
+        Predicate<APojo> predicate = Predicates.or(
+                Predicates.equals(nameIndexGetter, "aaa"),
+                Predicates.equals(upperFistLetterIndexGetter, "A"));
+
+        // When
+        List<APojo> found = sut.stream(predicate).toList();
+
+        // Then
+        assertEquals(List.of(aPojo1, aPojo2), found);
+        assertEquals("(PKey[~1] | UpperFirstLetter[~2])", sut.explain(predicate));
+        assertEquals(aPojo3, sut.get(Predicates.or(
+                Predicates.equals(nameIndexGetter, "bbb"),
+                Predicates.equals(nameIndexGetter, "zzz"))));
+        verifyNoInteractions(dao);
+    }
+
+    @Test
+    public void shouldScanForOrWithBranchWithoutAnIndex() {
+        // Given
+        Predicate<APojo> predicate = Predicates.or(
+                Predicates.equals(nameIndexGetter, "aaa"),
+                entity -> entity.getName().endsWith("c"));
+        Stream<APojo> stream = Stream.of(aPojo1, aPojo2);
+        doReturn(stream).when(dao).stream(predicate);
+
+        // When Then
+        assertEquals("scan", sut.explain(predicate));
+        assertEquals(stream, sut.stream(predicate));
+    }
+
+    @Test
+    public void shouldKeepIndexStatistics() throws AlreadyExistsException, NotExistsException {
+        // Given
+        APojo aPojo4 = new APojo("4", "acc");
+        doReturn(aPojo4).when(dao).insert(aPojo4);
+        doReturn(aPojo1).when(dao).delete("1");
+        doReturn(keyGetter).when(dao).keyGetter();
+
+        // When
+        sut.insert(aPojo4);
+        sut.delete("1");
+
+        // Then
+        assertEquals(List.of(
+                new IndexStatistics("PKey", true, false, 3, 3),
+                new IndexStatistics("UpperFirstLetter", false, false, 3, 2)), sut.statistics());
+        assertEquals(1.5, sut.statistics().get(1).averagePostingSize());
+    }
+
+    @Test
+    public void shouldCountIndexHitsAndFullScans() {
+        // Given
+        Predicate<APojo> unindexed = pojo -> pojo.getName().endsWith("c");
+        doReturn(Stream.of(aPojo2)).when(dao).stream(unindexed);
+        Map<String, LongSupplier> counters = new HashMap<>();
+        sut.bindMeters(new DaoMeters() {
+            @Override
+            public void counter(String name, String description, LongSupplier count) {
+                counters.put(name, count);
+            }
+
+            @Override
+            public void duration(String name, String description, Supplier<Duration> duration) {
+            }
+        });
+
+        // When
+        sut.stream(Predicates.equals(upperFistLetterIndexGetter, "A")).toList();
+        sut.stream(Predicates.equals(nameIndexGetter, "bbb")).toList();
+        sut.stream(unindexed).toList();
+
+        // Then
+        assertEquals(2, counters.get("index.hits").getAsLong());
+        assertEquals(1, counters.get("index.scans").getAsLong());
+        assertEquals(0, counters.get("index.covered").getAsLong());
+        verify(dao).bindMeters(any());
+    }
+
+    @Test
+    public void shouldIndexFromStoredIndexEntriesWithoutReadingEntities() throws NotExistsException, NotUniqueException {
+        // Given
+        IndexedEntityCallback<APojo> callback = mock(IndexedEntityCallback.class);
+        doReturn("1").when(callback).getKey();
+        doReturn(Map.of("PKey", "aaa", "UpperFirstLetter", "A")).when(callback).getIndexEntries();
+        doReturn(aPojo1).when(dao).get("1");
+
+        // When
+        sut = new IndexedDao<>(aPojoIndexationHandler -> {
+            aPojoIndexationHandler.start();
+            aPojoIndexationHandler.accept(callback);
+            aPojoIndexationHandler.end();
+            return dao;
+        }, uniqueNameIndex, rangeNameIndex);
+
+        // Then
+        verify(callback, never()).getEntity();
+        assertEquals(aPojo1, sut.get(Predicates.equals(nameIndexGetter, "aaa")));
+        assertEquals(List.of(aPojo1), sut.stream(Predicates.equals(upperFistLetterIndexGetter, "A")).toList());
+        verify(dao, times(1)).get("1");
+    }
+
+    @Test
+    public void shouldReadEntityWhenStoredIndexEntriesAreIncomplete() throws NotExistsException, NotUniqueException {
+        // Given
+        IndexedEntityCallback<APojo> callback = mock(IndexedEntityCallback.class);
+        doReturn("1").when(callback).getKey();
+        doReturn(Map.of("PKey", "aaa")).when(callback).getIndexEntries();
+        doReturn(aPojo1).when(callback).getEntity();
+
+        // When
+        sut = new IndexedDao<>(aPojoIndexationHandler -> {
+            aPojoIndexationHandler.start();
+            aPojoIndexationHandler.accept(callback);
+            aPojoIndexationHandler.end();
+            return dao;
+        }, uniqueNameIndex, rangeNameIndex);
+
+        // Then
+        assertEquals(aPojo1, sut.get(Predicates.equals(upperFistLetterIndexGetter, "A")));
+    }
+
+    @Test
+    public void shouldProvideIndexEntriesForManifest() {
+        // Given
+        IndexationHandler<APojo>[] handler = new IndexationHandler[1];
+        sut = new IndexedDao<>(aPojoIndexationHandler -> {
+            handler[0] = aPojoIndexationHandler;
+            return dao;
+        }, uniqueNameIndex, rangeNameIndex);
+
+        // When
+        Map<String, Object> indexEntries = handler[0].indexEntries(aPojo2);
+
+        // Then
+        assertEquals(Map.of("PKey", "abc", "UpperFirstLetter", "A"), indexEntries);
+    }
+
+    @Test
+    public void shouldNotProvideIndexEntriesThatCannotBeReadBackFromJson() {
+        // Given
+        IndexGetter<APojo, Long> lengthGetter = new IndexGetter<>(entity -> (long) entity.getName().length());
+        IndexationHandler<APojo>[] handler = new IndexationHandler[1];
+        sut = new IndexedDao<>(aPojoIndexationHandler -> {
+            handler[0] = aPojoIndexationHandler;
+            return dao;
+        }, uniqueNameIndex, new GenericIndex<>("Length", lengthGetter, false));
+
+        // When Then
+        assertNull(handler[0].indexEntries(aPojo2));
+    }
+
     @Test
     public void shouldRemoveEntityFromIndexes() throws NotExistsException, DataIntegrityViolationException, NotUniqueException {
         // Given
         doReturn(aPojo3).when(dao).delete("3");
-        doReturn(keyGetter).when(dao).keyGetter();
 
         // When
         assertEquals(aPojo3, sut.delete("3"));
@@ -259,4 +744,347 @@ public class IndexedDaoTest {
         // Then
         assertThrows(NotExistsException.class, () -> sut.get(Predicates.equals(nameIndexGetter, "bbb")));
     }
+
+    @Test
+    public void shouldReuseOrdinalOfRemovedEntity() throws NotExistsException, AlreadyExistsException, NotUniqueException {
+        // Given
+        APojo aPojo4 = new APojo("4", "bcd");
+        doReturn(aPojo3).when(dao).delete("3");
+        doReturn(aPojo4).when(dao).insert(aPojo4);
+        doReturn(keyGetter).when(dao).keyGetter();
+        doReturn("APojo").when(dao).ofType();
+
+        // When
+        sut.delete("3");
+        sut.insert(aPojo4);
+
+        // Then
+        assertEquals(aPojo4, sut.get(Predicates.equals(upperFistLetterIndexGetter, "B")));
+        assertEquals(aPojo4, sut.get(Predicates.equals(nameIndexGetter, "bcd")));
+        assertThrows(NotExistsException.class, () -> sut.get(Predicates.equals(nameIndexGetter, "bbb")));
+        assertEquals(List.of(aPojo1, aPojo2, aPojo4), sut.stream(Predicates.in(upperFistLetterIndexGetter, List.of("A", "B"))).toList());
+    }
+
+    @Test
+    public void shouldReindexEntityChangedOutsideTheDao() throws NotExistsException, NotUniqueException {
+        // Given
+        APojo changed = new APojo("1", "bcd");
+        IndexationHandler<APojo> handler = loadCapturingHandler();
+        doReturn(changed).when(dao).get("1");
+
+        // When
+        handler.changed(callback("1", changed));
+
+        // Then
+        assertEquals(changed, sut.get(Predicates.equals(nameIndexGetter, "bcd")));
+        assertThrows(NotExistsException.class, () -> sut.get(Predicates.equals(nameIndexGetter, "aaa")));
+        assertEquals(List.of(aPojo2), sut.stream(Predicates.equals(upperFistLetterIndexGetter, "A")).toList());
+        assertEquals(List.of(changed, aPojo3), sut.stream(Predicates.equals(upperFistLetterIndexGetter, "B")).toList());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void shouldReindexEntityChangedOutsideTheDaoInEveryKindOfIndex() throws NotExistsException {
+        // Given
+        APojo unnamed = new APojo("1", null);
+        APojo renamed = new APojo("1", "bcd");
+        List<GenericIndex<APojo>> indexes = List.of(
+                new GenericIndex<>("Name", nameIndexGetter, true),
+                new GenericIndex<>("Name", nameIndexGetter, false),
+                GenericIndex.sorted("Name", nameIndexGetter, true),
+                GenericIndex.sorted("Name", nameIndexGetter, false));
+
+        for (GenericIndex<APojo> index : indexes) {
+            IndexationHandler<APojo>[] handler = new IndexationHandler[1];
+            IndexedDao<APojo> indexed = new IndexedDao<>(aPojoIndexationHandler -> {
+                handler[0] = aPojoIndexationHandler;
+                aPojoIndexationHandler.start();
+                aPojoIndexationHandler.accept(callback("1", aPojo1));
+                aPojoIndexationHandler.accept(callback("2", aPojo2));
+                aPojoIndexationHandler.end();
+                return dao;
+            }, index);
+
+            // When
+            doReturn(unnamed).when(dao).get("1");
+            handler[0].changed(callback("1", unnamed));
+            doReturn(renamed).when(dao).get("1");
+            handler[0].changed(callback("1", renamed));
+
+            // Then
+            assertEquals(List.of(), indexed.stream(Predicates.equals(nameIndexGetter, "aaa")).toList(), index.toString());
+            assertEquals(List.of(renamed), indexed.stream(Predicates.equals(nameIndexGetter, "bcd")).toList(), index.toString());
+            assertEquals(List.of(aPojo2), indexed.stream(Predicates.equals(nameIndexGetter, "abc")).toList(), index.toString());
+        }
+    }
+
+    @Test
+    public void shouldUnindexEntityRemovedOutsideTheDao() throws NotExistsException {
+        // Given
+        IndexationHandler<APojo> handler = loadCapturingHandler();
+        doThrow(new NotExistsException("2", "APojo")).when(dao).get("2");
+
+        // When
+        handler.removed("2");
+
+        // Then
+        assertEquals(List.of(aPojo1), sut.stream(Predicates.equals(upperFistLetterIndexGetter, "A")).toList());
+        assertEquals(List.of(), sut.stream(Predicates.equals(nameIndexGetter, "abc")).toList());
+    }
+
+    @Test
+    public void shouldReadEveryEntityFoundFromDaoWhenIndexingKeysOnly() throws NotExistsException, NotUniqueException {
+        // Given
+        sut = new IndexedDao<>(aPojoIndexationHandler -> {
+            aPojoIndexationHandler.start();
+            aPojoIndexationHandler.accept(callback("1", aPojo1));
+            aPojoIndexationHandler.accept(callback("2", aPojo2));
+            aPojoIndexationHandler.end();
+            return dao;
+        }, IndexedDaoOptions.defaults().withKeysOnly(true), uniqueNameIndex, rangeNameIndex);
+        APojo read1 = new APojo("1", "aaa");
+        APojo read2 = new APojo("2", "abc");
+        doReturn(read1).when(dao).get("1");
+        doReturn(read2).when(dao).get("2");
+
+        // When
+        sut.get(Predicates.equals(nameIndexGetter, "aaa"));
+
+        // Then
+        assertSame(read1, sut.get(Predicates.equals(nameIndexGetter, "aaa")));
+        assertEquals(List.of(read1, read2), sut.stream(Predicates.equals(upperFistLetterIndexGetter, "A")).toList());
+        verify(dao, times(3)).get("1");
+    }
+
+    @Test
+    public void shouldNotReturnEntitiesThatNoLongerMatchWhenIndexingKeysOnly() throws NotExistsException {
+        // Given
+        sut = new IndexedDao<>(aPojoIndexationHandler -> {
+            aPojoIndexationHandler.start();
+            aPojoIndexationHandler.accept(callback("1", aPojo1));
+            aPojoIndexationHandler.accept(callback("2", aPojo2));
+            aPojoIndexationHandler.accept(callback("3", aPojo3));
+            aPojoIndexationHandler.end();
+            return dao;
+        }, IndexedDaoOptions.defaults().withKeysOnly(true), uniqueNameIndex, rangeNameIndex);
+        doReturn(new APojo("1", "ccc")).when(dao).get("1");
+        doReturn(aPojo2).when(dao).get("2");
+        doThrow(new NotExistsException("3", "APojo")).when(dao).get("3");
+
+        // When
+        List<APojo> found = sut.stream(Predicates.in(upperFistLetterIndexGetter, List.of("A", "B"))).toList();
+
+        // Then
+        assertEquals(List.of(aPojo2), found);
+        assertThrows(NotExistsException.class, () -> sut.get(Predicates.equals(nameIndexGetter, "aaa")));
+    }
+
+    @Test
+    public void shouldAnswerProjectionFromCoveringIndexWithoutTouchingDao() {
+        // Given
+        IndexedDao<APojo> covering = coveringDao();
+
+        // When
+        List<Projection> found = covering.stream(Predicates.equals(upperFistLetterIndexGetter, "A"), List.of(nameIndexGetter, upperFistLetterIndexGetter)).toList();
+
+        // Then
+        assertEquals(List.of(
+                new Projection("1", List.of(nameIndexGetter, upperFistLetterIndexGetter), new Object[]{"aaa", "A"}),
+                new Projection("2", List.of(nameIndexGetter, upperFistLetterIndexGetter), new Object[]{"abc", "A"})), found);
+        assertEquals("abc", found.get(1).get(nameIndexGetter));
+        assertEquals("A", found.get(1).get(1));
+        verifyNoInteractions(dao);
+    }
+
+    @Test
+    public void shouldProjectEntitiesWhenIndexesDoNotCoverTheQuery() {
+        // Given
+        IndexedDao<APojo> covering = coveringDao();
+        IndexGetter<APojo, String> keyIndexGetter = new IndexGetter<>(APojo::getKey);
+        Predicate<APojo> endsWithC = entity -> entity.getName().endsWith("c");
+        doReturn(keyGetter).when(dao).keyGetter();
+
+        // When
+        List<Projection> uncoveredField = covering.stream(Predicates.equals(upperFistLetterIndexGetter, "A"), List.of(keyIndexGetter)).toList();
+        List<Projection> uncoveredPredicate = covering.stream(Predicates.and(Predicates.equals(upperFistLetterIndexGetter, "A"), endsWithC), List.of(nameIndexGetter)).toList();
+
+        // Then
+        assertEquals(List.of("1", "2"), uncoveredField.stream().map(projection -> projection.get(keyIndexGetter)).toList());
+        assertEquals(List.of("abc"), uncoveredPredicate.stream().map(projection -> projection.get(nameIndexGetter)).toList());
+        verify(dao, times(2)).keyGetter();
+    }
+
+    @Test
+    public void shouldKeepStoredFieldsUpToDate() throws AlreadyExistsException, NotExistsException, DataIntegrityViolationException {
+        // Given
+        IndexedDao<APojo> covering = coveringDao();
+        APojo aPojo4 = new APojo("4", "acd");
+        APojo changed = new APojo("2", "azz");
+        doReturn(keyGetter).when(dao).keyGetter();
+        doReturn(aPojo4).when(dao).insert(aPojo4);
+        doReturn(aPojo2).when(dao).get("2");
+        doReturn(changed).when(dao).update(changed);
+        doReturn(aPojo1).when(dao).delete("1");
+
+        // When
+        covering.insert(aPojo4);
+        covering.update(changed);
+        covering.delete("1");
+
+        // Then
+        assertEquals(List.of("azz", "acd"), covering.stream(Predicates.equals(upperFistLetterIndexGetter, "A"), List.of(nameIndexGetter))
+                .map(projection -> projection.get(nameIndexGetter))
+                .toList());
+    }
+
+    @Test
+    public void shouldStoreFieldsFromIndexEntriesWithoutReadingEntities() {
+        // Given
+        IndexedEntityCallback<APojo> callback = mock(IndexedEntityCallback.class);
+        doReturn("1").when(callback).getKey();
+        doReturn(Map.of("PKey", "aaa", "UpperFirstLetter", "A", "Name", "aaa")).when(callback).getIndexEntries();
+        IndexationHandler<APojo>[] handler = new IndexationHandler[1];
+
+        // When
+        IndexedDao<APojo> covering = new IndexedDao<>(aPojoIndexationHandler -> {
+            handler[0] = aPojoIndexationHandler;
+            aPojoIndexationHandler.start();
+            aPojoIndexationHandler.accept(callback);
+            aPojoIndexationHandler.end();
+            return dao;
+        }, uniqueNameIndex, rangeNameIndex.withStored(new StoredField<>("Name", nameIndexGetter)));
+
+        // Then
+        verify(callback, never()).getEntity();
+        assertEquals(Map.of("PKey", "abc", "UpperFirstLetter", "A", "Name", "abc"), handler[0].indexEntries(aPojo2));
+        assertEquals(List.of("aaa"), covering.stream(Predicates.equals(upperFistLetterIndexGetter, "A"), List.of(nameIndexGetter))
+                .map(projection -> projection.get(nameIndexGetter))
+                .toList());
+        verifyNoInteractions(dao);
+    }
+
+    @Test
+    public void shouldRejectAliasesUsedTwice() {
+        // Then When
+        assertThrows(IllegalArgumentException.class, () -> new IndexedDao<>(aPojoIndexationHandler -> dao,
+                uniqueNameIndex, rangeNameIndex.withStored(new StoredField<>("PKey", nameIndexGetter))));
+    }
+
+    private IndexedDao<APojo> coveringDao() {
+        return new IndexedDao<>(aPojoIndexationHandler -> {
+            aPojoIndexationHandler.start();
+            aPojoIndexationHandler.accept(callback("1", aPojo1));
+            aPojoIndexationHandler.accept(callback("2", aPojo2));
+            aPojoIndexationHandler.accept(callback("3", aPojo3));
+            aPojoIndexationHandler.end();
+            return dao;
+        }, uniqueNameIndex, rangeNameIndex.withStored(new StoredField<>("Name", nameIndexGetter)));
+    }
+
+    private IndexationHandler<APojo> loadCapturingHandler() {
+        IndexationHandler<APojo>[] handler = new IndexationHandler[1];
+        sut = new IndexedDao<>(aPojoIndexationHandler -> {
+            handler[0] = aPojoIndexationHandler;
+            aPojoIndexationHandler.start();
+            aPojoIndexationHandler.accept(callback("1", aPojo1));
+            aPojoIndexationHandler.accept(callback("2", aPojo2));
+            aPojoIndexationHandler.accept(callback("3", aPojo3));
+            aPojoIndexationHandler.end();
+            return dao;
+        }, uniqueNameIndex, rangeNameIndex);
+        return handler[0];
+    }
+
+    private IndexedEntityCallback<APojo> callback(String key, APojo entity) {
+        return new IndexedEntityCallback<>() {
+            @Override
+            public String getKey() {
+                return key;
+            }
+
+            @Override
+            public APojo getEntity() {
+                return entity;
+            }
+        };
+    }
+
+    @Test
+    public void shouldStreamPostingsAsTheyWereWhenTheQueryRan() throws NotExistsException, AlreadyExistsException {
+        // Given
+        APojo aPojo4 = new APojo("4", "acd");
+        doReturn(aPojo4).when(dao).insert(aPojo4);
+        doReturn(keyGetter).when(dao).keyGetter();
+        Stream<APojo> stream = sut.stream(Predicates.equals(upperFistLetterIndexGetter, "A"));
+
+        // When
+        sut.insert(aPojo4);
+
+        // Then
+        assertEquals(List.of(aPojo1, aPojo2), stream.toList());
+    }
+
+    @Test
+    public void shouldServeConsistentSnapshotsToReadersWhileWriting() throws Exception {
+        // Given
+        Map<String, APojo> stored = new ConcurrentHashMap<>();
+        for (int i = 0; i < 200; i++) {
+            stored.put("K" + i, new APojo("K" + i, (i % 2 == 0 ? "a" : "b") + i));
+        }
+        doReturn(keyGetter).when(dao).keyGetter();
+        doAnswer(invocation -> stored.get(invocation.<String>getArgument(0))).when(dao).get(anyString());
+        doAnswer(invocation -> {
+            APojo entity = invocation.getArgument(0);
+            stored.put(entity.getKey(), entity);
+            return entity;
+        }).when(dao).update(any());
+        IndexedDao<APojo> sut = new IndexedDao<>(handler -> {
+            handler.start();
+            stored.values().forEach(entity -> handler.accept(new IndexedEntityCallback<>() {
+                @Override
+                public String getKey() {
+                    return entity.getKey();
+                }
+
+                @Override
+                public APojo getEntity() {
+                    return entity;
+                }
+            }));
+            handler.end();
+            return dao;
+        }, rangeNameIndex);
+        Predicate<APojo> inA = Predicates.equals(upperFistLetterIndexGetter, "A");
+        Predicate<APojo> inAOrB = Predicates.in(upperFistLetterIndexGetter, List.of("A", "B"));
+        ExecutorService readers = Executors.newFixedThreadPool(3);
+        AtomicBoolean writing = new AtomicBoolean(true);
+
+        // When
+        List<Future<Integer>> reads = new ArrayList<>();
+        for (int r = 0; r < 3; r++) {
+            reads.add(readers.submit(() -> {
+                int checked = 0;
+                while (writing.get()) {
+                    assertEquals(200, sut.stream(inAOrB).count());
+                    assertTrue(sut.stream(inA).allMatch(entity -> entity.getName().startsWith("a")));
+                    checked++;
+                }
+                return checked;
+            }));
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < 2_000; i++) {
+            int k = random.nextInt(200);
+            sut.update(new APojo("K" + k, (random.nextBoolean() ? "a" : "b") + k));
+        }
+        writing.set(false);
+
+        // Then
+        for (Future<Integer> read : reads) {
+            assertTrue(read.get() > 0);
+        }
+        readers.shutdown();
+        assertEquals(200, sut.stream(inAOrB).count());
+        assertEquals(stored.values().stream().filter(entity -> entity.getName().startsWith("a")).count(), sut.stream(inA).count());
+    }
 }
@@ -0,0 +1,126 @@
+package com.k2.plan_it_cli.dao;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class MeteredDaoTest {
+
+    @Mock
+    GenericDao<String> dao;
+    @Mock
+    Supplier<String> keyGenerator;
+
+    MeterRegistry registry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    public void setup() {
+        lenient().doReturn("String").when(dao).ofType();
+    }
+
+    @Test
+    public void shouldTimeEachOperationByTypeAndOperation() throws NotExistsException, AlreadyExistsException {
+        // Given
+        doReturn("aaa").when(dao).get("1");
+        doReturn("bbb").when(dao).insert("bbb");
+        MeteredDao<String> sut = new MeteredDao<>(dao, registry);
+
+        // When
+        assertEquals("aaa", sut.get("1"));
+        assertEquals("aaa", sut.get("1"));
+        assertEquals("bbb", sut.insert("bbb"));
+
+        // Then
+        assertEquals(2, timer("get").count());
+        assertEquals(1, timer("insert").count());
+        assertEquals(0, timer("delete").count());
+    }
+
+    @Test
+    public void shouldTimeOperationsThatFail() throws NotExistsException {
+        // Given
+        doThrow(new NotExistsException("1", "String")).when(dao).delete("1");
+        MeteredDao<String> sut = new MeteredDao<>(dao, registry);
+
+        // When
+        assertThrows(NotExistsException.class, () -> sut.delete("1"));
+
+        // Then
+        assertEquals(1, timer("delete").count());
+    }
+
+    @Test
+    public void shouldPassProjectionsToTheDao() {
+        // Given
+        IndexGetter<String, Integer> length = new IndexGetter<>(String::length);
+        Predicate<String> predicate = entity -> true;
+        Projection projection = new Projection("1", List.of(length), new Object[]{3});
+        doReturn(Stream.of(projection)).when(dao).stream(predicate, List.of(length));
+        MeteredDao<String> sut = new MeteredDao<>(dao, registry);
+
+        // When
+        List<Projection> found = sut.stream(predicate, List.of(length)).toList();
+
+        // Then
+        assertEquals(List.of(projection), found);
+        assertEquals(1, timer("streamProjection").count());
+    }
+
+    @Test
+    public void shouldPublishCountsKeptByTheDao(@TempDir Path temp) throws Exception {
+        // Given
+        new ObjectMapper().writeValue(temp.resolve("AAA.json").toFile(), new DirectoryDaoTest.Stored("AAA", "aaa"));
+        CachingDirectoryDao<DirectoryDaoTest.Stored> cachingDao = new CachingDirectoryDao<>(
+                DirectoryDaoTest.Stored.class,
+                DirectoryDaoTest.Stored::getKey,
+                (entity, key) -> {entity.setKey(key); return entity;},
+                keyGenerator,
+                temp.toFile(),
+                new ObjectMapper(),
+                null,
+                DirectoryDaoOptions.defaults().withCache(CacheOptions.maximumSize(10)));
+        MeteredDao<DirectoryDaoTest.Stored> sut = new MeteredDao<>(cachingDao, registry);
+
+        // When
+        sut.get("AAA");
+        sut.get("AAA");
+        sut.insert(new DirectoryDaoTest.Stored("BBB", "bbb"));
+
+        // Then
+        assertEquals(1, counter("cache.misses"));
+        assertEquals(1, counter("cache.hits"));
+        assertEquals(temp.resolve("AAA.json").toFile().length(), counter("file.bytes.read"));
+        assertEquals(temp.resolve("BBB.json").toFile().length(), counter("file.bytes.written"));
+        TimeGauge rebuild = registry.get(MeteredDao.PREFIX + "index.rebuild").tag("type", "Stored").timeGauge();
+        assertTrue(rebuild.value(TimeUnit.NANOSECONDS) > 0);
+    }
+
+    private Timer timer(String operation) {
+        return registry.get(MeteredDao.OPERATION_TIMER).tag("type", "String").tag("operation", operation).timer();
+    }
+
+    private double counter(String name) {
+        FunctionCounter counter = registry.get(MeteredDao.PREFIX + name).tag("type", "Stored").functionCounter();
+        return counter.count();
+    }
+}
@@ -0,0 +1,129 @@
+package com.k2.plan_it_cli.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OrdinalHashTableTest {
+
+    private static <E> PagedArray<E> paged(E... values) {
+        PagedArray<E> paged = new PagedArray<>();
+        for (int i = 0; i < values.length; i++) {
+            paged.set(i, values[i]);
+        }
+        return paged;
+    }
+
+    @Test
+    public void shouldFindOrdinalsByValue() {
+        // Given
+        OrdinalHashTable sut = new OrdinalHashTable(paged("aaa", "bbb", null));
+
+        // When
+        sut.put(0);
+        sut.put(1);
+        sut.put(2);
+
+        // Then
+        assertEquals(3, sut.size());
+        assertEquals(0, sut.get("aaa"));
+        assertEquals(1, sut.get("bbb"));
+        assertEquals(2, sut.get(null));
+        assertEquals(-1, sut.get("ccc"));
+    }
+
+    @Test
+    public void shouldReplaceOrdinalForSameValue() {
+        // Given
+        OrdinalHashTable sut = new OrdinalHashTable(paged("aaa", "aaa"));
+        sut.put(0);
+
+        // When
+        int replaced = sut.put(1);
+
+        // Then
+        assertEquals(0, replaced);
+        assertEquals(1, sut.get("aaa"));
+        assertFalse(sut.remove("aaa", 0));
+        assertTrue(sut.remove("aaa", 1));
+        assertEquals(0, sut.size());
+    }
+
+    @Test
+    public void shouldKeepCollidingValuesReachableAfterRemoval() {
+        // Given "Aa" and "BB" share a hash code
+        OrdinalHashTable sut = new OrdinalHashTable(paged("Aa", "BB", "AaAa", "BBBB", "AaBB"));
+        for (int i = 0; i < 5; i++) {
+            sut.put(i);
+        }
+
+        // When
+        sut.remove("Aa", 0);
+        sut.remove("AaAa", 2);
+
+        // Then
+        assertEquals(-1, sut.get("Aa"));
+        assertEquals(1, sut.get("BB"));
+        assertEquals(-1, sut.get("AaAa"));
+        assertEquals(3, sut.get("BBBB"));
+        assertEquals(4, sut.get("AaBB"));
+    }
+
+    @Test
+    public void shouldAgreeWithHashMapThroughGrowthAndChurn() {
+        // Given
+        PagedArray<Integer> values = new PagedArray<>();
+        OrdinalHashTable sut = new OrdinalHashTable(values);
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+
+        // When
+        for (int i = 0; i < 50_000; i++) {
+            int ordinal = random.nextInt(10_000);
+            Integer value = values.get(ordinal);
+            if (value == null) {
+                value = random.nextInt(1_000_000) * 64;
+                if (expected.containsKey(value)) {
+                    continue;
+                }
+                values.set(ordinal, value);
+                sut.put(ordinal);
+                expected.put(value, ordinal);
+            } else {
+                assertTrue(sut.remove(value, ordinal));
+                expected.remove(value);
+                values.set(ordinal, null);
+            }
+        }
+
+        // Then
+        assertEquals(expected.size(), sut.size());
+        expected.forEach((value, ordinal) -> assertEquals(ordinal, sut.get(value)));
+    }
+
+    @Test
+    public void shouldKeepSnapshotUnchangedByLaterWrites() {
+        // Given
+        PagedArray<String> values = paged("aaa", "bbb");
+        OrdinalHashTable sut = new OrdinalHashTable(values);
+        sut.put(0);
+        sut.put(1);
+        OrdinalHashTable snapshot = sut.snapshot(values.snapshot());
+
+        // When
+        sut.remove("aaa", 0);
+        values.set(0, "ccc");
+        sut.put(0);
+
+        // Then
+        assertEquals(0, snapshot.get("aaa"));
+        assertEquals(-1, snapshot.get("ccc"));
+        assertEquals(2, snapshot.size());
+        assertEquals(-1, sut.get("aaa"));
+        assertEquals(0, sut.get("ccc"));
+    }
+}
@@ -0,0 +1,57 @@
+package com.k2.plan_it_cli.dao;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PagedArrayTest {
+
+    @Test
+    public void shouldGrowAcrossPages() {
+        // Given
+        PagedArray<Integer> sut = new PagedArray<>();
+
+        // When
+        for (int i = 0; i < 5 * PagedArray.PAGE_SIZE; i += 7) {
+            sut.set(i, i);
+        }
+
+        // Then
+        assertEquals(7 * 300, sut.get(7 * 300));
+        assertNull(sut.get(1));
+        assertNull(sut.get(100 * PagedArray.PAGE_SIZE));
+    }
+
+    @Test
+    public void shouldCopyPagesSharedWithSnapshotBeforeWriting() {
+        // Given
+        PagedArray<String> sut = new PagedArray<>();
+        sut.set(0, "aaa");
+        sut.set(PagedArray.PAGE_SIZE, "bbb");
+        PagedArray<String> snapshot = sut.snapshot();
+
+        // When
+        sut.set(0, "updated");
+        sut.set(2 * PagedArray.PAGE_SIZE, "ccc");
+
+        // Then
+        assertEquals("aaa", snapshot.get(0));
+        assertNull(snapshot.get(2 * PagedArray.PAGE_SIZE));
+        assertEquals("updated", sut.get(0));
+        assertEquals("ccc", sut.get(2 * PagedArray.PAGE_SIZE));
+    }
+
+    @Test
+    public void shouldShareCachedValuesWithPagesNotYetCopied() {
+        // Given
+        PagedArray<String> sut = new PagedArray<>();
+        sut.set(0, null);
+        PagedArray<String> snapshot = sut.snapshot();
+
+        // When
+        snapshot.cache(0, "loaded");
+
+        // Then
+        assertEquals("loaded", sut.get(0));
+    }
+}
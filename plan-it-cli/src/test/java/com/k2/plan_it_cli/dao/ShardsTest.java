@@ -0,0 +1,49 @@
+package com.k2.plan_it_cli.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardsTest {
+
+    @Test
+    public void shouldNameOneShardPerLevel() {
+        // When
+        String[] shards = Shards.of("AAA", 3);
+
+        // Then
+        assertEquals(3, shards.length);
+        for (String shard : shards) {
+            assertTrue(Shards.isShard(shard), shard);
+        }
+        assertArrayEquals(shards, Shards.of("AAA", 3));
+        assertArrayEquals(new String[]{shards[0]}, Shards.of("AAA", 1));
+        assertEquals(0, Shards.of("AAA", 0).length);
+    }
+
+    @Test
+    public void shouldSpreadKeysThatDifferOnlyAtTheirEnd() {
+        // Given
+        Set<String> used = new HashSet<>();
+
+        // When
+        for (int i = 0; i < 10_000; i++) {
+            used.add(Shards.of(String.format("PLAN-%06d", i), 1)[0]);
+        }
+
+        // Then
+        assertEquals(256, used.size());
+    }
+
+    @Test
+    public void shouldOnlyTakeTwoHexDigitsForAShard() {
+        // Then When
+        assertTrue(Shards.isShard("0f"));
+        assertFalse(Shards.isShard("0F"));
+        assertFalse(Shards.isShard("abc"));
+        assertFalse(Shards.isShard("AA.json"));
+    }
+}
@@ -0,0 +1,106 @@
+package com.k2.plan_it_cli.dao;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StripedLocksTest {
+
+    @Test
+    public void shouldRejectStripesThatAreNotAPowerOfTwo() {
+        // Then When
+        assertThrows(IllegalArgumentException.class, () -> new StripedLocks(0));
+        assertThrows(IllegalArgumentException.class, () -> new StripedLocks(12));
+    }
+
+    @Test
+    public void shouldSerializeWorkOnTheSameKey() throws Exception {
+        // Given
+        StripedLocks sut = new StripedLocks(16);
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        int[] counter = {0};
+
+        // When
+        Future<?>[] workers = new Future<?>[4];
+        for (int w = 0; w < 4; w++) {
+            workers[w] = executor.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    sut.lock("AAA");
+                    try {
+                        counter[0]++;
+                    } finally {
+                        sut.unlock("AAA");
+                    }
+                }
+            });
+        }
+        for (Future<?> worker : workers) {
+            worker.get();
+        }
+        executor.shutdown();
+
+        // Then
+        assertEquals(40_000, counter[0]);
+    }
+
+    @Test
+    public void shouldLetOtherStripesProceedWhileAKeyIsLocked() throws Exception {
+        // Given
+        StripedLocks sut = new StripedLocks(16);
+        String held = "AAA";
+        String other = List.of("BBB", "CCC", "DDD", "EEE").stream()
+                .filter(key -> ((key.hashCode() ^ (key.hashCode() >>> 16)) & 15) != ((held.hashCode() ^ (held.hashCode() >>> 16)) & 15))
+                .findFirst()
+                .orElseThrow();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch locked = new CountDownLatch(1);
+        sut.lock(held);
+
+        // When
+        executor.submit(() -> {
+            sut.lock(other);
+            sut.unlock(other);
+            locked.countDown();
+        });
+
+        // Then
+        assertTrue(locked.await(5, TimeUnit.SECONDS));
+        sut.unlock(held);
+        executor.shutdown();
+    }
+
+    @Test
+    public void shouldLockBatchesInTheSameOrderWithoutDeadlock() throws Exception {
+        // Given
+        StripedLocks sut = new StripedLocks(4);
+        List<String> keys = List.of("AAA", "BBB", "CCC", "DDD", "EEE", "FFF");
+        List<String> reversed = List.of("FFF", "EEE", "DDD", "CCC", "BBB", "AAA");
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        // When
+        Future<?> forwards = executor.submit(() -> {
+            for (int i = 0; i < 1_000; i++) {
+                sut.lock(keys);
+                sut.unlock(keys);
+            }
+        });
+        Future<?> backwards = executor.submit(() -> {
+            for (int i = 0; i < 1_000; i++) {
+                sut.lock(reversed);
+                sut.unlock(reversed);
+            }
+        });
+
+        // Then
+        forwards.get(10, TimeUnit.SECONDS);
+        backwards.get(10, TimeUnit.SECONDS);
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,81 @@
+package com.k2.plan_it_cli.dao.keys;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UlidKeyGeneratorTest {
+
+    @Test
+    public void shouldProvideCrockfordBase32KeysLedByTheTime() {
+        // Given
+        KeyGenerator keyGenerator = new UlidKeyGenerator(() -> 1_700_000_000_000L);
+
+        // When
+        String key = keyGenerator.nextKey(String.class);
+
+        // Then
+        assertEquals(UlidKeyGenerator.KEY_LENGTH, key.length());
+        assertTrue(key.matches("[0-9A-HJKMNP-TV-Z]{26}"), key);
+        assertEquals("01HF7YAT00", key.substring(0, 10));
+    }
+
+    @Test
+    public void shouldSortKeysInTheOrderTheyWereMade() {
+        // Given
+        AtomicLong now = new AtomicLong(1_700_000_000_000L);
+        KeyGenerator keyGenerator = new UlidKeyGenerator(now::get);
+        List<String> keys = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < 1000; i++) {
+            keys.add(keyGenerator.nextKey(String.class));
+            if (i % 100 == 0) {
+                now.incrementAndGet();
+            }
+            if (i == 500) {
+                // The clock going back must not break the order
+                now.addAndGet(-50);
+            }
+        }
+
+        // Then
+        for (int i = 1; i < keys.size(); i++) {
+            assertTrue(keys.get(i - 1).compareTo(keys.get(i)) < 0, keys.get(i - 1) + " " + keys.get(i));
+        }
+    }
+
+    @Test
+    public void shouldNotRepeatKeysAcrossThreads() throws Exception {
+        // Given
+        KeyGenerator keyGenerator = new UlidKeyGenerator(() -> 1_700_000_000_000L);
+        Set<String> keys = ConcurrentHashMap.newKeySet();
+        ExecutorService threads = Executors.newFixedThreadPool(4);
+
+        // When
+        List<Future<?>> done = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            done.add(threads.submit(() -> {
+                for (int j = 0; j < 10_000; j++) {
+                    keys.add(keyGenerator.nextKey(String.class));
+                }
+            }));
+        }
+        for (Future<?> future : done) {
+            future.get();
+        }
+        threads.shutdown();
+
+        // Then
+        assertEquals(40_000, keys.size());
+    }
+}
@@ -0,0 +1,59 @@
+package com.k2.plan_it_cli.dao.predicate;
+
+import com.k2.plan_it_cli.dao.IndexGetter;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PredicatesTest {
+
+    IndexGetter<Integer, Integer> identity = new IndexGetter<>(i -> i);
+    IndexGetter<String, String> text = new IndexGetter<>(s -> s);
+
+    @Test
+    public void shouldTestBetweenAsHalfOpenRange() {
+        // Then When
+        assertFalse(Predicates.between(identity, 1, 3).test(0));
+        assertTrue(Predicates.between(identity, 1, 3).test(1));
+        assertTrue(Predicates.between(identity, 1, 3).test(2));
+        assertFalse(Predicates.between(identity, 1, 3).test(3));
+        assertFalse(Predicates.between(identity, 1, 1).test(1));
+    }
+
+    @Test
+    public void shouldTestRangesWithInclusiveAndExclusiveBounds() {
+        // Then When
+        assertFalse(Predicates.greaterThan(identity, 1).test(1));
+        assertTrue(Predicates.greaterThanOrEqual(identity, 1).test(1));
+        assertFalse(Predicates.lessThan(identity, 1).test(1));
+        assertTrue(Predicates.lessThanOrEqual(identity, 1).test(1));
+        assertFalse(Predicates.greaterThan(identity, 1).test(null));
+    }
+
+    @Test
+    public void shouldTestPrefixes() {
+        // Then When
+        assertTrue(Predicates.startsWith(text, "ab").test("abc"));
+        assertFalse(Predicates.startsWith(text, "ab").test("acb"));
+        assertFalse(Predicates.startsWith(text, "ab").test(null));
+    }
+
+    @Test
+    public void shouldTestOrAndIn() {
+        // Then When
+        assertTrue(Predicates.or(Predicates.equals(identity, 1), Predicates.equals(identity, 2)).test(2));
+        assertFalse(Predicates.or(Predicates.equals(identity, 1), Predicates.equals(identity, 2)).test(3));
+        assertTrue(Predicates.in(identity, List.of(1, 2)).test(2));
+        assertFalse(Predicates.in(identity, List.of(1, 2)).test(3));
+        assertFalse(Predicates.in(identity, List.of(1, 2)).test(null));
+    }
+
+    @Test
+    public void shouldRejectNullTargetsOfIn() {
+        // Then When
+        assertThrows(IllegalArgumentException.class, () -> Predicates.in(identity, Arrays.asList(1, null)));
+    }
+}
@@ -0,0 +1,48 @@
+package com.k2.plan_it_cli.dao.segment;
+
+import com.k2.plan_it_cli.dao.Compression;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SegmentDaoOptionsTest {
+
+    @Test
+    public void shouldProvideDefaults() {
+        // When
+        SegmentDaoOptions options = SegmentDaoOptions.defaults();
+
+        // Then
+        assertEquals(16 * 1024 * 1024, options.segmentSize());
+        assertTrue(options.isCompacting());
+        assertFalse(options.forceOnWrite());
+        assertEquals(Compression.NONE, options.compression());
+    }
+
+    @Test
+    public void shouldNotCompactWithZeroInterval() {
+        // Then When
+        assertFalse(SegmentDaoOptions.defaults().withCompactionInterval(Duration.ZERO).isCompacting());
+    }
+
+    @Test
+    public void shouldRejectMissingCompression() {
+        // Then When
+        assertThrows(IllegalArgumentException.class, () -> SegmentDaoOptions.defaults().withCompression(null));
+    }
+
+    @Test
+    public void shouldRejectTinySegments() {
+        // Then When
+        assertThrows(IllegalArgumentException.class, () -> SegmentDaoOptions.defaults().withSegmentSize(8));
+    }
+
+    @Test
+    public void shouldRejectCompactionThresholdOutOfRange() {
+        // Then When
+        assertThrows(IllegalArgumentException.class, () -> SegmentDaoOptions.defaults().withCompactionThreshold(0));
+        assertThrows(IllegalArgumentException.class, () -> SegmentDaoOptions.defaults().withCompactionThreshold(1.5));
+    }
+}
@@ -0,0 +1,424 @@
+package com.k2.plan_it_cli.dao.segment;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.k2.plan_it_cli.dao.*;
+import com.k2.plan_it_cli.dao.predicate.Predicates;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SegmentDaoTest {
+
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class APojo {
+        @Getter
+        @Setter
+        private String key;
+        @Getter
+        @Setter
+        private String name;
+    }
+
+    @TempDir
+    Path dir;
+
+    ObjectMapper mapper = new ObjectMapper();
+    Supplier<String> keyGenerator = () -> "GENERATED";
+    SegmentDaoOptions options = SegmentDaoOptions.defaults()
+            .withSegmentSize(64 * 1024)
+            .withCompactionInterval(Duration.ZERO);
+
+    SegmentDao<APojo> sut;
+
+    @AfterEach
+    public void tearDown() {
+        if (sut != null) {
+            sut.close();
+        }
+    }
+
+    private SegmentDao<APojo> open() {
+        return open(options);
+    }
+
+    private SegmentDao<APojo> open(SegmentDaoOptions options) {
+        return new SegmentDao<>(
+                APojo.class,
+                APojo::getKey,
+                (entity, key) -> {entity.setKey(key); return entity;},
+                keyGenerator,
+                dir.toFile(),
+                mapper,
+                null,
+                options);
+    }
+
+    @Test
+    public void shouldInsertAndGetEntity() throws AlreadyExistsException, NotExistsException {
+        // Given
+        sut = open();
+
+        // When
+        sut.insert(new APojo("AAA", "aaa"));
+
+        // Then
+        assertTrue(sut.exists("AAA"));
+        assertEquals("aaa", sut.get("AAA").getName());
+    }
+
+    @Test
+    public void shouldGenerateKeyOnInsert() throws AlreadyExistsException {
+        // Given
+        sut = open();
+
+        // When
+        APojo inserted = sut.insert(new APojo(null, "aaa"));
+
+        // Then
+        assertEquals("GENERATED", inserted.getKey());
+        assertTrue(sut.exists("GENERATED"));
+    }
+
+    @Test
+    public void shouldThrowAlreadyExistsExceptionOnInsert() throws AlreadyExistsException {
+        // Given
+        sut = open();
+        sut.insert(new APojo("AAA", "aaa"));
+
+        // Then When
+        assertThrows(AlreadyExistsException.class, () -> sut.insert(new APojo("AAA", "bbb")));
+    }
+
+    @Test
+    public void shouldThrowNotExistsExceptionOnGet() {
+        // Given
+        sut = open();
+
+        // Then When
+        assertThrows(NotExistsException.class, () -> sut.get("AAA"));
+    }
+
+    @Test
+    public void shouldUpdateEntity() throws AlreadyExistsException, NotExistsException, DataIntegrityViolationException {
+        // Given
+        sut = open();
+        sut.insert(new APojo("AAA", "aaa"));
+
+        // When
+        sut.update(new APojo("AAA", "updated"));
+
+        // Then
+        assertEquals("updated", sut.get("AAA").getName());
+    }
+
+    @Test
+    public void shouldThrowNotExistsExceptionOnUpdate() {
+        // Given
+        sut = open();
+
+        // Then When
+        assertThrows(NotExistsException.class, () -> sut.update(new APojo("AAA", "aaa")));
+    }
+
+    @Test
+    public void shouldThrowDataIntegrityViolationExceptionWhenNoPrimaryKeyOnUpdate() {
+        // Given
+        sut = open();
+
+        // Then When
+        assertThrows(DataIntegrityViolationException.class, () -> sut.update(new APojo(null, "aaa")));
+    }
+
+    @Test
+    public void shouldDeleteEntity() throws AlreadyExistsException, NotExistsException {
+        // Given
+        sut = open();
+        sut.insert(new APojo("AAA", "aaa"));
+
+        // When
+        APojo deleted = sut.delete("AAA");
+
+        // Then
+        assertEquals("aaa", deleted.getName());
+        assertFalse(sut.exists("AAA"));
+        assertThrows(NotExistsException.class, () -> sut.delete("AAA"));
+    }
+
+    @Test
+    public void shouldStreamAndGetByPredicate() throws AlreadyExistsException, NotExistsException, NotUniqueException {
+        // Given
+        sut = open();
+        sut.insert(new APojo("AAA", "aaa"));
+        sut.insert(new APojo("BBB", "bbb"));
+        sut.insert(new APojo("CCC", "bbb"));
+
+        // Then When
+        assertEquals(3, sut.stream().count());
+        assertEquals(2, sut.stream(entity -> entity.getName().equals("bbb")).count());
+        assertEquals("AAA", sut.get(entity -> entity.getName().equals("aaa")).getKey());
+        assertThrows(NotUniqueException.class, () -> sut.get(entity -> entity.getName().equals("bbb")));
+        assertThrows(NotExistsException.class, () -> sut.get(entity -> entity.getName().equals("ccc")));
+    }
+
+    @Test
+    public void shouldRecoverEntitiesAndTombstonesOnReopen() throws AlreadyExistsException, NotExistsException, DataIntegrityViolationException {
+        // Given
+        sut = open();
+        sut.insert(new APojo("AAA", "aaa"));
+        sut.insert(new APojo("BBB", "bbb"));
+        sut.update(new APojo("AAA", "updated"));
+        sut.delete("BBB");
+        sut.close();
+
+        // When
+        sut = open();
+
+        // Then
+        assertEquals("updated", sut.get("AAA").getName());
+        assertFalse(sut.exists("BBB"));
+        assertEquals(1, sut.stream().count());
+    }
+
+    @Test
+    public void shouldReadRecordsWrittenWithAndWithoutCompression() throws AlreadyExistsException, NotExistsException {
+        // Given
+        sut = open();
+        sut.insert(new APojo("AAA", "a".repeat(1000)));
+        sut.close();
+        sut = open(options.withCompression(Compression.LZ4));
+        sut.insert(new APojo("BBB", "b".repeat(1000)));
+        sut.close();
+
+        // When
+        sut = open(options.withCompression(Compression.DEFLATE));
+
+        // Then
+        assertEquals("a".repeat(1000), sut.get("AAA").getName());
+        assertEquals("b".repeat(1000), sut.get("BBB").getName());
+        assertTrue(new File(dir.toFile(), "segment-0000000001.log").exists());
+    }
+
+    @Test
+    public void shouldRollToNewSegmentWhenFull() throws AlreadyExistsException, NotExistsException {
+        // Given
+        sut = open(options.withSegmentSize(512));
+
+        // When
+        for (int i = 0; i < 20; i++) {
+            sut.insert(new APojo("K" + i, "name " + i));
+        }
+
+        // Then
+        assertTrue(sut.segmentCount() > 1);
+        for (int i = 0; i < 20; i++) {
+            assertEquals("name " + i, sut.get("K" + i).getName());
+        }
+    }
+
+    @Test
+    public void shouldCompactSegmentsWithGarbage() throws AlreadyExistsException, NotExistsException, DataIntegrityViolationException {
+        // Given
+        sut = open(options.withSegmentSize(512));
+        for (int i = 0; i < 10; i++) {
+            sut.insert(new APojo("K" + i, "name " + i));
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 10; i++) {
+                sut.update(new APojo("K" + i, "round " + round));
+            }
+        }
+        for (int i = 5; i < 10; i++) {
+            sut.delete("K" + i);
+        }
+        int before = sut.segmentCount();
+
+        // When
+        sut.compact();
+
+        // Then
+        assertTrue(sut.segmentCount() < before);
+        sut.close();
+        sut = open(options.withSegmentSize(512));
+        assertEquals(5, sut.stream().count());
+        for (int i = 0; i < 5; i++) {
+            assertEquals("round 4", sut.get("K" + i).getName());
+        }
+        for (int i = 5; i < 10; i++) {
+            assertFalse(sut.exists("K" + i));
+        }
+    }
+
+    @Test
+    public void shouldIgnoreTornRecordOnReopen() throws AlreadyExistsException, IOException {
+        // Given
+        sut = open();
+        sut.insert(new APojo("AAA", "aaa"));
+        sut.insert(new APojo("BBB", "bbb"));
+        sut.close();
+        File segment = dir.resolve("segment-0000000001.log").toFile();
+        int secondRecord;
+        try (RandomAccessFile raf = new RandomAccessFile(segment, "rw")) {
+            secondRecord = raf.readInt() + 4;
+            raf.seek(secondRecord + 4);
+            raf.writeInt(0);
+        }
+
+        // When
+        sut = open();
+
+        // Then
+        assertTrue(sut.exists("AAA"));
+        assertFalse(sut.exists("BBB"));
+    }
+
+    @Test
+    public void shouldTruncateTornTailWithGarbageLengthsOnReopen() throws AlreadyExistsException, IOException {
+        File segment = dir.resolve("segment-0000000001.log").toFile();
+        // A key length that is negative, then longer than its record, then a record length past the segment or below a header
+        int[][] garbage = {{9, 0xffff0000}, {9, 0x7fff0000}, {0, Integer.MAX_VALUE}, {0, 1}};
+        for (int[] torn : garbage) {
+            // Given
+            sut = open();
+            sut.insert(new APojo("AAA", "aaa"));
+            sut.insert(new APojo("BBB", "bbb"));
+            sut.close();
+            try (RandomAccessFile raf = new RandomAccessFile(segment, "rw")) {
+                int secondRecord = raf.readInt() + 4;
+                raf.seek(secondRecord + torn[0]);
+                raf.writeInt(torn[1]);
+            }
+
+            // When
+            sut = open();
+            sut.insert(new APojo("CCC", "ccc"));
+            sut.close();
+            sut = open();
+
+            // Then
+            assertEquals(List.of("AAA", "CCC"), sut.stream().map(APojo::getKey).sorted().toList());
+            sut.close();
+            assertTrue(segment.delete());
+        }
+        sut = null;
+    }
+
+    @Test
+    public void shouldRejectRecordLargerThanSegment() {
+        // Given
+        sut = open(options.withSegmentSize(128));
+
+        // Then When
+        assertThrows(DaoFileWriteError.class, () -> sut.insert(new APojo("AAA", "a".repeat(256))));
+    }
+
+    @Test
+    public void shouldRejectKeyLongerThanRecordCanHold() {
+        // Given
+        sut = open();
+
+        // Then When
+        assertThrows(DaoFileWriteError.class, () -> sut.insert(new APojo("k".repeat(Short.MAX_VALUE + 1), "aaa")));
+        assertFalse(sut.exists("k".repeat(Short.MAX_VALUE + 1)));
+    }
+
+    @Test
+    public void shouldReportWhatABatchWroteBeforeItFailed() {
+        // Given
+        sut = open();
+
+        // When
+        BatchWriteError err = assertThrows(BatchWriteError.class,
+                () -> sut.insertAll(List.of(new APojo("AAA", "aaa"), new APojo("k".repeat(Short.MAX_VALUE + 1), "bbb"))));
+
+        // Then
+        assertEquals(List.of("AAA"), err.getApplied());
+        assertInstanceOf(DaoFileWriteError.class, err.getCause());
+        assertTrue(sut.exists("AAA"));
+    }
+
+    @Test
+    public void shouldThrowOnWriteWhenClosed() {
+        // Given
+        sut = open();
+        sut.close();
+
+        // Then When
+        assertThrows(GenericDaoError.class, () -> sut.insert(new APojo("AAA", "aaa")));
+    }
+
+    @Test
+    public void shouldInsertUpdateAndDeleteInBatches() throws AlreadyExistsException, NotExistsException, DataIntegrityViolationException {
+        // Given
+        sut = open(options.withForceOnWrite(true));
+
+        // When
+        sut.insertAll(List.of(new APojo("AAA", "aaa"), new APojo("BBB", "bbb"), new APojo(null, "ccc")));
+        sut.updateAll(List.of(new APojo("AAA", "updated")));
+        List<APojo> deleted = sut.deleteAll(List.of("BBB"));
+        sut.close();
+        sut = open();
+
+        // Then
+        assertEquals("bbb", deleted.get(0).getName());
+        assertEquals("updated", sut.get("AAA").getName());
+        assertEquals("ccc", sut.get("GENERATED").getName());
+        assertFalse(sut.exists("BBB"));
+    }
+
+    @Test
+    public void shouldValidateWholeBatchBeforeWriting() throws AlreadyExistsException {
+        // Given
+        sut = open();
+        sut.insert(new APojo("AAA", "aaa"));
+
+        // Then When
+        assertThrows(AlreadyExistsException.class, () -> sut.insertAll(List.of(new APojo("BBB", "bbb"), new APojo("AAA", "aaa"))));
+        assertThrows(NotExistsException.class, () -> sut.updateAll(List.of(new APojo("AAA", "aaa"), new APojo("CCC", "ccc"))));
+        assertThrows(NotExistsException.class, () -> sut.deleteAll(List.of("AAA", "CCC")));
+        assertTrue(sut.exists("AAA"));
+        assertFalse(sut.exists("BBB"));
+    }
+
+    @Test
+    public void shouldSwapInUnderIndexedDao() throws AlreadyExistsException, NotExistsException, NotUniqueException {
+        // Given
+        sut = open();
+        sut.insert(new APojo("AAA", "aaa"));
+        sut.insert(new APojo("BBB", "bbb"));
+        sut.close();
+        IndexGetter<APojo, String> nameGetter = new IndexGetter<>(APojo::getName);
+
+        // When
+        IndexedDao<APojo> indexed = new IndexedDao<>(
+                indexationHandler -> sut = new SegmentDao<>(
+                        APojo.class,
+                        APojo::getKey,
+                        (entity, key) -> {entity.setKey(key); return entity;},
+                        keyGenerator,
+                        dir.toFile(),
+                        mapper,
+                        indexationHandler,
+                        options),
+                new GenericIndex<>("name", nameGetter, true));
+        indexed.insert(new APojo("CCC", "ccc"));
+
+        // Then
+        assertEquals("BBB", indexed.get(Predicates.equals(nameGetter, "bbb")).getKey());
+        assertEquals(List.of("CCC"), indexed.stream(Predicates.equals(nameGetter, "ccc")).map(APojo::getKey).toList());
+    }
+}
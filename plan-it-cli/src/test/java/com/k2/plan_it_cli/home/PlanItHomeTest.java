@@ -255,4 +255,17 @@ public class PlanItHomeTest {
     }
 
 
+
+    @Test
+    public void shouldCheckHomeAndReturnSocketInHomeOnGetSocket() {
+        // Given
+        File home = new File("/tmp/planit");
+        sut = new PlanItHome(home, null, null, null);
+        PlanItHome spy = spy(sut);
+        doNothing().when(spy).checkHome();
+
+        // Then When
+        assertEquals(new File(home, PlanItHome.SOCKET_NAME), spy.getSocket());
+        verify(spy).checkHome();
+    }
 }
@@ -0,0 +1,60 @@
+package com.k2.plan_it_cli.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsReportTest {
+
+    MeterRegistry registry = new SimpleMeterRegistry();
+    MetricsReport sut = new MetricsReport(registry);
+
+    @Test
+    public void shouldReportEachMeterWithItsTags() {
+        // Given
+        Timer.builder("planit.dao.operation")
+                .tag("type", "Plan")
+                .tag("operation", "get")
+                .publishPercentiles(0.5)
+                .register(registry)
+                .record(Duration.ofMillis(2));
+        AtomicLong hits = new AtomicLong(3);
+        registry.more().counter("planit.dao.cache.hits", List.of(), hits);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // When
+        sut.report(new PrintStream(out));
+
+        // Then
+        String report = out.toString();
+        assertTrue(report.startsWith("PlanIt Statistics"));
+        assertTrue(report.contains("planit.dao.cache.hits{} count=3"));
+        assertTrue(report.contains("planit.dao.operation{operation=get,type=Plan} count=1 mean=2.000ms max=2.000ms p50="));
+    }
+
+    @Test
+    public void shouldExportReportToFile(@TempDir Path temp) throws IOException {
+        // Given
+        registry.counter("planit.dao.cache.misses").increment();
+        Path file = temp.resolve("stats.txt");
+
+        // When
+        sut.export(file.toFile());
+
+        // Then
+        assertTrue(Files.readString(file).contains("planit.dao.cache.misses{} count=1"));
+    }
+}